@@ -0,0 +1,140 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.world.phys.Vec3;
+
+/**
+ * Decides, once per tick, whether the player's position becomes a checkpoint.
+ *
+ * <p>The spacing adapts to how the player moves:
+ * <ul>
+ *   <li>speed: faster than walking (smoothed over a few ticks) stretches the base spacing proportionally, and
+ *       riding or gliding stretches it further, up to {@link #MAX_SPACING};</li>
+ *   <li>turns: once the heading deviates more than {@link #TURN_ANGLE_DEG} from the last segment, a point is taken
+ *       after only {@link #MIN_SPACING}, so winding caves keep their corners;</li>
+ *   <li>climbs: a height change of {@link #VERTICAL_STEP} is a checkpoint even without horizontal movement
+ *       (ladders, shafts, drops);</li>
+ *   <li>time: the periodic sample only fires if the player moved at least {@link #STATIONARY_DIST} since the last
+ *       checkpoint, so standing still (AFK, mining) records nothing.</li>
+ * </ul>
+ * {@link #MAX_SPACING} matches {@link TrailSimplifier#MAX_SPAN}, so crossing trails still find a node within
+ * {@link GraphRoute#CONNECT_DIST}.
+ *
+ * <p>Package-private on purpose (only used by DeathBreadcrumbsClient).
+ */
+final class CheckpointSampler {
+
+    enum Reason { NONE, DISTANCE, TURN, CLIMB, TIME }
+
+    static final double MIN_SPACING = 2.5;                       // blocks (above the merge distance)
+    static final double MAX_SPACING = TrailSimplifier.MAX_SPAN;  // blocks
+    static final double TURN_ANGLE_DEG = 35.0;
+    static final double VERTICAL_STEP = 3.0;                     // blocks
+    static final double STATIONARY_DIST = 1.0;                   // blocks
+    /** Sprinting pace; slower movement uses the base spacing. */
+    private static final double WALK_SPEED = 0.28;               // blocks/tick
+    private static final double RIDE_FACTOR = 1.5;
+    /** Per-tick moves above this are teleports (or chunk-load jumps) and don't count as speed. */
+    private static final double MAX_TICK_MOVE = 4.0;             // blocks
+    private static final double SPEED_SMOOTHING = 0.2;
+    private static final double TURN_COS = Math.cos(Math.toRadians(TURN_ANGLE_DEG));
+
+    private final double baseSpacing;
+    private final int maxIntervalTicks;
+
+    // Previous tick position and smoothed speed (blocks/tick).
+    private boolean hasPrev = false;
+    private double prevX, prevY, prevZ;
+    private double speed = 0.0;
+    private double spacing;
+
+    // Last checkpoint this sampler took and the horizontal heading of the segment that ended there.
+    private Vec3 mark = null;
+    private double headX, headZ;
+    private boolean hasHeading = false;
+
+    // Stats
+    private final long[] taken = new long[Reason.values().length];
+    private long stationaryTicks = 0;
+
+    CheckpointSampler(double baseSpacing, int maxIntervalTicks) {
+        this.baseSpacing = baseSpacing;
+        this.maxIntervalTicks = maxIntervalTicks;
+        this.spacing = baseSpacing;
+    }
+
+    /**
+     * Feeds this tick's position and returns why it should become a checkpoint ({@link Reason#NONE}: skip it).
+     * {@code last} / {@code lastTick} are the trail's last checkpoint.
+     */
+    Reason sample(Vec3 last, long lastTick, Vec3 pos, long tick, boolean riding, boolean gliding) {
+        observe(pos, riding, gliding);
+
+        // The trail was switched, cleared or restarted: the stored heading belongs to another line.
+        if (last != mark) {
+            mark = last;
+            hasHeading = false;
+        }
+
+        double dx = pos.x - last.x;
+        double dz = pos.z - last.z;
+        double dy = pos.y - last.y;
+        double distXZ = Math.sqrt(dx * dx + dz * dz);
+
+        Reason reason = Reason.NONE;
+        if (distXZ >= spacing) {
+            reason = Reason.DISTANCE;
+        } else if (Math.abs(dy) >= VERTICAL_STEP) {
+            reason = Reason.CLIMB;
+        } else if (hasHeading && distXZ >= MIN_SPACING && (dx * headX + dz * headZ) < TURN_COS * distXZ) {
+            reason = Reason.TURN;
+        } else if (tick - lastTick >= maxIntervalTicks) {
+            if (distXZ * distXZ + dy * dy >= STATIONARY_DIST * STATIONARY_DIST) reason = Reason.TIME;
+            else stationaryTicks++;
+        }
+        if (reason != Reason.NONE) taken[reason.ordinal()]++;
+        return reason;
+    }
+
+    /** The caller recorded {@code pos} as the new last checkpoint (possibly snapped or merged). */
+    void committed(Vec3 pos) {
+        if (mark != null) {
+            double dx = pos.x - mark.x;
+            double dz = pos.z - mark.z;
+            double len = Math.sqrt(dx * dx + dz * dz);
+            hasHeading = len >= STATIONARY_DIST;
+            if (hasHeading) {
+                headX = dx / len;
+                headZ = dz / len;
+            }
+        }
+        mark = pos;
+    }
+
+    private void observe(Vec3 pos, boolean riding, boolean gliding) {
+        if (hasPrev) {
+            double mx = pos.x - prevX;
+            double my = pos.y - prevY;
+            double mz = pos.z - prevZ;
+            double move = Math.sqrt(mx * mx + my * my + mz * mz);
+            if (move <= MAX_TICK_MOVE) speed += (move - speed) * SPEED_SMOOTHING;
+        }
+        prevX = pos.x;
+        prevY = pos.y;
+        prevZ = pos.z;
+        hasPrev = true;
+
+        double s = baseSpacing * Math.max(1.0, speed / WALK_SPEED);
+        if (riding || gliding) s *= RIDE_FACTOR;
+        spacing = Math.min(MAX_SPACING, s);
+    }
+
+    double spacing() {
+        return spacing;
+    }
+
+    String describe() {
+        return String.format(java.util.Locale.ROOT, "spacing=%.1f, dist=%d, turn=%d, climb=%d, time=%d, idleTicks=%d",
+                spacing, taken[Reason.DISTANCE.ordinal()], taken[Reason.TURN.ordinal()],
+                taken[Reason.CLIMB.ordinal()], taken[Reason.TIME.ordinal()], stationaryTicks);
+    }
+}
@@ -0,0 +1,202 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.world.phys.Vec3;
+
+/**
+ * Checkpoint trail of a single dimension: the recorded points (oldest first), their {@link TrailGraph} and the
+ * recording state (segment start, last checkpoint). The points themselves live in the graph's {@link TrailBuffer};
+ * every mutation is mirrored into the shared {@link TrailLog}, so the buffer, the graph and the save file always
+ * move in lockstep.
+ *
+ * <p>Trails stay alive while the player is in another dimension; switching dimension only changes which trail
+ * receives new checkpoints. Package-private on purpose (only used by DeathBreadcrumbsClient).
+ */
+final class CheckpointTrail {
+
+    final String dimId;
+
+    private final int maxCount;
+    private final TrailGraph graph;
+    private final TrailBuffer points;
+    private final TrailLog log;
+
+    // Only points from this index are "current" (this life). Older points are kept in the buffer,
+    // but are ignored when capturing a death route (prevents "crooked" routes from ancient trails).
+    private int segmentStart = 0;
+    private Vec3 lastPos = null;
+    private long lastTick = 0;
+    // Segment start / last checkpoint changed since the last save.
+    private boolean metaDirty = false;
+
+    /** Stamp of the last time this trail was the current one (least recently used trails are trimmed first). */
+    long lastUsed = 0;
+
+    CheckpointTrail(String dimId, int maxCount, TrailLog log) {
+        this.dimId = dimId;
+        this.maxCount = maxCount;
+        this.graph = new TrailGraph(maxCount);
+        this.points = graph.points();
+        this.log = log;
+    }
+
+    int size() {
+        return points.size();
+    }
+
+    boolean isEmpty() {
+        return points.isEmpty();
+    }
+
+    /** Allocates; prefer {@link #x}/{@link #y}/{@link #z} on hot paths. */
+    Vec3 get(int i) {
+        return points.get(i);
+    }
+
+    double x(int i) {
+        return points.x(i);
+    }
+
+    double y(int i) {
+        return points.y(i);
+    }
+
+    double z(int i) {
+        return points.z(i);
+    }
+
+    /**
+     * Index of the newest point of the current segment, excluding the last point, that lies within
+     * {@code radius} of {@code pos} horizontally, or -1.
+     */
+    int findLatestNear(Vec3 pos, double radius) {
+        return points.findLatestNearXZ(pos.x, pos.z, radius, segmentStart, points.size() - 1);
+    }
+
+    /** True if point {@code i} is linked to an older part of the trail (see {@link TrailGraph#isJunction}). */
+    boolean isJunction(int i) {
+        return graph.isJunction(i);
+    }
+
+    int segmentStart() {
+        return segmentStart;
+    }
+
+    Vec3 lastPos() {
+        return lastPos;
+    }
+
+    long lastTick() {
+        return lastTick;
+    }
+
+    void append(Vec3 pos) {
+        graph.append(pos);
+        log.select(dimId);
+        log.logAppend(pos);
+    }
+
+    void replaceLast(Vec3 pos) {
+        graph.replaceLast(pos);
+        log.select(dimId);
+        log.logReplaceLast(pos);
+    }
+
+    /** Keeps the first {@code keep} points. */
+    void truncate(int keep) {
+        graph.truncate(keep);
+        log.select(dimId);
+        log.logTruncate(keep);
+        if (segmentStart > keep) {
+            segmentStart = keep;
+            metaDirty = true;
+        }
+    }
+
+    /** Drops the {@code count} oldest points; the segment start moves with them. */
+    void dropFront(int count) {
+        count = Math.min(count, points.size());
+        if (count <= 0) return;
+        graph.dropFront(count);
+        log.select(dimId);
+        log.logDropFront(count);
+        segmentStart = Math.max(0, segmentStart - count);
+        metaDirty = true;
+    }
+
+    void clear() {
+        graph.clear();
+        log.select(dimId);
+        log.logClear();
+        segmentStart = 0;
+        lastPos = null;
+        lastTick = 0;
+        metaDirty = true;
+    }
+
+    /** Records where/when the last checkpoint was taken (drives the distance/time throttle). */
+    void markCheckpoint(Vec3 pos, long tick) {
+        lastPos = pos;
+        lastTick = tick;
+        metaDirty = true;
+    }
+
+    /** Forgets the throttle state so the next position is recorded right away. */
+    void resetThrottle() {
+        lastPos = null;
+        lastTick = 0;
+        metaDirty = true;
+    }
+
+    /** Starts a new segment but keeps the last {@code keepTail} points in it (a quick re-death still has support). */
+    void resetSegment(int keepTail) {
+        segmentStart = Math.max(0, points.size() - keepTail);
+        metaDirty = true;
+    }
+
+    /** Starts a new segment after the last point (nothing recorded so far belongs to it). */
+    void restartSegment() {
+        segmentStart = points.size();
+        resetThrottle();
+    }
+
+    /** Detached copy of the current segment with its neighbor lists, for the route builder. */
+    TrailGraph.Snapshot snapshotSegment() {
+        return graph.snapshot(Math.max(0, Math.min(segmentStart, points.size())));
+    }
+
+    /** Logs the segment start and last checkpoint if they changed since the last call. */
+    void logMetaIfDirty() {
+        if (!metaDirty) return;
+        log.logMeta(dimId, segmentStart, lastTick, lastPos);
+        metaDirty = false;
+    }
+
+    /**
+     * Replaces the contents with saved data without logging (the data came from the log's file). Only the newest
+     * {@code maxCount} points are kept; the trimmed prefix is logged as a drop-front.
+     */
+    void restore(SaveData data) {
+        graph.clear();
+        int from = 0;
+        if (data.checkpoints != null) {
+            from = Math.max(0, data.checkpoints.length - maxCount);
+            for (int i = from; i < data.checkpoints.length; i++) {
+                double[] a = data.checkpoints[i];
+                if (a == null || a.length < 3) continue;
+                graph.append(new Vec3(a[0], a[1], a[2]));
+            }
+        }
+        if (from > 0) {
+            log.select(dimId);
+            log.logDropFront(from);
+        }
+        segmentStart = Math.max(0, Math.min(data.checkpointSegmentStart - from, points.size()));
+        lastTick = data.lastCheckpointTick;
+        if (data.lastCheckpointPos != null && data.lastCheckpointPos.length >= 3) {
+            lastPos = new Vec3(data.lastCheckpointPos[0], data.lastCheckpointPos[1], data.lastCheckpointPos[2]);
+        } else {
+            lastPos = points.isEmpty() ? null : points.get(points.size() - 1);
+        }
+        metaDirty = false;
+    }
+}
@@ -1,41 +1,53 @@
 package com.deathbreadcrumbs;
 
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
 import com.mojang.brigadier.context.CommandContext;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandManager;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
-import net.fabricmc.loader.api.FabricLoader;
+import net.fabricmc.fabric.api.client.rendering.v1.hud.HudElementRegistry;
+import net.fabricmc.fabric.api.client.rendering.v1.world.WorldRenderEvents;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.charset.StandardCharsets;
 
 import net.minecraft.client.Minecraft;
-import net.minecraft.client.multiplayer.ClientLevel;
-import net.minecraft.client.player.LocalPlayer;
+import net.minecraft.client.gui.GuiGraphics;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.GlobalPos;
-import net.minecraft.core.particles.ParticleTypes;
 import net.minecraft.network.chat.Component;
+import net.minecraft.resources.Identifier;
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.phys.Vec3;
 
+import com.deathbreadcrumbs.nav.EvictionPolicy;
+import com.deathbreadcrumbs.nav.NavGraph;
 import com.deathbreadcrumbs.nav.PointDatabase;
 import com.deathbreadcrumbs.nav.PointId;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 public class DeathBreadcrumbsClient implements ClientModInitializer {
 
     // --- Checkpoints (while alive) ---
+    // Base spacing and period while walking; CheckpointSampler stretches them with speed / riding / gliding,
+    // shortens them in turns and climbs, and skips the periodic point while standing still.
     private static final double CHECKPOINT_MIN_DIST = 4.0;      // blocks
     private static final int CHECKPOINT_MAX_INTERVAL_TICKS = 60; // 3 sec
     // If a new checkpoint is too close to the previous one, "collapse" them to avoid spam.
@@ -46,52 +58,179 @@ public class DeathBreadcrumbsClient implements ClientModInitializer {
     // old trails don't create weird branches/loops for the next death.
     private static final int CHECKPOINT_TAIL_ON_RESET = 200;
 
-    private static final ArrayList<Vec3> checkpoints = new ArrayList<>();
-    private static ResourceKey<Level> checkpointsDim = null;
-    private static Vec3 lastCheckpointPos = null;
-    private static long lastCheckpointTick = 0;
-    // Only points from this index are considered "current". Older points are kept in the buffer,
-    // but are ignored when capturing a death route (prevents "crooked" routes from ancient trails).
-    private static int checkpointSegmentStart = 0;
-
-    // --- New: global point DB for future marker API ---
+    // Every dimension keeps its own trail; together they never hold more than this many points
+    // (least recently used trails are trimmed first) and at most this many dimensions are tracked.
+    private static final int CHECKPOINT_MAX_TOTAL = 6000;
+    private static final int TRAIL_MAX_DIMENSIONS = 8;
+    // Re-entering a dimension far from where its trail ended (other portal, teleport): don't connect the two.
+    private static final double TRAIL_RESUME_DIST = 16.0; // blocks
+
+    // Each trail maintains its navigation graph as checkpoints are recorded, so capturing a death
+    // only needs a snapshot + one shortest-path pass.
+    private static final HashMap<String, CheckpointTrail> trails = new HashMap<>();
+    // Trail of the current dimension (switching dimension only swaps this reference).
+    private static CheckpointTrail trail = null;
+    private static boolean trailResumeCheck = false;
+    private static long trailUseCounter = 0;
+    // Straight runs are recorded as one edge instead of a point every few blocks (see TrailSimplifier).
+    private static final TrailSimplifier SIMPLIFIER = new TrailSimplifier();
+    private static final CheckpointSampler SAMPLER = new CheckpointSampler(CHECKPOINT_MIN_DIST, CHECKPOINT_MAX_INTERVAL_TICKS);
+
+    // --- Global point DB: every checkpoint ever recorded, linked into the shared navigation graph (see submitNav) ---
+    // Bounded: least recently seen points are evicted once the DB is full (prevents a slow heap leak
+    // on long sessions with heavy exploration).
+    private static final int POINT_DB_CAPACITY = 20000;
     private static final PointDatabase POINT_DB = new PointDatabase(
             32, // CELL_SIZE
             CHECKPOINT_MERGE_DIST,
-            2048 // max backwalk for cycle checks
+            2048, // max backwalk for cycle checks
+            POINT_DB_CAPACITY,
+            EvictionPolicy.LRU
     );
     private static long checkpointSegmentId = 1;
     private static PointId lastDbPointId = null;
+    // Interned POINT_DB dimension for the last seen level (avoids reflective keyId() per checkpoint).
+    private static ResourceKey<Level> dbDimKey = null;
+    private static int dbDimIdx = -1;
 
     // --- Persistence ---
     private static final String SAVE_DIR_NAME = "deathpath";
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    // The running game as seen by the tick pipeline (rebound every tick).
+    private static final GamePort GAME = new GamePort(SAVE_DIR_NAME);
+
+    // Session trace for the replay harness (see ReplayTrace): buffered here, appended by SAVE_WRITER.
+    private static final int TRACE_FLUSH_TICKS = 200;
+    private static Path traceFile = null;
+    private static final StringBuilder traceBuffer = new StringBuilder();
+    private static int traceTicks = 0;
+
+    // Opt-in timings (/deathbreadcrumbs perf): the tick stages by ordinal, then the sections below.
+    private static final int PERF_TICK = TickStage.values().length;
+    private static final int PERF_PATH = PERF_TICK + 1;   // cursor path query inside RENDER
+    private static final int PERF_BUILD = PERF_TICK + 2;  // route graph build (builder thread)
+    private static final int PERF_PLAN = PERF_TICK + 3;   // tour planning (builder thread)
+    private static final int PERF_NAV = PERF_TICK + 4;    // shared navigation graph solve (builder thread)
+    private static final PerfTelemetry PERF = new PerfTelemetry(perfSections());
+    private static final int PERF_HUD_REFRESH_TICKS = 20;
+    private static List<String> perfHudLines = List.of();
+    private static int perfHudTicks = 0;
+    // Legacy JSON saves are only read (and migrated to the binary trail log).
+    private static final Gson GSON = new Gson();
+    private static final TrailLog TRAIL_LOG = new TrailLog();
+    private static final SaveWriter SAVE_WRITER = new SaveWriter();
+    // File the trail log was last written to; a different target must be compacted first.
+    private static Path trailLogFile = null;
     private static boolean loadedFromDiskThisSession = false;
     private static boolean saveDirty = false;
     private static long lastSaveTick = 0;
 
+    // Point DB, death queue and route graphs (see StateCodec): one index file plus one file per dimension,
+    // read lazily when a dimension is first entered.
+    private static final String STATE_INDEX_FILE = "index.dbs";
+    private static final int STATE_SAVE_INTERVAL_TICKS = 1200; // DB-only changes: every ~60s
+    private static Path stateDir = null;
+    // Dimensions whose file has been read this session; only these may be written (never clobber unread data).
+    private static final HashSet<String> loadedStateDims = new HashSet<>();
+    private static final HashSet<String> dirtyStateDims = new HashSet<>();
+    private static boolean stateIndexDirty = false;
+    // The death queue changed: save with the next regular autosave instead of waiting for the DB interval.
+    private static boolean stateUrgent = false;
+    private static long lastStateSaveTick = 0;
+    private static long lastSavedEvictions = 0;
+    private static ResourceKey<Level> stateDimKey = null;
+    private static String stateDimId = null;
+    private static long nextRouteId = 1;
+
 
     // --- Route (after death) ---
     private static final class DeathRoute {
-        final List<Vec3> points; // last point is the death position
-        final ResourceKey<Level> dim;
-        final GraphRoute graph;
-        final GlobalPos death;
+        final long id; // persistence key
+        final String dimId;
+        final BlockPos deathBlock;
+        // Both null while the route is a stub restored from the index and its dimension is not loaded yet.
+        List<Vec3> points; // last point is the death position
+        ResourceKey<Level> dim;
         int routeIndex; // legacy/fallback status
+        // Remembers the player's current node between ticks (only touched on the client thread).
+        final RouteCursor cursor = new RouteCursor();
+
+        // Published by the route builder thread: graph first, then ready (volatile write orders both).
+        volatile GraphRoute graph;
+        volatile boolean ready;
+        // Tree towards the death over the shared navigation graph (null until solved, or if the death is off it).
+        volatile GraphRoute navTree;
+
+        DeathRoute(long id, List<Vec3> points, ResourceKey<Level> dim, BlockPos deathBlock) {
+            this.id = id;
+            this.dimId = keyId(dim);
+            this.deathBlock = deathBlock;
+            this.points = points;
+            this.dim = dim;
+            this.routeIndex = 0;
+        }
+
+        /** Stub restored from the state index; see {@link #hydrate}. */
+        DeathRoute(long id, String dimId, BlockPos deathBlock) {
+            this.id = id;
+            this.dimId = dimId;
+            this.deathBlock = deathBlock;
+            this.routeIndex = 0;
+        }
 
-        DeathRoute(List<Vec3> points, ResourceKey<Level> dim, GraphRoute graph, GlobalPos death) {
+        boolean isLoaded() {
+            return points != null;
+        }
+
+        void hydrate(List<Vec3> points, ResourceKey<Level> dim) {
             this.points = points;
             this.dim = dim;
+        }
+
+        void publish(GraphRoute graph) {
             this.graph = graph;
-            this.death = death;
-            this.routeIndex = 0;
+            this.ready = true;
         }
     }
 
+    // Route graphs are built off the client thread. One daemon worker keeps jobs in death order;
+    // quick successive deaths simply queue up behind each other.
+    private static final ExecutorService ROUTE_BUILDER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "DeathBreadcrumbs-RouteBuilder");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
     // Queue of outstanding deaths (first = highest priority).
     private static final java.util.ArrayDeque<DeathRoute> deathQueue = new java.util.ArrayDeque<>();
     private static DeathRoute activeRoute = null;
 
+    // Visiting order over the loaded deaths of the current dimension (see RoutePlanner). Plans are computed on
+    // the route builder; results older than planMinGeneration (queue cleared, dimension left) are ignored.
+    private static volatile RoutePlanner.Plan routePlan = null;
+    private static RoutePlanner.Plan appliedPlan = null;
+    private static long planGeneration = 0;
+    private static long planMinGeneration = 0;
+    private static boolean planDirty = false;
+
+    // Shared navigation graph of the player's dimension: every POINT_DB record (all lives) with chain and
+    // proximity links. Re-solved on the route builder when deaths are added; each loaded death route of that
+    // dimension gets a tree towards its death over it, so breadcrumbs can shortcut over older trails.
+    private static final class NavBase {
+        final String dimId;
+        final long version;
+        final GraphRoute graph;
+
+        NavBase(String dimId, long version, GraphRoute graph) {
+            this.dimId = dimId;
+            this.version = version;
+            this.graph = graph;
+        }
+    }
+
+    private static volatile NavBase navBase = null;
+    private static boolean navDirty = false;
+
     // Helps capture route once per death
     private static GlobalPos lastCapturedDeath = null;
     private static long lastCapturedDeathTick = -1;
@@ -102,7 +241,7 @@ public class DeathBreadcrumbsClient implements ClientModInitializer {
     // from the new life (respawn).
     private static boolean wasAliveLastTick = true;
     private static boolean pendingDeathCapture = false;
-    private static ArrayList<Vec3> checkpointsSnapshot = null;
+    private static TrailGraph.Snapshot checkpointsSnapshot = null;
     private static ResourceKey<Level> checkpointsSnapshotDim = null;
 
     // Track last known alive position to make sure the captured route always includes the final approach.
@@ -125,11 +264,16 @@ public class DeathBreadcrumbsClient implements ClientModInitializer {
     // --- Goal marker (death point) ---
     // "Bad Omen"-like swirling particles so the final target is always visible.
     private static final int GOAL_PARTICLES_PER_TICK = 6;
-    private static final double GOAL_RING_RADIUS = 0.75;
-    // Roughly matches the Bad Omen tint (dark teal/green).
-    private static final double GOAL_R = 0.05;
-    private static final double GOAL_G = 0.22;
-    private static final double GOAL_B = 0.20;
+    private static final double GOAL_RING_RADIUS = 0.75; // tint: see GamePort
+
+    // Everything above is an upper bound: the scheduler thins it by distance, view and frame rate.
+    private static final ParticleScheduler PARTICLES = new ParticleScheduler();
+
+    // Optional: draw the route ahead as a line (/deathbreadcrumbs lines on) instead of crumbs. The goal marker
+    // and the linear fallback stay particles. shownGraph / shownStart is what the layer should draw after this tick.
+    private static final RouteLineLayer LINE_LAYER = new RouteLineLayer();
+    private static GraphRoute shownGraph = null;
+    private static int shownStart = -1;
 
     // Graph params ("опорные точки")
 
@@ -140,216 +284,371 @@ public class DeathBreadcrumbsClient implements ClientModInitializer {
     @Override
     public void onInitializeClient() {
         ClientCommandRegistrationCallback.EVENT.register((dispatcher, registryAccess) -> {
-            dispatcher.register(ClientCommandManager.literal("deathbreadcrumbs")
-                    .then(ClientCommandManager.literal("clear")
-                            .executes(DeathBreadcrumbsClient::cmdClear))
-                    .then(ClientCommandManager.literal("debug").executes(DeathBreadcrumbsClient::cmdDebug))
-                    .then(ClientCommandManager.literal("status")
-                            .executes(DeathBreadcrumbsClient::cmdStatus))
-            );
+            dispatcher.register(commandTree("deathbreadcrumbs"));
             // Backwards-compatible alias
-            dispatcher.register(ClientCommandManager.literal("deathpath")
-                    .then(ClientCommandManager.literal("clear")
-                            .executes(DeathBreadcrumbsClient::cmdClear))
-                    .then(ClientCommandManager.literal("debug").executes(DeathBreadcrumbsClient::cmdDebug))
-                    .then(ClientCommandManager.literal("status")
-                            .executes(DeathBreadcrumbsClient::cmdStatus))
-            );
+            dispatcher.register(commandTree("deathpath"));
         });
 
 ClientTickEvents.END_CLIENT_TICK.register(DeathBreadcrumbsClient::onClientTick);
+        WorldRenderEvents.AFTER_ENTITIES.register(LINE_LAYER::render);
+        HudElementRegistry.addLast(Identifier.fromNamespaceAndPath(DeathBreadcrumbs.MOD_ID, "perf"),
+                (graphics, tickCounter) -> renderPerfHud(graphics));
+        // Give queued writes a chance to land before the JVM exits (the writer thread is a daemon).
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> {
+            if (stateIndexDirty || !dirtyStateDims.isEmpty()) saveState();
+            flushTrace();
+            SAVE_WRITER.awaitIdle(2000);
+        });
+    }
+
+    /** The client command tree, registered under both the mod's name and the old alias. */
+    private static LiteralArgumentBuilder<FabricClientCommandSource> commandTree(String name) {
+        return ClientCommandManager.literal(name)
+                .then(ClientCommandManager.literal("clear")
+                        .executes(DeathBreadcrumbsClient::cmdClear))
+                .then(ClientCommandManager.literal("debug").executes(DeathBreadcrumbsClient::cmdDebug))
+                .then(ClientCommandManager.literal("status")
+                        .executes(DeathBreadcrumbsClient::cmdStatus))
+                .then(ClientCommandManager.literal("simplify")
+                        .executes(ctx -> cmdSimplify(null))
+                        .then(ClientCommandManager.literal("off").executes(ctx -> cmdSimplify(TrailSimplifier.Mode.OFF)))
+                        .then(ClientCommandManager.literal("rdp").executes(ctx -> cmdSimplify(TrailSimplifier.Mode.RDP)))
+                        .then(ClientCommandManager.literal("visvalingam").executes(ctx -> cmdSimplify(TrailSimplifier.Mode.VISVALINGAM))))
+                .then(ClientCommandManager.literal("trace").executes(DeathBreadcrumbsClient::cmdTrace))
+                .then(ClientCommandManager.literal("lines")
+                        .executes(ctx -> cmdLines(null))
+                        .then(ClientCommandManager.literal("on").executes(ctx -> cmdLines(true)))
+                        .then(ClientCommandManager.literal("off").executes(ctx -> cmdLines(false))))
+                .then(ClientCommandManager.literal("perf")
+                        .executes(ctx -> cmdPerf(null))
+                        .then(ClientCommandManager.literal("on").executes(ctx -> cmdPerf("on")))
+                        .then(ClientCommandManager.literal("off").executes(ctx -> cmdPerf("off")))
+                        .then(ClientCommandManager.literal("hud").executes(ctx -> cmdPerf("hud")))
+                        .then(ClientCommandManager.literal("reset").executes(ctx -> cmdPerf("reset")))
+                        .then(ClientCommandManager.literal("csv").executes(ctx -> cmdPerf("csv"))));
     }
 
     private static void onClientTick(Minecraft mc) {
-        if (mc == null) return;
-        LocalPlayer player = mc.player;
-        Level level = mc.level;
-        if (player == null || level == null) return;
+        if (!GAME.bind(mc)) return;
+        tick(GAME);
+        if (traceFile != null) traceTick(GAME);
+    }
+
+    private static void traceTick(TickPort port) {
+        Vec3 pos = port.position();
+        ReplayTrace.appendLine(traceBuffer, port.gameTime(), stateDimId, pos.x, pos.y, pos.z, port.isAlive());
+        if (++traceTicks >= TRACE_FLUSH_TICKS) flushTrace();
+    }
+
+    private static void flushTrace() {
+        traceTicks = 0;
+        if (traceFile == null || traceBuffer.length() == 0) return;
+        SAVE_WRITER.submitAppend(traceFile, traceBuffer.toString().getBytes(StandardCharsets.UTF_8));
+        traceBuffer.setLength(0);
+    }
+
+    /** Stages of one tick, in order. The replay harness runs (and times) them one by one. */
+    enum TickStage { STATE, SAVE, DEATH, RECORD, RENDER }
+
+    /** One tick of the pipeline against {@code port} (the running game, or a replayed trace). */
+    static void tick(TickPort port) {
+        if (!PERF.enabled()) {
+            for (TickStage stage : TICK_STAGES) runStage(stage, port);
+            return;
+        }
+
+        long tickStart = System.nanoTime();
+        long tickAlloc = PERF.allocatedBytes();
+        for (TickStage stage : TICK_STAGES) {
+            long t0 = System.nanoTime();
+            long a0 = PERF.allocatedBytes();
+            runStage(stage, port);
+            PERF.record(stage.ordinal(), System.nanoTime() - t0, PERF.allocatedBytes() - a0);
+        }
+        PERF.record(PERF_TICK, System.nanoTime() - tickStart, PERF.allocatedBytes() - tickAlloc);
+
+        if (PERF.hud() && ++perfHudTicks >= PERF_HUD_REFRESH_TICKS) {
+            perfHudTicks = 0;
+            perfHudLines = PERF.describeLines();
+        }
+    }
+
+    private static String[] perfSections() {
+        TickStage[] stages = TickStage.values();
+        String[] names = new String[PERF_NAV + 1];
+        for (TickStage stage : stages) names[stage.ordinal()] = stage.name();
+        names[PERF_TICK] = "TICK";
+        names[PERF_PATH] = "PATH";
+        names[PERF_BUILD] = "BUILD";
+        names[PERF_PLAN] = "PLAN";
+        names[PERF_NAV] = "NAV";
+        return names;
+    }
 
+    private static final TickStage[] TICK_STAGES = TickStage.values();
+
+    static void runStage(TickStage stage, TickPort port) {
+        switch (stage) {
+            case STATE -> tickState(port);
+            case SAVE -> tickSave(port);
+            case DEATH -> tickDeath(port);
+            case RECORD -> tickRecord(port);
+            case RENDER -> tickRender(port);
+        }
+    }
+
+    /** Session load, dimension switch, and the background planner hand-off. */
+    private static void tickState(TickPort port) {
         // Lazy-load checkpoints once per session when we have a world loaded.
         if (!loadedFromDiskThisSession) {
-            loadFromDisk(mc, level);
+            loadFromDisk(port);
+            loadStateIndex(port);
             loadedFromDiskThisSession = true;
         }
+        // Per-dimension state: switch trails, and read DB records / queued routes the first time a dimension
+        // is entered.
+        enterDimension(port);
+
+        // Death queue changed: refresh the shared navigation graph and re-plan the visiting order in the
+        // background (same worker, so the plan sees the refreshed graph), and follow finished plans.
+        if (navDirty) submitNav(port);
+        if (planDirty) submitPlan(port);
+        RoutePlanner.Plan plan = currentPlan();
+        if (plan != appliedPlan) {
+            appliedPlan = plan;
+            selectActiveRoute();
+        }
+    }
+
+    private static void tickSave(TickPort port) {
+        // A failed background write: rewrite everything from memory.
+        if (SAVE_WRITER.consumeFailure()) {
+            TRAIL_LOG.invalidate();
+            saveDirty = true;
+            dirtyStateDims.addAll(loadedStateDims);
+            stateIndexDirty = true;
+        }
 
         // Periodic autosave (throttled)
+        long tickNow = port.gameTime();
         if (saveDirty) {
-            long tickNow = level.getGameTime();
             if (tickNow - lastSaveTick >= 200) { // every ~10s
-                saveToDisk(mc);
+                saveToDisk(port);
                 lastSaveTick = tickNow;
             }
         }
+        if (stateIndexDirty || !dirtyStateDims.isEmpty()) {
+            long since = tickNow - lastStateSaveTick;
+            if ((stateUrgent && since >= 200) || since >= STATE_SAVE_INTERVAL_TICKS) {
+                saveState();
+                lastStateSaveTick = tickNow;
+            }
+        }
+    }
 
-        boolean alive = player.isAlive();
+    private static void tickDeath(TickPort port) {
+        boolean alive = port.isAlive();
 
         // Keep last alive position for better death capture.
         if (alive) {
-            lastAlivePos = player.position();
-            lastAliveDim = level.dimension();
+            lastAlivePos = port.position();
+            lastAliveDim = port.dimension();
         }
 
         // 1) Detect transition alive -> dead and snapshot checkpoints from the life that ended.
         if (!alive && wasAliveLastTick) {
             pendingDeathCapture = true;
-            // Snapshot only the current segment (ignore ancient trails).
-            int start = Math.max(0, Math.min(checkpointSegmentStart, checkpoints.size()));
-            checkpointsSnapshot = new ArrayList<>(checkpoints.subList(start, checkpoints.size()));
-            checkpointsSnapshotDim = checkpointsDim;
+            // Snapshot only the current segment of this dimension's trail (ignore ancient trails).
+            checkpointsSnapshot = trail.snapshotSegment();
+            checkpointsSnapshotDim = port.dimension();
 
             // Ensure the last alive position is included even if checkpoint throttling skipped it.
             if (lastAlivePos != null && lastAliveDim != null && checkpointsSnapshotDim != null
                     && checkpointsSnapshotDim.equals(lastAliveDim)) {
                 if (checkpointsSnapshot.isEmpty()) {
-                    checkpointsSnapshot.add(lastAlivePos);
+                    checkpointsSnapshot.add(lastAlivePos, CHECKPOINT_MERGE_DIST);
                 } else {
-                    Vec3 last = checkpointsSnapshot.get(checkpointsSnapshot.size() - 1);
+                    Vec3 last = checkpointsSnapshot.last();
                     if (lastAlivePos.distanceTo(last) > (CHECKPOINT_MERGE_DIST * 0.5)) {
-                        checkpointsSnapshot.add(lastAlivePos);
+                        checkpointsSnapshot.add(lastAlivePos, CHECKPOINT_MERGE_DIST);
                     }
                 }
             }
         }
+        wasAliveLastTick = alive;
 
         // 2) Capture death route using vanilla lastDeathLocation.
         //    Uses the snapshot so points from the new life are never included.
-        tryCaptureDeathRoute(mc, player);
+        tryCaptureDeathRoute(port);
+    }
 
-        // 3) While alive: place checkpoints ONLY if we are NOT returning to a death point.
-        //    Important: right after respawn the route may not be captured yet (pendingDeathCapture),
-        //    but we still must NOT record new checkpoints because it confuses the death route.
-        if (alive) {
-            // Record support points silently (even while returning).
-            // Route capture uses a snapshot taken at death, so recording now does not pollute the route.
-            maybeAddCheckpoint(level, player);
-        }
+    private static void tickRecord(TickPort port) {
+        // 3) While alive: record support points silently (even while returning).
+        //    Route capture uses a snapshot taken at death, so recording now does not pollute the route.
+        if (port.isAlive()) maybeAddCheckpoint(port);
+    }
+
+    private static void tickRender(TickPort port) {
+        PARTICLES.beginTick(port.gameTime(), port.eyePosition(), port.viewDirection(), port.fps(), debugRenderAllPoints);
 
         // 4) Draw breadcrumbs (short trail ahead)
-        renderBreadcrumbs(level, player);
+        shownGraph = null;
+        renderBreadcrumbs(port);
+        LINE_LAYER.update(shownGraph, shownStart, CRUMB_Y_OFF);
 
         // 5) Debug: render all stored checkpoints
         if (debugRenderAllPoints) {
-            renderAllCheckpoints(level, player);
+            renderAllCheckpoints(port);
         }
-
-        wasAliveLastTick = alive;
     }
 
-    private static void maybeAddCheckpoint(Level level, LocalPlayer player) {
-        // If dimension changed, start a new path for this dimension
-        if (checkpointsDim != null && !checkpointsDim.equals(level.dimension())) {
-            checkpoints.clear();
-            lastCheckpointPos = null;
-            lastCheckpointTick = 0;
-            checkpointSegmentStart = 0;
+    private static void maybeAddCheckpoint(TickPort port) {
+        Vec3 pos = port.position();
+        long tick = port.gameTime();
 
-            // New segment for the DB as well.
-            checkpointSegmentId++;
-            lastDbPointId = null;
+        // Back in a dimension we have a trail for: continue it only if we arrived where it ended.
+        if (trailResumeCheck) {
+            trailResumeCheck = false;
+            int last = trail.size() - 1;
+            if (last >= 0 && horizontalDistance(pos, trail.x(last), trail.z(last)) > TRAIL_RESUME_DIST) {
+                trail.restartSegment();
+                saveDirty = true;
+            }
         }
 
-        checkpointsDim = level.dimension();
-
-        Vec3 pos = player.position();
-        long tick = level.getGameTime();
-
-        if (lastCheckpointPos == null) {
-            checkpoints.add(pos);
-                saveDirty = true;
-            lastCheckpointPos = pos;
-            lastCheckpointTick = tick;
+        if (trail.lastPos() == null) {
+            trail.append(pos);
+            saveDirty = true;
+            trail.markCheckpoint(pos, tick);
+            SAMPLER.committed(pos);
+            enforceTrailBudget();
 
             // Record to the DB with merge + cycle-safe linking.
             lastDbPointId = POINT_DB.addOrMerge(
-                    keyId(level.dimension()),
+                    dbDim(port.dimension()),
                     pos,
                     lastDbPointId,
                     checkpointSegmentId,
                     tick
             );
+            dirtyStateDims.add(stateDimId);
             return;
         }
 
-        double distXZ = horizontalDistance(pos, lastCheckpointPos);
-        long dt = tick - lastCheckpointTick;
-
-        if (distXZ >= CHECKPOINT_MIN_DIST || dt >= CHECKPOINT_MAX_INTERVAL_TICKS) {
+        CheckpointSampler.Reason reason = SAMPLER.sample(trail.lastPos(), trail.lastTick(), pos, tick,
+                port.isRiding(), port.isGliding());
+        if (reason != CheckpointSampler.Reason.NONE) {
+            double distXZ = horizontalDistance(pos, trail.lastPos());
             // Collapse points:
             //  1) If we're still very close to the last checkpoint, just replace it.
             //  2) If we returned close to an earlier checkpoint (self-cross / small loop),
             //     snap to it and drop the tail. This prevents "spaghetti" trails and
             //     makes routes stable regardless of checkpoint order/jitter.
+            // A climb is kept as its own point (the horizontal checks would fold a ladder into one).
             boolean collapsed = false;
+            boolean climb = (reason == CheckpointSampler.Reason.CLIMB);
 
-            if (!checkpoints.isEmpty() && distXZ <= CHECKPOINT_MERGE_DIST) {
-                checkpoints.set(checkpoints.size() - 1, pos);
+            if (!climb && !trail.isEmpty() && distXZ <= CHECKPOINT_MERGE_DIST) {
+                trail.replaceLast(pos);
                 collapsed = true;
                 saveDirty = true;
-            } else if (checkpoints.size() >= 3) {
-                // Look back a bit for a nearby point to merge into.
-                final int LOOKBACK = 80;
-                int startIdx = Math.max(0, checkpoints.size() - 1 - LOOKBACK);
-                int foundIdx = -1;
-                for (int i = checkpoints.size() - 2; i >= startIdx; i--) {
-                    if (horizontalDistance(pos, checkpoints.get(i)) <= CHECKPOINT_MERGE_DIST) {
-                        foundIdx = i;
-                        break;
-                    }
-                }
+            } else if (!climb && trail.size() >= 3) {
+                // Latest earlier point of this segment to merge into (grid lookup, so loops of any length
+                // collapse). Earlier lives are left alone: their points are not part of this route.
+                int foundIdx = trail.findLatestNear(pos, CHECKPOINT_MERGE_DIST);
                 if (foundIdx >= 0) {
-                    checkpoints.set(foundIdx, pos);
-                    // Remove everything after foundIdx (collapse the loop).
-                    while (checkpoints.size() > foundIdx + 1) {
-                        checkpoints.remove(checkpoints.size() - 1);
-                    }
+                    // Replace foundIdx and remove everything after it (collapse the loop).
+                    trail.truncate(foundIdx);
+                    trail.append(pos);
                     collapsed = true;
                     saveDirty = true;
                 }
             }
 
             if (!collapsed) {
-                checkpoints.add(pos);
+                // The pending last point adds nothing to the line towards pos: move it instead of appending.
+                if (SIMPLIFIER.offer(trail, pos)) trail.replaceLast(pos);
+                else trail.append(pos);
                 saveDirty = true;
             }
 
             // Record to the DB with merge + cycle-safe linking.
             lastDbPointId = POINT_DB.addOrMerge(
-                    keyId(level.dimension()),
+                    dbDim(port.dimension()),
                     pos,
                     lastDbPointId,
                     checkpointSegmentId,
                     tick
             );
+            dirtyStateDims.add(stateDimId);
 
-            // Rolling buffer: prevent unbounded growth.
-            if (checkpoints.size() > CHECKPOINT_MAX_COUNT) {
-                int overflow = checkpoints.size() - CHECKPOINT_MAX_COUNT;
-                for (int i = 0; i < overflow; i++) {
-                    checkpoints.remove(0);
-                }
-                // Keep segment start consistent with removed prefix.
-                checkpointSegmentStart = Math.max(0, checkpointSegmentStart - overflow);
+            // Rolling buffer: prevent unbounded growth (the segment start moves with the dropped prefix).
+            if (trail.size() > CHECKPOINT_MAX_COUNT) {
+                trail.dropFront(trail.size() - CHECKPOINT_MAX_COUNT);
                 saveDirty = true;
             }
+            enforceTrailBudget();
+
+            trail.markCheckpoint(pos, tick);
+            SAMPLER.committed(pos);
+        }
+    }
+
+    // --- Per-dimension trails ---
 
-            lastCheckpointPos = pos;
-            lastCheckpointTick = tick;
+    private static CheckpointTrail trailFor(String dimId) {
+        CheckpointTrail t = trails.get(dimId);
+        if (t == null) {
+            t = new CheckpointTrail(dimId, CHECKPOINT_MAX_COUNT, TRAIL_LOG);
+            trails.put(dimId, t);
         }
+        return t;
     }
 
-    private static void tryCaptureDeathRoute(Minecraft mc, LocalPlayer player) {
+    /**
+     * Keeps all trails together within {@link #CHECKPOINT_MAX_TOTAL} points and {@link #TRAIL_MAX_DIMENSIONS}
+     * dimensions by trimming (and eventually dropping) the least recently used other trails.
+     */
+    private static void enforceTrailBudget() {
+        int total = totalCheckpoints();
+        while ((total > CHECKPOINT_MAX_TOTAL || trails.size() > TRAIL_MAX_DIMENSIONS) && trails.size() > 1) {
+            CheckpointTrail victim = null;
+            for (CheckpointTrail t : trails.values()) {
+                if (t == trail) continue;
+                if (victim == null || t.lastUsed < victim.lastUsed) victim = t;
+            }
+            if (victim == null) return;
+
+            int drop = total - CHECKPOINT_MAX_TOTAL;
+            if (drop > 0 && drop < victim.size() && trails.size() <= TRAIL_MAX_DIMENSIONS) {
+                victim.dropFront(drop);
+                total -= drop;
+            } else {
+                total -= victim.size();
+                victim.clear();
+                trails.remove(victim.dimId);
+            }
+            saveDirty = true;
+        }
+    }
+
+    private static int totalCheckpoints() {
+        int total = 0;
+        for (CheckpointTrail t : trails.values()) total += t.size();
+        return total;
+    }
+
+    private static void tryCaptureDeathRoute(TickPort port) {
         if (!pendingDeathCapture) return;
 
         // IMPORTANT:
         // On the client, player.getLastDeathLocation() may still point to the *previous* death
         // while the player is on the death screen. It reliably updates after respawn.
         // Capturing too early produces a death marker in the wrong place.
-        if (!player.isAlive()) return;
+        if (!port.isAlive()) return;
 
-        Optional<GlobalPos> opt = player.getLastDeathLocation();
-        if (opt.isEmpty()) return;
-
-        GlobalPos gp = opt.get();
+        GlobalPos gp = port.lastDeathLocation();
+        if (gp == null) return;
 
         // Same death already captured very recently: ignore to avoid re-capture loops.
         // But allow capturing again if you die again at the same spot later.
@@ -358,7 +657,7 @@ ClientTickEvents.END_CLIENT_TICK.register(DeathBreadcrumbsClient::onClientTick);
                 && lastCapturedDeath.dimension().equals(gp.dimension());
 
         if (sameDeath) {
-            long tickNow = (mc.level != null) ? mc.level.getGameTime() : -1;
+            long tickNow = port.gameTime();
             if (tickNow >= 0 && lastCapturedDeathTick >= 0 && (tickNow - lastCapturedDeathTick) < 40) { // ~2s
                 pendingDeathCapture = false;
                 checkpointsSnapshot = null;
@@ -371,12 +670,12 @@ ClientTickEvents.END_CLIENT_TICK.register(DeathBreadcrumbsClient::onClientTick);
         BlockPos dp = gp.pos();
         Vec3 deathPos = new Vec3(dp.getX() + 0.5, dp.getY() + 0.1, dp.getZ() + 0.5);
 
-        int snapSize = (checkpointsSnapshot == null) ? 0 : checkpointsSnapshot.size();
-        ArrayList<Vec3> rp = new ArrayList<>((checkpointsSnapshotDim != null && checkpointsSnapshotDim.equals(gp.dimension())) ? (snapSize + 1) : 2);
-
-        // Only use checkpoints from the same dimension as the death, and only from the snapshot.
-        if (checkpointsSnapshotDim != null && checkpointsSnapshotDim.equals(gp.dimension()) && checkpointsSnapshot != null) {
-            rp.addAll(checkpointsSnapshot);
+        // Only use checkpoints from the same dimension as the death: normally the snapshot taken at death,
+        // otherwise (dimension changed around the death) the current segment of that dimension's trail.
+        TrailGraph.Snapshot snap = checkpointsSnapshot;
+        if (snap == null || checkpointsSnapshotDim == null || !checkpointsSnapshotDim.equals(gp.dimension())) {
+            CheckpointTrail deathTrail = trails.get(keyId(gp.dimension()));
+            snap = (deathTrail != null) ? deathTrail.snapshotSegment() : TrailGraph.emptySnapshot();
         }
 
         // Ensure direction is RESPAWN -> ... -> DEATH.
@@ -384,59 +683,59 @@ ClientTickEvents.END_CLIENT_TICK.register(DeathBreadcrumbsClient::onClientTick);
         // The checkpoints list is already time-ordered (oldest -> newest). When we keep a buffer tail
         // across deaths, heuristic reversing can flip the route incorrectly and break multi-death routes.
 
-        rp.add(deathPos);
+        // Collapse close-by support points to avoid spam (the death point replaces a too-close last point).
+        snap.add(deathPos, CHECKPOINT_MERGE_DIST);
+        List<Vec3> rp = snap.points();
 
-        // Collapse close-by support points to avoid spam.
-        rp = simplifyClosePoints(rp, CHECKPOINT_MERGE_DIST);
-
-        // Build a graph from the captured "support points".
-        GraphRoute gr = GraphRoute.build(rp);
-
-        // Queue semantics: first death first.
-        DeathRoute dr = new DeathRoute(rp, gp.dimension(), gr, gp);
+        // Queue semantics: first death first, until the planner has ordered the deaths of this dimension.
+        // The route is queued right away (the goal marker shows immediately); the graph is published once the
+        // builder finishes.
+        DeathRoute dr = new DeathRoute(nextRouteId++, rp, gp.dimension(), dp);
         deathQueue.addLast(dr);
         if (activeRoute == null) activeRoute = dr;
+        markQueueChanged(dr.dimId);
+        planDirty = true;
+        navDirty = true;
+
+        // Neighbor lists were maintained while recording; only the shortest-path pass runs here.
+        // The snapshot is detached, so the builder never touches live recording state.
+        buildRouteAsync(dr, snap::toRoute);
 
         lastCapturedDeath = gp;
-        lastCapturedDeathTick = (mc.level != null) ? mc.level.getGameTime() : lastCapturedDeathTick;
+        lastCapturedDeathTick = port.gameTime();
 
         pendingDeathCapture = false;
         checkpointsSnapshot = null;
         checkpointsSnapshotDim = null;
 
-        // Start a new recording segment for the new life, but keep a short tail so
+        // Start a new recording segment for the new life (in every dimension), but keep a short tail so
         // a quick re-death still has enough support points.
-        checkpointSegmentStart = Math.max(0, checkpoints.size() - CHECKPOINT_TAIL_ON_RESET);
-        checkpointSegmentId++;
-        lastDbPointId = null;
+        resetTrailSegments();
+        startDbSegment();
         // Reset throttling so points after respawn are not artificially sparse.
-        lastCheckpointPos = null;
-        lastCheckpointTick = 0;
+        if (trail != null) trail.resetThrottle();
 
         // IMPORTANT: do NOT clear checkpoints here.
         // Reason: if the player reaches the death point, picks up loot, and dies again quickly,
         // we still need historical support points to build a new route.
 
         // Inform
-        player.displayClientMessage(
-                Component.literal("[Death Breadcrumbs] Route captured (#" + deathQueue.size() + "): "
-                        + (rp.size() - 1) + " checkpoints, death at "
-                        + dp.getX() + " " + dp.getY() + " " + dp.getZ()),
-                false
-        );
+        port.message("[Death Breadcrumbs] Route captured (#" + deathQueue.size() + "): "
+                + (rp.size() - 1) + " checkpoints, death at "
+                + dp.getX() + " " + dp.getY() + " " + dp.getZ());
     }
 
-    private static void renderBreadcrumbs(Level level, LocalPlayer player) {
+    private static void renderBreadcrumbs(TickPort port) {
         if (activeRoute == null) return;
         if (activeRoute.points == null || activeRoute.points.isEmpty() || activeRoute.dim == null) return;
-        if (!level.dimension().equals(activeRoute.dim)) return;
+        if (!port.dimension().equals(activeRoute.dim)) return;
 
-        Vec3 me = player.position();
+        Vec3 me = port.position();
 
         Vec3 deathPos = activeRoute.points.get(activeRoute.points.size() - 1);
 
         // Always show a distinct marker at the final target.
-        spawnGoalMarker(level, deathPos);
+        spawnGoalMarker(port, deathPos);
 
         // If we reached the death point, clear the route.
         // Use horizontal distance (X/Z) so different Y (stairs, cliffs, etc.) doesn't prevent clearing.
@@ -448,16 +747,38 @@ ClientTickEvents.END_CLIENT_TICK.register(DeathBreadcrumbsClient::onClientTick);
         // If we are already close to the death point, hide breadcrumbs (but keep the goal marker).
         if (distXZ(me, deathPos) <= DEATH_HIDE_RADIUS) return;
 
-        // Preferred: graph-based shortest path over "support points".
-        if (activeRoute.graph != null) {
-            BreadcrumbPath path = activeRoute.graph.pathFrom(me, CRUMBS_COUNT);
+        // Route still being built in the background (and not part of a tour yet): only the goal marker for now.
+        GraphRoute leg = planLeg(activeRoute);
+        GraphRoute nav = activeRoute.navTree;
+        if (leg == null && nav == null && !activeRoute.ready) return;
+
+        // Preferred: graph-based shortest path over "support points": the tour leg when several deaths are planned,
+        // else the tree over the shared navigation graph (it contains the route's own points), else the route graph.
+        GraphRoute graph = (leg != null) ? leg : (nav != null) ? nav : activeRoute.graph;
+        if (graph != null) {
+            BreadcrumbPath path;
+            if (PERF.enabled()) {
+                long t0 = System.nanoTime();
+                long a0 = PERF.allocatedBytes();
+                path = activeRoute.cursor.pathFrom(graph, me, CRUMBS_COUNT);
+                PERF.record(PERF_PATH, System.nanoTime() - t0, PERF.allocatedBytes() - a0);
+            } else {
+                path = activeRoute.cursor.pathFrom(graph, me, CRUMBS_COUNT);
+            }
+            if (path != null && LINE_LAYER.enabled()) {
+                // The line layer draws the route from the same start node (and only rebuilds when it changes).
+                shownGraph = graph;
+                shownStart = path.startNodeIndex;
+                activeRoute.routeIndex = path.startNodeIndex;
+                return;
+            }
             if (path != null) {
                 // Draw particles only at support points (graph nodes).
                 for (int i = 0; i < path.points.size(); i++) {
                     Vec3 p = path.points.get(i);
                     // Skip points too close to the player to avoid particles clipping into the camera.
                     if (me.distanceTo(p) < CRUMB_MIN_RENDER_DIST) continue;
-                    spawnCrumb(level, p);
+                    spawnCrumb(port, p);
                 }
                 // Keep routeIndex mostly meaningful for /status.
                 activeRoute.routeIndex = path.startNodeIndex;
@@ -477,7 +798,7 @@ ClientTickEvents.END_CLIENT_TICK.register(DeathBreadcrumbsClient::onClientTick);
         int end = Math.min(activeRoute.points.size(), start + CRUMBS_COUNT);
         for (int i = start; i < end; i++) {
             Vec3 p = activeRoute.points.get(i);
-            spawnCrumb(level, p);
+            spawnCrumb(port, p);
         }
     }
 
@@ -485,160 +806,28 @@ ClientTickEvents.END_CLIENT_TICK.register(DeathBreadcrumbsClient::onClientTick);
      * Spawns "Bad Omen"-like particles around the death point so the player can always
      * see the final goal, even if the breadcrumb trail is temporarily hidden.
      */
-    private static void spawnGoalMarker(Level level, Vec3 deathPos) {
+    private static void spawnGoalMarker(TickPort port, Vec3 deathPos) {
         // Small vertical column + ring swirl.
-        for (int i = 0; i < GOAL_PARTICLES_PER_TICK; i++) {
+        int count = PARTICLES.goalParticles(deathPos, GOAL_PARTICLES_PER_TICK);
+        for (int i = 0; i < count; i++) {
             double a = (Math.random() * Math.PI * 2.0);
             double r = GOAL_RING_RADIUS * (0.35 + (Math.random() * 0.65));
             double x = deathPos.x + Math.cos(a) * r;
             double z = deathPos.z + Math.sin(a) * r;
             double y = deathPos.y + 0.15 + (Math.random() * 1.6);
 
-            // For ENTITY_EFFECT, the (dx,dy,dz) parameters act as RGB on the client.
-            spawnEffectParticle(level, x, y, z, GOAL_R, GOAL_G, GOAL_B);
-        }
-    }
-
-    private static void spawnEffectParticle(Level level, double x, double y, double z, double r, double g, double b) {
-        net.minecraft.core.particles.ParticleOptions opts = createEntityEffectOptions(r, g, b);
-
-        if (level instanceof ClientLevel cl && opts != null) {
-            // Prefer: addParticle(ParticleOptions, force=true, x,y,z, dx,dy,dz)
-            try {
-                java.lang.reflect.Method m = cl.getClass().getMethod(
-                        "addParticle",
-                        net.minecraft.core.particles.ParticleOptions.class,
-                        boolean.class,
-                        double.class, double.class, double.class,
-                        double.class, double.class, double.class
-                );
-                m.invoke(cl, opts, true, x, y, z, 0.0, 0.0, 0.0);
-                return;
-            } catch (Throwable ignored) {
-            }
-
-            // Fallback: addAlwaysVisibleParticle(ParticleOptions, x,y,z, dx,dy,dz)
-            try {
-                java.lang.reflect.Method m = cl.getClass().getMethod(
-                        "addAlwaysVisibleParticle",
-                        net.minecraft.core.particles.ParticleOptions.class,
-                        double.class, double.class, double.class,
-                        double.class, double.class, double.class
-                );
-                m.invoke(cl, opts, x, y, z, 0.0, 0.0, 0.0);
-                return;
-            } catch (Throwable ignored) {
-            }
-
-            // Fallback: regular addParticle(ParticleOptions, x,y,z, dx,dy,dz)
-            try {
-                cl.addParticle(opts, x, y, z, 0.0, 0.0, 0.0);
-                return;
-            } catch (Throwable ignored) {
-            }
-        }
-
-        // Fallback if ENTITY_EFFECT is not available / mappings differ.
-        level.addParticle(ParticleTypes.END_ROD, x, y, z, 0, 0, 0);
-    }
-
-    /**
-     * Build ParticleOptions for ParticleTypes.ENTITY_EFFECT.
-     * Different MC versions expose this either via ColorParticleOption.create(...) or a constructor.
-     * We use reflection so the project compiles across mappings.
-     */
-    private static net.minecraft.core.particles.ParticleOptions createEntityEffectOptions(double r, double g, double b) {
-        try {
-            Class<?> c = Class.forName("net.minecraft.core.particles.ColorParticleOption");
-
-            // Try static create(ParticleType, float,float,float)
-            try {
-                java.lang.reflect.Method m = c.getMethod(
-                        "create",
-                        net.minecraft.core.particles.ParticleType.class,
-                        float.class, float.class, float.class
-                );
-                Object o = m.invoke(null, ParticleTypes.ENTITY_EFFECT, (float) r, (float) g, (float) b);
-                return (net.minecraft.core.particles.ParticleOptions) o;
-            } catch (Throwable ignored) {
-            }
-
-            // Try static create(ParticleType, float,float,float,float)
-            try {
-                java.lang.reflect.Method m = c.getMethod(
-                        "create",
-                        net.minecraft.core.particles.ParticleType.class,
-                        float.class, float.class, float.class, float.class
-                );
-                Object o = m.invoke(null, ParticleTypes.ENTITY_EFFECT, (float) r, (float) g, (float) b, 1.0f);
-                return (net.minecraft.core.particles.ParticleOptions) o;
-            } catch (Throwable ignored) {
-            }
-
-            // Try constructor(float,float,float) or (float,float,float,float)
-            for (java.lang.reflect.Constructor<?> ctor : c.getConstructors()) {
-                Class<?>[] p = ctor.getParameterTypes();
-                if (p.length == 3 && p[0] == float.class && p[1] == float.class && p[2] == float.class) {
-                    Object o = ctor.newInstance((float) r, (float) g, (float) b);
-                    return (net.minecraft.core.particles.ParticleOptions) o;
-                }
-                if (p.length == 4 && p[0] == float.class && p[1] == float.class && p[2] == float.class && p[3] == float.class) {
-                    Object o = ctor.newInstance((float) r, (float) g, (float) b, 1.0f);
-                    return (net.minecraft.core.particles.ParticleOptions) o;
-                }
-            }
-        } catch (Throwable ignored) {
+            port.spawnGoalParticle(x, y, z);
         }
-        return null;
     }
 
-    /**
-     * Particles like END_ROD are distance-culled quite aggressively and may "pop in" only when you get close.
-     * Some mappings/versions expose this as ClientLevel#addAlwaysVisibleParticle, others as
-     * ClientLevel#addParticle(ParticleOptions, boolean force, ...). We try the "force" overload first.
-     */
-    private static void spawnCrumb(Level level, Vec3 p) {
-        double x = p.x;
+    private static void spawnCrumb(TickPort port, Vec3 p) {
         double y = p.y + CRUMB_Y_OFF;
-        double z = p.z;
-        if (level instanceof ClientLevel cl) {
-            // Prefer: addParticle(type, force=true, x,y,z, dx,dy,dz)
-            try {
-                java.lang.reflect.Method m = cl.getClass().getMethod(
-                        "addParticle",
-                        net.minecraft.core.particles.ParticleOptions.class,
-                        boolean.class,
-                        double.class, double.class, double.class,
-                        double.class, double.class, double.class
-                );
-                m.invoke(cl, ParticleTypes.END_ROD, true, x, y, z, 0.0, 0.0, 0.0);
-                return;
-            } catch (Throwable ignored) {
-            }
-
-            // Fallback: addAlwaysVisibleParticle(type, x,y,z, dx,dy,dz)
-            try {
-                java.lang.reflect.Method m = cl.getClass().getMethod(
-                        "addAlwaysVisibleParticle",
-                        net.minecraft.core.particles.ParticleOptions.class,
-                        double.class, double.class, double.class,
-                        double.class, double.class, double.class
-                );
-                m.invoke(cl, ParticleTypes.END_ROD, x, y, z, 0.0, 0.0, 0.0);
-                return;
-            } catch (Throwable ignored) {
-            }
-        }
-
-        // Server/world fallback.
-        level.addParticle(ParticleTypes.END_ROD, x, y, z, 0, 0, 0);
+        if (PARTICLES.crumb(p.x, y, p.z)) port.spawnCrumb(p.x, y, p.z);
     }
 
 
-    private static void renderAllCheckpoints(Level level, LocalPlayer player) {
-        if (checkpointsDim == null) return;
-        if (!level.dimension().equals(checkpointsDim)) return;
-        int n = checkpoints.size();
+    private static void renderAllCheckpoints(TickPort port) {
+        int n = trail.size();
         if (n <= 0) return;
 
         // Avoid spawning an extreme amount of particles each tick.
@@ -646,77 +835,178 @@ ClientTickEvents.END_CLIENT_TICK.register(DeathBreadcrumbsClient::onClientTick);
         int stride = Math.max(1, n / maxPerTick);
 
         for (int i = 0; i < n; i += stride) {
-            Vec3 p = checkpoints.get(i);
-            spawnCrumb(level, p);
+            Vec3 p = trail.get(i);
+            spawnCrumb(port, p);
         }
     }
 
     // Intentionally no alive checkpoint rendering.
 
 
-    private static boolean isRouteActive() {
-        return activeRoute != null;
-    }
-
-    private static boolean isReturningToDeath() {
-        return isRouteActive() || pendingDeathCapture;
-    }
-
     /**
      * Called when the player reaches the current death point.
-     * If there are more outstanding deaths, switch to the next one.
+     * If there are more outstanding deaths, switch to the next one (the next stop of the tour, if planned).
      */
     private static void advanceToNextDeathOrClear() {
-        if (!deathQueue.isEmpty()) deathQueue.removeFirst();
-        activeRoute = deathQueue.peekFirst();
+        if (activeRoute != null && deathQueue.remove(activeRoute)) markQueueChanged(activeRoute.dimId);
+        selectActiveRoute();
+        // Only the first leg of a plan is solved: re-plan the rest (cheap, it starts from the current tour).
+        planDirty = true;
         if (activeRoute == null) {
             // No more targets.
             // Soft-reset the checkpoint segment so very old trails don't interfere with the next death route.
-            checkpointSegmentStart = Math.max(0, checkpoints.size() - CHECKPOINT_TAIL_ON_RESET);
-            checkpointSegmentId++;
-            lastDbPointId = null;
+            resetTrailSegments();
+            startDbSegment();
             saveDirty = true;
         }
     }
 
     private static void clearRoute() {
+        for (DeathRoute dr : deathQueue) markQueueChanged(dr.dimId);
         deathQueue.clear();
         activeRoute = null;
+        invalidatePlan();
         // We keep lastCapturedDeath so we don't re-capture the same death over and over.
 
         // Same cleanup as when finishing the last target.
-        checkpointSegmentStart = Math.max(0, checkpoints.size() - CHECKPOINT_TAIL_ON_RESET);
-        checkpointSegmentId++;
-        lastDbPointId = null;
+        resetTrailSegments();
+        startDbSegment();
         saveDirty = true;
     }
 
-    private static ArrayList<Vec3> simplifyClosePoints(List<Vec3> pts, double mergeDist) {
-        if (pts == null || pts.isEmpty()) return new ArrayList<>();
-        double md2 = mergeDist * mergeDist;
-        ArrayList<Vec3> out = new ArrayList<>(pts.size());
-        Vec3 last = null;
-        for (int i = 0; i < pts.size(); i++) {
-            Vec3 p = pts.get(i);
-            if (last == null) {
-                out.add(p);
-                last = p;
-                continue;
+    /** First queued death in tour order if a plan covers one, otherwise the head of the queue. */
+    private static void selectActiveRoute() {
+        RoutePlanner.Plan plan = appliedPlan;
+        if (plan != null) {
+            for (int i = 0; i < plan.size(); i++) {
+                long id = plan.idAt(i);
+                for (DeathRoute dr : deathQueue) {
+                    if (dr.id == id) {
+                        activeRoute = dr;
+                        return;
+                    }
+                }
             }
-            double dx = p.x - last.x;
-            double dy = p.y - last.y;
-            double dz = p.z - last.z;
-            double d2 = dx * dx + dy * dy + dz * dz;
-            if (d2 <= md2) {
-                // Replace the previous point with the new one (keeps path up-to-date).
-                out.set(out.size() - 1, p);
-                last = p;
-            } else {
-                out.add(p);
-                last = p;
+        }
+        activeRoute = deathQueue.peekFirst();
+    }
+
+    /** Tour leg towards {@code dr} if the current plan covers it, otherwise null. */
+    private static GraphRoute planLeg(DeathRoute dr) {
+        RoutePlanner.Plan plan = appliedPlan;
+        return (plan != null) ? plan.legFor(dr.id) : null;
+    }
+
+    private static RoutePlanner.Plan currentPlan() {
+        RoutePlanner.Plan plan = routePlan;
+        return (plan != null && plan.generation >= planMinGeneration) ? plan : null;
+    }
+
+    /** Drops the current plan and any plan still being computed. */
+    private static void invalidatePlan() {
+        planMinGeneration = planGeneration + 1;
+        routePlan = null;
+        appliedPlan = null;
+    }
+
+    /**
+     * Plans a tour over the loaded deaths of the player's dimension on the builder thread. Until it is done the
+     * previous plan (or queue order) stays in effect; with fewer than two such deaths there is nothing to plan.
+     */
+    private static void submitPlan(TickPort port) {
+        planDirty = false;
+        ResourceKey<Level> dim = port.dimension();
+        ArrayList<RoutePlanner.Target> targets = new ArrayList<>();
+        for (DeathRoute dr : deathQueue) {
+            if (dr.isLoaded() && dim.equals(dr.dim)) targets.add(new RoutePlanner.Target(dr.id, dr.points));
+        }
+        if (targets.size() < 2) {
+            invalidatePlan();
+            selectActiveRoute();
+            return;
+        }
+
+        final long generation = ++planGeneration;
+        final long minGeneration = planMinGeneration;
+        final Vec3 start = port.position();
+        final String dimId = keyId(dim);
+        ROUTE_BUILDER.execute(() -> PERF.measure(PERF_PLAN, () -> {
+            try {
+                NavBase base = navBase;
+                GraphRoute nav = (base != null && base.dimId.equals(dimId)) ? base.graph : null;
+                // The latest finished plan of this dimension seeds the order (earlier jobs ran on this thread).
+                RoutePlanner.Plan previous = routePlan;
+                if (previous != null && previous.generation < minGeneration) previous = null;
+                RoutePlanner.Plan plan = RoutePlanner.plan(generation, targets, start, nav, previous);
+                if (plan != null) routePlan = plan;
+            } catch (Throwable ignored) {
+                // Keep following the queue order.
             }
+        }));
+    }
+
+    /**
+     * Exports the shared navigation graph of the player's dimension (cheap if POINT_DB did not change) and, on the
+     * builder thread, solves it once plus one tree per loaded death route of that dimension.
+     */
+    private static void submitNav(TickPort port) {
+        navDirty = false;
+        ResourceKey<Level> dim = port.dimension();
+        ArrayList<DeathRoute> routes = new ArrayList<>();
+        for (DeathRoute dr : deathQueue) {
+            if (dr.isLoaded() && dim.equals(dr.dim)) routes.add(dr);
         }
-        return out;
+        if (routes.isEmpty()) return;
+
+        final NavGraph export = POINT_DB.navGraph(keyId(dim));
+        ROUTE_BUILDER.execute(() -> PERF.measure(PERF_NAV, () -> {
+            try {
+                NavBase base = navBase;
+                if (base == null || base.version != export.version() || !base.dimId.equals(export.dimKey())) {
+                    GraphRoute graph = GraphRoute.fromNavGraph(export);
+                    if (graph == null) return;
+                    base = new NavBase(export.dimKey(), export.version(), graph);
+                    navBase = base;
+                }
+                for (DeathRoute dr : routes) {
+                    Vec3 death = dr.points.get(dr.points.size() - 1);
+                    int goal = base.graph.nodeNear(death, GraphRoute.CONNECT_DIST);
+                    dr.navTree = (goal >= 0) ? base.graph.towards(goal) : null;
+                }
+            } catch (Throwable ignored) {
+                // Routes keep following their own graphs.
+            }
+        }));
+    }
+
+    private static void resetTrailSegments() {
+        for (CheckpointTrail t : trails.values()) t.resetSegment(CHECKPOINT_TAIL_ON_RESET);
+    }
+
+    /** Starts a new POINT_DB linking segment (no links across it). */
+    private static void startDbSegment() {
+        checkpointSegmentId++;
+        lastDbPointId = null;
+        stateIndexDirty = true;
+    }
+
+    private static void markQueueChanged(String dimId) {
+        stateIndexDirty = true;
+        stateUrgent = true;
+        if (dimId != null) dirtyStateDims.add(dimId);
+    }
+
+    /** Solves the route graph on the builder thread and publishes it (null => linear fallback renderer). */
+    private static void buildRouteAsync(DeathRoute dr, Supplier<GraphRoute> builder) {
+        ROUTE_BUILDER.execute(() -> PERF.measure(PERF_BUILD, () -> {
+            GraphRoute gr = null;
+            try {
+                gr = builder.get();
+            } catch (Throwable ignored) {
+                // Fall back to the linear waypoint renderer.
+            }
+            dr.publish(gr);
+        }));
     }
 
     private static int findClosestIndex(List<Vec3> pts, Vec3 target) {
@@ -742,6 +1032,14 @@ ClientTickEvents.END_CLIENT_TICK.register(DeathBreadcrumbsClient::onClientTick);
         return Math.sqrt(dx * dx + dz * dz);
     }
 
+    private static int dbDim(ResourceKey<Level> dim) {
+        if (!dim.equals(dbDimKey)) {
+            dbDimIdx = POINT_DB.internDim(keyId(dim));
+            dbDimKey = dim;
+        }
+        return dbDimIdx;
+    }
+
     private static String keyId(Object key) {
         if (key == null) return null;
         try {
@@ -764,91 +1062,222 @@ ClientTickEvents.END_CLIENT_TICK.register(DeathBreadcrumbsClient::onClientTick);
     
 
     // --- Persistence helpers ---
-    private static Path getSavePath(Minecraft mc) {
-        String serverKey = "singleplayer";
-        try {
-            var sd = mc.getCurrentServer();
-            if (sd != null && sd.ip != null && !sd.ip.isBlank()) {
-                serverKey = sd.ip;
-            }
-        } catch (Throwable ignored) {
-        }
+    private static Path getSavePath(Path base) {
+        return base.resolveSibling(base.getFileName() + ".dbc");
+    }
 
-        // Sanitize for filesystem
-        serverKey = serverKey.replaceAll("[^a-zA-Z0-9._-]+", "_");
+    private static Path getLegacySavePath(Path base) {
+        return base.resolveSibling(base.getFileName() + ".json");
+    }
 
-        Path dir = FabricLoader.getInstance().getConfigDir().resolve(SAVE_DIR_NAME);
-        return dir.resolve(serverKey + ".json");
+    /**
+     * Appends the trail operations logged since the last save. Every so often (or if the file cannot be trusted)
+     * the whole file is rewritten from the current state instead, which keeps it compact.
+     *
+     * <p>Only the encoding runs here; the bytes are immutable and written by {@link #SAVE_WRITER} off-thread.
+     */
+    private static void saveToDisk(TickPort port) {
+        Path base = port.saveBase();
+        if (base == null) {
+            saveDirty = false;
+            return;
+        }
+        Path file = getSavePath(base);
+        if (!file.equals(trailLogFile)) TRAIL_LOG.invalidate();
+
+        for (CheckpointTrail t : trails.values()) t.logMetaIfDirty();
+        if (TRAIL_LOG.needsCompaction(totalCheckpoints())) {
+            SAVE_WRITER.submitReplace(file, TRAIL_LOG.encodeSnapshot(trails.values()));
+        } else {
+            byte[] bytes = TRAIL_LOG.drainAppend();
+            if (bytes.length > 0) SAVE_WRITER.submitAppend(file, bytes);
+        }
+        trailLogFile = file;
+        saveDirty = false;
     }
 
-    private static void saveToDisk(Minecraft mc) {
+    private static void loadFromDisk(TickPort port) {
+        Path base = port.saveBase();
+        if (base == null) return;
         try {
-            Path file = getSavePath(mc);
-            Files.createDirectories(file.getParent());
-
-            SaveData data = new SaveData();
-            data.dimension = (checkpointsDim == null) ? null : keyId(checkpointsDim);
-            data.checkpointSegmentStart = checkpointSegmentStart;
-            data.lastCheckpointTick = lastCheckpointTick;
-            data.lastCheckpointPos = (lastCheckpointPos == null) ? null : new double[]{lastCheckpointPos.x, lastCheckpointPos.y, lastCheckpointPos.z};
-            data.checkpoints = new double[checkpoints.size()][3];
-            for (int i = 0; i < checkpoints.size(); i++) {
-                Vec3 v = checkpoints.get(i);
-                data.checkpoints[i][0] = v.x;
-                data.checkpoints[i][1] = v.y;
-                data.checkpoints[i][2] = v.z;
+            Path file = getSavePath(base);
+            Path legacy = getLegacySavePath(base);
+            List<SaveData> data;
+            boolean migrate = false;
+            if (Files.exists(file)) {
+                data = TRAIL_LOG.decode(Files.readAllBytes(file));
+                trailLogFile = file;
+            } else if (Files.exists(legacy)) {
+                // Old pretty-printed JSON save (single dimension): load it once, then write the binary log.
+                String json = Files.readString(legacy, StandardCharsets.UTF_8);
+                SaveData single = GSON.fromJson(json, SaveData.class);
+                data = (single == null) ? null : List.of(single);
+                migrate = true;
+            } else {
+                return;
+            }
+            if (data == null) {
+                TRAIL_LOG.invalidate();
+                return;
             }
 
-            String json = GSON.toJson(data);
-            Files.writeString(file, json, StandardCharsets.UTF_8);
+            // Every dimension's trail is restored; the current one is picked by enterDimension().
+            trails.clear();
+            trail = null;
+            for (SaveData d : data) {
+                if (d.dimension == null) continue;
+                trailFor(d.dimension).restore(d);
+            }
+            enforceTrailBudget();
+
             saveDirty = false;
-        } catch (IOException e) {
-            // ignore: config dir may be read-only in some setups
+
+            if (migrate) {
+                TRAIL_LOG.invalidate();
+                saveToDisk(port);
+                // One-off: retire the JSON on the writer thread, once the binary file has been written.
+                SAVE_WRITER.submitAfter(file, () -> {
+                    if (Files.exists(file)) {
+                        Files.move(legacy, legacy.resolveSibling(legacy.getFileName() + ".bak"),
+                                StandardCopyOption.REPLACE_EXISTING);
+                    }
+                });
+            }
+        } catch (IOException | RuntimeException e) {
+            // Keep playing with an empty trail; the next save rewrites the file from scratch.
+            DeathBreadcrumbs.LOGGER.warn("[Death Breadcrumbs] Failed to load saved checkpoints", e);
+            TRAIL_LOG.invalidate();
         }
     }
 
-    private static void loadFromDisk(Minecraft mc, Level level) {
-        try {
-            Path file = getSavePath(mc);
-            if (!Files.exists(file)) return;
 
-            String json = Files.readString(file, StandardCharsets.UTF_8);
-            SaveData data = GSON.fromJson(json, SaveData.class);
-            if (data == null) return;
+    private static Path stateFile(String dimId) {
+        return stateDir.resolve(dimId.replaceAll("[^a-zA-Z0-9._-]+", "_") + ".dbs");
+    }
 
-            // Only restore if the saved dimension matches the current one.
-            String curDim = keyId(level.dimension());
-            if (data.dimension == null || !data.dimension.equals(curDim)) {
-                // Don't load foreign-dimension data into current list.
-                return;
+    /** Reads the state index: counters and the death queue as stubs (their dimensions load lazily). */
+    private static void loadStateIndex(TickPort port) {
+        stateDir = port.saveBase();
+        loadedStateDims.clear();
+        dirtyStateDims.clear();
+        stateDimKey = null;
+        if (stateDir == null) return;
+
+        Path file = stateDir.resolve(STATE_INDEX_FILE);
+        if (!Files.exists(file)) return;
+        try {
+            StateCodec.Index index = StateCodec.decodeIndex(Files.readAllBytes(file));
+            // New session => new segment, never continuing one from the previous run.
+            checkpointSegmentId = Math.max(checkpointSegmentId, index.segmentId + 1);
+            POINT_DB.reserveIdsBelow(index.nextPointId);
+            nextRouteId = Math.max(nextRouteId, index.nextRouteId);
+            for (StateCodec.QueuedRoute q : index.queue) {
+                deathQueue.addLast(new DeathRoute(q.id, q.dim, new BlockPos(q.x, q.y, q.z)));
             }
+            selectActiveRoute();
+        } catch (IOException | RuntimeException e) {
+            DeathBreadcrumbs.LOGGER.warn("[Death Breadcrumbs] Failed to load saved state index", e);
+        }
+    }
 
-            checkpoints.clear();
-            if (data.checkpoints != null) {
-                for (double[] a : data.checkpoints) {
-                    if (a == null || a.length < 3) continue;
-                    checkpoints.add(new Vec3(a[0], a[1], a[2]));
+    private static void enterDimension(TickPort port) {
+        ResourceKey<Level> key = port.dimension();
+        if (key.equals(stateDimKey)) return;
+        stateDimKey = key;
+        stateDimId = keyId(key);
+        // Tours are per dimension: follow the queue until the plan for this one is ready.
+        invalidatePlan();
+        planDirty = true;
+        navDirty = true;
+        if (stateDir != null && loadedStateDims.add(stateDimId)) loadDimensionState(stateDimId, key);
+        selectActiveRoute();
+
+        CheckpointTrail next = trailFor(stateDimId);
+        if (next != trail) {
+            trail = next;
+            trail.lastUsed = ++trailUseCounter;
+            trailResumeCheck = true;
+            // No DB links across dimensions.
+            startDbSegment();
+            enforceTrailBudget();
+        }
+    }
+
+    /** Reads one dimension's DB records and fills in the queued route stubs of that dimension. */
+    private static void loadDimensionState(String dimId, ResourceKey<Level> key) {
+        HashMap<Long, StateCodec.StoredRoute> stored = new HashMap<>();
+        Path file = stateFile(dimId);
+        if (Files.exists(file)) {
+            try {
+                for (StateCodec.StoredRoute r : StateCodec.decodeDimension(Files.readAllBytes(file), dimId, POINT_DB)) {
+                    stored.put(r.id, r);
                 }
+            } catch (IOException | RuntimeException e) {
+                DeathBreadcrumbs.LOGGER.warn("[Death Breadcrumbs] Failed to load saved state for " + dimId, e);
             }
-            checkpointsDim = level.dimension();
-            checkpointSegmentStart = Math.max(0, Math.min(data.checkpointSegmentStart, checkpoints.size()));
-            lastCheckpointTick = data.lastCheckpointTick;
-            if (data.lastCheckpointPos != null && data.lastCheckpointPos.length >= 3) {
-                lastCheckpointPos = new Vec3(data.lastCheckpointPos[0], data.lastCheckpointPos[1], data.lastCheckpointPos[2]);
+        }
+
+        Iterator<DeathRoute> it = deathQueue.iterator();
+        while (it.hasNext()) {
+            DeathRoute dr = it.next();
+            if (dr.isLoaded() || !dimId.equals(dr.dimId)) continue;
+            StateCodec.StoredRoute r = stored.get(dr.id);
+            if (r == null || r.points.isEmpty()) {
+                // Route data never made it to disk: drop the stub rather than block the queue.
+                it.remove();
+                markQueueChanged(dimId);
+                continue;
+            }
+            dr.hydrate(r.points, key);
+            if (r.graph != null) {
+                dr.publish(r.graph);
             } else {
-                lastCheckpointPos = checkpoints.isEmpty() ? null : checkpoints.get(checkpoints.size() - 1);
+                final List<Vec3> pts = r.points;
+                buildRouteAsync(dr, () -> GraphRoute.build(pts));
             }
+        }
+    }
 
-            // Keep within max buffer.
-            if (checkpoints.size() > CHECKPOINT_MAX_COUNT) {
-                int overflow = checkpoints.size() - CHECKPOINT_MAX_COUNT;
-                checkpoints.subList(0, overflow).clear();
-                checkpointSegmentStart = Math.max(0, checkpointSegmentStart - overflow);
+    /**
+     * Writes the state index and every dirty, loaded dimension. Encoding happens here (the DB and queue are only
+     * touched on the client thread); the writes go through {@link #SAVE_WRITER}.
+     */
+    private static void saveState() {
+        if (stateDir == null) return;
+
+        // Eviction may have dropped records of any loaded dimension.
+        if (POINT_DB.evictions() != lastSavedEvictions) {
+            lastSavedEvictions = POINT_DB.evictions();
+            dirtyStateDims.addAll(loadedStateDims);
+        }
+
+        try {
+            for (String dimId : dirtyStateDims) {
+                if (!loadedStateDims.contains(dimId)) continue; // not read yet: keep the file as it is
+                ArrayList<StateCodec.StoredRoute> routes = new ArrayList<>();
+                for (DeathRoute dr : deathQueue) {
+                    if (!dr.isLoaded() || !dimId.equals(dr.dimId)) continue;
+                    routes.add(new StateCodec.StoredRoute(dr.id, dr.points, dr.ready ? dr.graph : null));
+                }
+                SAVE_WRITER.submitReplace(stateFile(dimId), StateCodec.encodeDimension(dimId, POINT_DB, routes));
             }
 
-            saveDirty = false;
-        } catch (Throwable ignored) {
+            StateCodec.Index index = new StateCodec.Index();
+            index.segmentId = checkpointSegmentId;
+            index.nextPointId = POINT_DB.nextId();
+            index.nextRouteId = nextRouteId;
+            for (DeathRoute dr : deathQueue) {
+                BlockPos b = dr.deathBlock;
+                index.queue.add(new StateCodec.QueuedRoute(dr.id, dr.dimId, b.getX(), b.getY(), b.getZ()));
+            }
+            SAVE_WRITER.submitReplace(stateDir.resolve(STATE_INDEX_FILE), StateCodec.encodeIndex(index));
+        } catch (IOException e) {
+            DeathBreadcrumbs.LOGGER.warn("[Death Breadcrumbs] Failed to encode saved state", e);
         }
+
+        dirtyStateDims.clear();
+        stateIndexDirty = false;
+        stateUrgent = false;
     }
 
 
@@ -857,21 +1286,20 @@ ClientTickEvents.END_CLIENT_TICK.register(DeathBreadcrumbsClient::onClientTick);
         Minecraft mc = Minecraft.getInstance();
         if (mc.player == null) return 1;
 
-        checkpoints.clear();
-        checkpointsDim = null;
-        lastCheckpointPos = null;
-        lastCheckpointTick = 0;
-        checkpointSegmentStart = 0;
+        for (CheckpointTrail t : trails.values()) t.clear();
+        trails.clear();
+        // The next tick starts a fresh trail for the current dimension.
+        trail = null;
+        stateDimKey = null;
 
-        checkpointSegmentId++;
-        lastDbPointId = null;
+        startDbSegment();
 
         clearRoute();
 
         lastCapturedDeath = null;
 
         saveDirty = true;
-        saveToDisk(mc);
+        if (GAME.bind(mc)) saveToDisk(GAME);
         mc.player.displayClientMessage(Component.literal("[Death Breadcrumbs] Cleared."), false);
         return 1;
     }
@@ -884,24 +1312,135 @@ ClientTickEvents.END_CLIENT_TICK.register(DeathBreadcrumbsClient::onClientTick);
         return 1;
     }
 
+    /** Sets the trail simplification mode ({@code null}: just report it). */
+    private static int cmdSimplify(TrailSimplifier.Mode mode) {
+        Minecraft mc = Minecraft.getInstance();
+        if (mc.player == null) return 1;
+        if (mode != null) SIMPLIFIER.setMode(mode);
+        mc.player.displayClientMessage(Component.literal("[Death Breadcrumbs] Trail simplification: " + describeSimplifier()), false);
+        return 1;
+    }
+
+    /** Switches the line renderer on or off ({@code null}: just report it). */
+    private static int cmdLines(Boolean on) {
+        Minecraft mc = Minecraft.getInstance();
+        if (mc.player == null) return 1;
+        if (on != null) LINE_LAYER.setEnabled(on);
+        mc.player.displayClientMessage(Component.literal("[Death Breadcrumbs] Route lines: " + LINE_LAYER.describe()), false);
+        return 1;
+    }
+
+    /** Starts or stops recording a session trace for the headless replay harness. */
+    private static int cmdTrace(CommandContext<?> ctx) {
+        Minecraft mc = Minecraft.getInstance();
+        if (mc.player == null || !GAME.bind(mc)) return 1;
+        if (traceFile != null) {
+            flushTrace();
+            mc.player.displayClientMessage(Component.literal("[Death Breadcrumbs] Trace saved: " + traceFile), false);
+            traceFile = null;
+            return 1;
+        }
+        Path base = GAME.saveBase();
+        traceFile = base.resolveSibling("traces").resolve("trace-" + System.currentTimeMillis() + ".csv");
+        traceBuffer.setLength(0);
+        traceBuffer.append(ReplayTrace.HEADER).append('\n');
+        traceTicks = 0;
+        mc.player.displayClientMessage(Component.literal("[Death Breadcrumbs] Recording trace to " + traceFile), false);
+        return 1;
+    }
+
+    /**
+     * Perf telemetry: {@code on}/{@code off}, {@code hud} (toggle the overlay, turns telemetry on), {@code reset},
+     * {@code csv} (export the current window to the config dir), or {@code null} to print it.
+     */
+    private static int cmdPerf(String action) {
+        Minecraft mc = Minecraft.getInstance();
+        if (mc.player == null) return 1;
+        String msg;
+        if ("on".equals(action) || "off".equals(action)) {
+            PERF.setEnabled("on".equals(action));
+            msg = "Perf telemetry: " + (PERF.enabled() ? "on" : "off");
+        } else if ("hud".equals(action)) {
+            PERF.setEnabled(true);
+            PERF.setHud(!PERF.hud());
+            perfHudLines = List.of();
+            perfHudTicks = PERF_HUD_REFRESH_TICKS;
+            msg = "Perf overlay: " + (PERF.hud() ? "on" : "off");
+        } else if ("reset".equals(action)) {
+            PERF.reset();
+            msg = "Perf telemetry reset.";
+        } else if ("csv".equals(action)) {
+            if (!GAME.bind(mc)) return 1;
+            Path file = GAME.saveBase().resolveSibling("perf").resolve("perf-" + System.currentTimeMillis() + ".csv");
+            SAVE_WRITER.submitReplace(file, PERF.toCsv());
+            msg = "Perf telemetry written to " + file;
+        } else {
+            List<String> lines = PERF.enabled() ? PERF.describeLines() : List.of();
+            StringBuilder sb = new StringBuilder("Perf telemetry: ").append(PERF.enabled() ? "on" : "off (/deathbreadcrumbs perf on)");
+            if (PERF.enabled() && lines.isEmpty()) sb.append(", no samples yet");
+            if (PERF.enabled() && !PERF.measuresAllocation()) sb.append(", allocation not measured (unsupported by this JVM)");
+            for (String line : lines) sb.append("\n  ").append(line);
+            msg = sb.toString();
+        }
+        mc.player.displayClientMessage(Component.literal("[Death Breadcrumbs] " + msg), false);
+        return 1;
+    }
+
+    private static void renderPerfHud(GuiGraphics graphics) {
+        if (!PERF.hud()) return;
+        Minecraft mc = Minecraft.getInstance();
+        if (mc == null || mc.font == null) return;
+        List<String> lines = perfHudLines;
+        if (lines.isEmpty()) return;
+        int y = 4;
+        for (String line : lines) {
+            graphics.fill(2, y - 1, 6 + mc.font.width(line), y + mc.font.lineHeight, 0x80000000);
+            graphics.drawString(mc.font, line, 4, y, 0xFFFFFFFF);
+            y += mc.font.lineHeight + 1;
+        }
+    }
+
     private static int cmdStatus(CommandContext<?> ctx) {
         Minecraft mc = Minecraft.getInstance();
         if (mc.player == null) return 1;
 
-        int cp = checkpoints.size();
+        int cp = (trail == null) ? 0 : trail.size();
         int pending = deathQueue.size();
         int rp = (activeRoute == null || activeRoute.points == null) ? 0 : activeRoute.points.size();
         String dim = (activeRoute == null || activeRoute.dim == null) ? "none" : String.valueOf(activeRoute.dim);
         int idx = (activeRoute == null) ? 0 : activeRoute.routeIndex;
-        boolean hasGraph = activeRoute != null && activeRoute.graph != null;
+        String hasGraph = (activeRoute == null) ? "false"
+                : !activeRoute.isLoaded() ? "unloaded"
+                : (!activeRoute.ready ? "building" : String.valueOf(activeRoute.graph != null));
 
         mc.player.displayClientMessage(
-			Component.literal("[Death Breadcrumbs] checkpoints=" + cp + ", deathsQueued=" + pending + ", activeRoutePoints=" + rp + ", activeDim=" + dim + ", routeIndex=" + idx + ", graph=" + hasGraph),
+			Component.literal("[Death Breadcrumbs] checkpoints=" + cp + ", allDims=" + totalCheckpoints() + "/" + trails.size() + ", deathsQueued=" + pending + ", activeRoutePoints=" + rp + ", activeDim=" + dim + ", routeIndex=" + idx + ", graph=" + hasGraph
+					+ ", dbPoints=" + POINT_DB.size() + "/" + POINT_DB.capacity() + ", dbEvictions=" + POINT_DB.evictions()
+					+ ", dbKiB=" + (POINT_DB.footprintBytes() / 1024) + ", stateDims=" + loadedStateDims.size()
+					+ ", tour=" + describePlan() + ", nav=" + describeNav() + ", simplify=" + describeSimplifier() + ", sampler: " + SAMPLER.describe() + ", particles: " + PARTICLES.describe() + ", lines: " + LINE_LAYER.describe() + ", perf=" + (PERF.enabled() ? "on" : "off")
+					+ ", save: " + SAVE_WRITER.describeStats()),
 			false
 		);
         return 1;
     }
 
+    private static String describePlan() {
+        RoutePlanner.Plan plan = appliedPlan;
+        if (plan == null) return "none";
+        return plan.size() + " deaths/" + Math.round(plan.length) + "m/" + (plan.exact ? "exact" : "2-opt");
+    }
+
+    private static String describeSimplifier() {
+        return SIMPLIFIER.mode().name().toLowerCase(java.util.Locale.ROOT) + " (" + SIMPLIFIER.dropped() + "/"
+                + SIMPLIFIER.offered() + " points folded, " + Math.round(SIMPLIFIER.reductionRatio() * 100) + "%)";
+    }
+
+    private static String describeNav() {
+        NavBase base = navBase;
+        if (base == null) return "none";
+        return base.graph.nodeCount() + " nodes/" + base.dimId;
+    }
+
     /**
      * Horizontal (XZ) distance between two positions. Y is ignored.
      */
@@ -911,6 +1450,12 @@ ClientTickEvents.END_CLIENT_TICK.register(DeathBreadcrumbsClient::onClientTick);
         return Math.sqrt(dx * dx + dz * dz);
     }
 
+    private static double horizontalDistance(Vec3 a, double bx, double bz) {
+        double dx = a.x - bx;
+        double dz = a.z - bz;
+        return Math.sqrt(dx * dx + dz * dz);
+    }
+
     /**
      * Builds a sparse undirected graph from points by connecting each point to K nearest neighbors
      * (plus sequential edges), then runs Dijkstra from the death node (last point) to all nodes.
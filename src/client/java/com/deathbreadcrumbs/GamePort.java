@@ -0,0 +1,146 @@
+package com.deathbreadcrumbs;
+
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.player.LocalPlayer;
+import net.minecraft.core.GlobalPos;
+import net.minecraft.core.particles.ParticleOptions;
+import net.minecraft.core.particles.ParticleTypes;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.Vec3;
+
+import java.nio.file.Path;
+
+/**
+ * {@link TickPort} over the running client: the local player and level of the current tick.
+ * Package-private on purpose (only used by DeathBreadcrumbsClient).
+ */
+final class GamePort implements TickPort {
+
+    // Roughly matches the Bad Omen tint (dark teal/green).
+    private static final double GOAL_R = 0.05;
+    private static final double GOAL_G = 0.22;
+    private static final double GOAL_B = 0.20;
+
+    private final String saveDirName;
+
+    private Minecraft mc;
+    private LocalPlayer player;
+    private Level level;
+
+    // ENTITY_EFFECT options for the goal tint; built once since the colour never changes.
+    private ParticleOptions goalOptions = null;
+    private boolean goalOptionsResolved = false;
+
+    GamePort(String saveDirName) {
+        this.saveDirName = saveDirName;
+    }
+
+    /** Points the port at the current player and level; false if there is no world (menus, loading). */
+    boolean bind(Minecraft mc) {
+        this.mc = mc;
+        this.player = (mc != null) ? mc.player : null;
+        this.level = (mc != null) ? mc.level : null;
+        return player != null && level != null;
+    }
+
+    @Override
+    public Vec3 position() {
+        return player.position();
+    }
+
+    @Override
+    public boolean isAlive() {
+        return player.isAlive();
+    }
+
+    @Override
+    public Vec3 eyePosition() {
+        return player.getEyePosition();
+    }
+
+    @Override
+    public Vec3 viewDirection() {
+        return player.getLookAngle();
+    }
+
+    @Override
+    public int fps() {
+        return mc.getFps();
+    }
+
+    @Override
+    public boolean isRiding() {
+        return player.isPassenger();
+    }
+
+    @Override
+    public boolean isGliding() {
+        return player.isFallFlying();
+    }
+
+    @Override
+    public long gameTime() {
+        return level.getGameTime();
+    }
+
+    @Override
+    public ResourceKey<Level> dimension() {
+        return level.dimension();
+    }
+
+    @Override
+    public GlobalPos lastDeathLocation() {
+        return player.getLastDeathLocation().orElse(null);
+    }
+
+    @Override
+    public Path saveBase() {
+        String serverKey = "singleplayer";
+        try {
+            var sd = mc.getCurrentServer();
+            if (sd != null && sd.ip != null && !sd.ip.isBlank()) {
+                serverKey = sd.ip;
+            }
+        } catch (Throwable ignored) {
+        }
+
+        // Sanitize for filesystem
+        serverKey = serverKey.replaceAll("[^a-zA-Z0-9._-]+", "_");
+
+        Path dir = FabricLoader.getInstance().getConfigDir().resolve(saveDirName);
+        return dir.resolve(serverKey);
+    }
+
+    /**
+     * Particles like END_ROD are distance-culled quite aggressively and may "pop in" only when you get close,
+     * so crumbs are spawned through the forced-visible overload (see {@link ParticleEmitter}).
+     */
+    @Override
+    public void spawnCrumb(double x, double y, double z) {
+        ParticleEmitter.spawnForced(level, ParticleTypes.END_ROD, x, y, z);
+    }
+
+    @Override
+    public void spawnGoalParticle(double x, double y, double z) {
+        if (!goalOptionsResolved) {
+            goalOptions = ParticleEmitter.entityEffect(GOAL_R, GOAL_G, GOAL_B);
+            goalOptionsResolved = true;
+        }
+
+        if (goalOptions != null) {
+            ParticleEmitter.spawnForced(level, goalOptions, x, y, z);
+            return;
+        }
+
+        // Fallback if ENTITY_EFFECT is not available / mappings differ.
+        level.addParticle(ParticleTypes.END_ROD, x, y, z, 0, 0, 0);
+    }
+
+    @Override
+    public void message(String text) {
+        player.displayClientMessage(Component.literal(text), false);
+    }
+}
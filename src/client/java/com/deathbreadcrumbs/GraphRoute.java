@@ -1,12 +1,17 @@
 package com.deathbreadcrumbs;
 
+import com.deathbreadcrumbs.nav.KdTree;
+import com.deathbreadcrumbs.nav.LongIntHashMap;
+import com.deathbreadcrumbs.nav.NavGraph;
+import com.deathbreadcrumbs.nav.ShortestPathEngine;
 import net.minecraft.world.phys.Vec3;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.PriorityQueue;
 
 /**
  * Route helper over recorded points.
@@ -21,178 +26,376 @@ import java.util.PriorityQueue;
  *       and is resilient to buffer tails / multiple deaths.</li>
  * </ul>
  *
- * <p>Then we run Dijkstra from the death node and store a "next hop" pointer for each node.
+ * <p>Then we run Dijkstra from the death node and store a "next hop" pointer for each node. Building works on
+ * primitive arrays only: the spatial hash, the top-K candidate selection and the {@link ShortestPathEngine} heap
+ * live in per-thread scratch that is reused across builds.
+ *
+ * <p>The graph is stored in compressed sparse row form: node coordinates in primitive columns and the neighbors of
+ * node {@code i} at {@code targets[offsets[i] .. offsets[i + 1])}, so a route is a handful of flat arrays instead
+ * of two small arrays per node.
+ *
+ * <p>A graph can also be merged from several point chains ({@link #buildMerged}) and re-solved towards any node
+ * ({@link #towards}); the {@link RoutePlanner} uses that for tours over several deaths. "Death node" below means
+ * the node a tree was solved towards.
+ *
+ * <p>The route being followed uses that full tree, since the player may leave it anywhere. Point-to-point questions
+ * between two fixed nodes go through A*, which only expands the nodes it needs: {@link #pathBetween} for the path
+ * itself, {@link #pathLength} when only its length is needed (the planner's cost matrix between queued deaths).
+ *
+ * <p>Nearest-node lookups go through KD-trees built once per route (all nodes, and reachable nodes only), so
+ * the per-tick {@link #pathFrom} query is O(log n) instead of a linear scan.
  */
 final class GraphRoute {
 
-    private final List<Vec3> nodes;
-    private final int deathIdx;
-    private final int[][] neighbors;
-    private final double[][] weights;
+    // Conservative extra connectivity radius.
+    static final double CONNECT_DIST = 8.0; // blocks
+    static final int CELL = 8; // ~CONNECT_DIST
+    static final int MAX_EXTRA_NEIGHBORS = 8;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final int n;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final int goalIdx;
+
+    /** CSR adjacency: edges of node i are {@code offsets[i] .. offsets[i + 1] - 1}. */
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
 
     /** For each node i: next hop towards death (or -1 if unreachable). */
     private final int[] nextTowardDeath;
     /** For each node i: shortest distance to death (or +inf if unreachable). */
     private final double[] distToDeath;
 
-    private GraphRoute(List<Vec3> nodes, int[][] neighbors, double[][] weights, int[] nextTowardDeath, double[] distToDeath) {
-        this.nodes = nodes;
-        this.deathIdx = nodes.size() - 1;
-        this.neighbors = neighbors;
+    /** Spatial indexes over all nodes / nodes with a finite distance to death. */
+    private final KdTree allIndex;
+    private final KdTree reachableIndex;
+
+    private GraphRoute(double[] xs, double[] ys, double[] zs, int[] offsets, int[] targets, double[] weights,
+                       int goal, int[] nextTowardDeath, double[] distToDeath, KdTree allIndex) {
+        this.n = offsets.length - 1;
+        this.xs = xs;
+        this.ys = ys;
+        this.zs = zs;
+        this.goalIdx = goal;
+        this.offsets = offsets;
+        this.targets = targets;
         this.weights = weights;
         this.nextTowardDeath = nextTowardDeath;
         this.distToDeath = distToDeath;
+
+        int[] reachable = new int[n];
+        int reachableCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (Double.isFinite(distToDeath[i])) reachable[reachableCount++] = i;
+        }
+        this.allIndex = (allIndex != null) ? allIndex : KdTree.ofAll(xs, ys, zs, n);
+        this.reachableIndex = new KdTree(xs, ys, zs, reachable, reachableCount);
     }
 
     Vec3 nearestNode(Vec3 position) {
-        if (nodes == null || nodes.isEmpty() || position == null) return null;
-        return nodes.get(findClosestIndex(nodes, position));
+        if (position == null) return null;
+        return node(allIndex.nearest(position.x, position.y, position.z));
     }
 
     static GraphRoute build(List<Vec3> points) {
         if (points == null || points.size() < 2) return null;
 
         final int n = points.size();
-
-        // Conservative extra connectivity radius.
-        final double CONNECT_DIST = 8.0; // blocks
-        final double CONNECT_DIST2 = CONNECT_DIST * CONNECT_DIST;
-        final int CELL = 8; // ~CONNECT_DIST
-        final int MAX_EXTRA_NEIGHBORS = 8;
-
-        // Spatial hash: (cx,cz) -> indices.
-        HashMap<Long, ArrayList<Integer>> cells = new HashMap<>();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        double[] zs = new double[n];
         for (int i = 0; i < n; i++) {
             Vec3 p = points.get(i);
-            int cx = (int) Math.floor(p.x / CELL);
-            int cz = (int) Math.floor(p.z / CELL);
-            long key = (((long) cx) << 32) ^ (cz & 0xffffffffL);
-            cells.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            xs[i] = p.x;
+            ys[i] = p.y;
+            zs[i] = p.z;
         }
+        return link(xs, ys, zs, null);
+    }
 
-        int[][] neigh = new int[n][];
-        double[][] w = new double[n][];
-
-        for (int i = 0; i < n; i++) {
-            Vec3 a = points.get(i);
-
-            IntList neighIdx = new IntList();
-            DoubleList neighW = new DoubleList();
-
-            // Mandatory sequential edges (undirected).
-            if (i > 0) {
-                neighIdx.add(i - 1);
-                neighW.add(a.distanceTo(points.get(i - 1)));
-            }
-            if (i < n - 1) {
-                neighIdx.add(i + 1);
-                neighW.add(a.distanceTo(points.get(i + 1)));
+    /**
+     * Builds one graph over several point chains (node indices follow the chains in order). Sequential edges stay
+     * within a chain; proximity edges also connect different chains. Solved towards the last node.
+     */
+    static GraphRoute buildMerged(List<List<Vec3>> chains) {
+        int n = 0;
+        for (List<Vec3> c : chains) n += c.size();
+        if (n < 2) return null;
+
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        double[] zs = new double[n];
+        int[] chainOf = new int[n];
+        int i = 0;
+        for (int c = 0; c < chains.size(); c++) {
+            for (Vec3 p : chains.get(c)) {
+                xs[i] = p.x;
+                ys[i] = p.y;
+                zs[i] = p.z;
+                chainOf[i++] = c;
             }
+        }
+        return link(xs, ys, zs, chainOf);
+    }
 
-            // Extra edges to nearby points.
-            int cx = (int) Math.floor(a.x / CELL);
-            int cz = (int) Math.floor(a.z / CELL);
+    /** Links the nodes ({@code chainOf == null}: a single chain) and solves towards the last node. */
+    private static GraphRoute link(double[] xs, double[] ys, double[] zs, int[] chainOf) {
+        final int n = xs.length;
+        final double CONNECT_DIST2 = CONNECT_DIST * CONNECT_DIST;
+        final int K = MAX_EXTRA_NEIGHBORS;
+        final Scratch sc = SCRATCH.get();
+
+        // Spatial hash: (cx,cz) -> first index, chained through cellNext. Filled back to front so every
+        // chain lists its points in ascending index order.
+        LongIntHashMap cells = sc.cells;
+        cells.clear();
+        sc.ensureNodes(n);
+        int[] cellNext = sc.cellNext;
+        for (int i = n - 1; i >= 0; i--) {
+            long key = cellKey(cellCoord(xs[i]), cellCoord(zs[i]));
+            cellNext[i] = cells.get(key);
+            cells.put(key, i);
+        }
 
-            ArrayList<Candidate> candidates = new ArrayList<>();
+        // Pass 1: extra edges to nearby points, the K closest per node (ties keep scan order), into flat
+        // scratch; this also yields every node's degree.
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            boolean hasPrev = i > 0 && (chainOf == null || chainOf[i - 1] == chainOf[i]);
+            boolean hasNext = i < n - 1 && (chainOf == null || chainOf[i + 1] == chainOf[i]);
+            int cx = cellCoord(xs[i]);
+            int cz = cellCoord(zs[i]);
+            int found = 0;
             for (int dx = -1; dx <= 1; dx++) {
                 for (int dz = -1; dz <= 1; dz++) {
-                    long key = (((long) (cx + dx)) << 32) ^ ((cz + dz) & 0xffffffffL);
-                    ArrayList<Integer> ids = cells.get(key);
-                    if (ids == null) continue;
-                    for (int k = 0; k < ids.size(); k++) {
-                        int j = ids.get(k);
+                    for (int j = cells.get(cellKey(cx + dx, cz + dz)); j != LongIntHashMap.MISSING; j = cellNext[j]) {
                         if (j == i) continue;
                         // Avoid duplicating sequential edges.
-                        if (j == i - 1 || j == i + 1) continue;
-                        Vec3 b = points.get(j);
-                        double d2 = dist2(a, b);
+                        if ((j == i - 1 && hasPrev) || (j == i + 1 && hasNext)) continue;
+                        double d2 = dist2(xs, ys, zs, i, j);
                         if (d2 <= CONNECT_DIST2) {
-                            candidates.add(new Candidate(j, Math.sqrt(d2)));
+                            found = sc.offerCandidate(i * K, j, Math.sqrt(d2), found);
                         }
                     }
                 }
             }
+            sc.candCount[i] = found;
+            int seq = (hasPrev ? 1 : 0) + (hasNext ? 1 : 0);
+            offsets[i + 1] = offsets[i] + seq + found;
+        }
 
-            candidates.sort((u, v) -> Double.compare(u.w, v.w));
-            int added = 0;
-            for (int c = 0; c < candidates.size() && added < MAX_EXTRA_NEIGHBORS; c++) {
-                Candidate cand = candidates.get(c);
-                int j = cand.j;
-                if (contains(neighIdx, j)) continue;
-                neighIdx.add(j);
-                neighW.add(cand.w);
-                added++;
+        // Pass 2: fill the rows (mandatory sequential edges first, then the extra ones).
+        int[] targets = new int[offsets[n]];
+        double[] w = new double[offsets[n]];
+        for (int i = 0; i < n; i++) {
+            int m = offsets[i];
+            if (i > 0 && (chainOf == null || chainOf[i - 1] == chainOf[i])) {
+                targets[m] = i - 1;
+                w[m++] = Math.sqrt(dist2(xs, ys, zs, i, i - 1));
+            }
+            if (i < n - 1 && (chainOf == null || chainOf[i + 1] == chainOf[i])) {
+                targets[m] = i + 1;
+                w[m++] = Math.sqrt(dist2(xs, ys, zs, i, i + 1));
             }
+            int found = sc.candCount[i];
+            System.arraycopy(sc.candIds, i * K, targets, m, found);
+            System.arraycopy(sc.candW, i * K, w, m, found);
+        }
+
+        return solve(xs, ys, zs, offsets, targets, w, n - 1, null);
+    }
+
+    /**
+     * Builds a route from prebuilt CSR adjacency (e.g. a {@link TrailGraph} snapshot). Edge weights are the
+     * euclidean distances between the nodes; the last node is the death node. The arrays are taken over.
+     */
+    static GraphRoute fromAdjacency(double[] xs, double[] ys, double[] zs, int[] offsets, int[] targets) {
+        if (offsets == null || offsets.length < 3 || xs.length < offsets.length - 1) return null;
 
-            neigh[i] = neighIdx.toArray();
-            w[i] = neighW.toArray();
+        final int n = offsets.length - 1;
+        double[] w = new double[targets.length];
+        for (int i = 0; i < n; i++) {
+            for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                w[k] = Math.sqrt(dist2(xs, ys, zs, i, targets[k]));
+            }
         }
+        return solve(xs, ys, zs, offsets, targets, w, n - 1, null);
+    }
+
+    /**
+     * Builds a route over the shared navigation graph of one dimension (see {@link NavGraph}). Solved towards its
+     * last node; use {@link #towards} for the actual goal.
+     */
+    static GraphRoute fromNavGraph(NavGraph nav) {
+        return fromAdjacency(nav.xs(), nav.ys(), nav.zs(), nav.offsets(), nav.targets());
+    }
+
+    /** The same graph solved towards {@code goal} instead (shares nodes, edges and the all-nodes index). */
+    GraphRoute towards(int goal) {
+        if (goal == goalIdx) return this;
+        if (goal < 0 || goal >= n) throw new IllegalArgumentException("goal " + goal + " outside 0.." + (n - 1));
+        return solve(xs, ys, zs, offsets, targets, weights, goal, allIndex);
+    }
+
+    private static GraphRoute solve(double[] xs, double[] ys, double[] zs, int[] offsets, int[] targets, double[] w,
+                                    int goal, KdTree allIndex) {
+        final int n = offsets.length - 1;
 
         // Dijkstra from death node to compute shortest-path tree.
         int[] next = new int[n];
-        Arrays.fill(next, -1);
+        double[] dist = new double[n];
+        SCRATCH.get().engine.solve(n, goal, offsets, targets, w, next, dist);
 
+        return new GraphRoute(xs, ys, zs, offsets, targets, w, goal, next, dist, allIndex);
+    }
+
+    /**
+     * Writes the solved graph (adjacency, weights, next hops and distances) so it can be restored without
+     * re-running the solver. Node positions are stored by the caller.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(n);
+        for (int i = 0; i < n; i++) {
+            out.writeInt(offsets[i + 1] - offsets[i]);
+            for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                out.writeInt(targets[k]);
+                out.writeDouble(weights[k]);
+            }
+            out.writeInt(nextTowardDeath[i]);
+            out.writeDouble(distToDeath[i]);
+        }
+    }
+
+    /** Reads a graph written by {@link #writeTo} over the same {@code nodes}. */
+    static GraphRoute readFrom(DataInput in, List<Vec3> nodes) throws IOException {
+        final int n = in.readInt();
+        if (n != nodes.size() || n < 2) throw new IOException("graph does not match its " + nodes.size() + " nodes");
+
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        double[] zs = new double[n];
+        for (int i = 0; i < n; i++) {
+            Vec3 p = nodes.get(i);
+            xs[i] = p.x;
+            ys[i] = p.y;
+            zs[i] = p.z;
+        }
+
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[n * 4];
+        double[] w = new double[n * 4];
+        int[] next = new int[n];
         double[] dist = new double[n];
-        Arrays.fill(dist, Double.POSITIVE_INFINITY);
-        dist[n - 1] = 0.0;
-
-        PriorityQueue<State> pq = new PriorityQueue<>((a, b) -> Double.compare(a.d, b.d));
-        pq.add(new State(n - 1, 0.0));
-
-        boolean[] done = new boolean[n];
-        while (!pq.isEmpty()) {
-            State s = pq.poll();
-            int u = s.i;
-            if (done[u]) continue;
-            done[u] = true;
-            if (s.d != dist[u]) continue;
-
-            int[] nu = neigh[u];
-            double[] wu = w[u];
-            for (int k = 0; k < nu.length; k++) {
-                int v = nu[k];
-                double nd = s.d + wu[k];
-                if (nd < dist[v]) {
-                    dist[v] = nd;
-                    // From v, the best next hop towards death is u.
-                    next[v] = u;
-                    pq.add(new State(v, nd));
-                }
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            int deg = in.readInt();
+            if (deg < 0 || deg > n) throw new IOException("bad degree " + deg);
+            if (m + deg > targets.length) {
+                int cap = Math.max(targets.length * 2, m + deg);
+                targets = Arrays.copyOf(targets, cap);
+                w = Arrays.copyOf(w, cap);
             }
+            for (int k = 0; k < deg; k++) {
+                targets[m] = checkNode(in.readInt(), n);
+                w[m++] = in.readDouble();
+            }
+            offsets[i + 1] = m;
+            int nx = in.readInt();
+            next[i] = (nx == -1) ? -1 : checkNode(nx, n);
+            dist[i] = in.readDouble();
+        }
+        if (m != targets.length) {
+            targets = Arrays.copyOf(targets, m);
+            w = Arrays.copyOf(w, m);
         }
+        return new GraphRoute(xs, ys, zs, offsets, targets, w, n - 1, next, dist, null);
+    }
 
-        return new GraphRoute(points, neigh, w, next, dist);
+    private static int checkNode(int v, int n) throws IOException {
+        if (v < 0 || v >= n) throw new IOException("node index out of range: " + v);
+        return v;
     }
 
     BreadcrumbPath pathFrom(Vec3 position, int maxCrumbs) {
-        if (nodes == null || nodes.isEmpty() || position == null) return null;
-
-        int start = findClosestIndex(nodes, position);
-        if (!Double.isFinite(distToDeath[start])) {
-            // Closest node is disconnected from death; find closest reachable node.
-            double bestD2 = Double.POSITIVE_INFINITY;
-            int bestIdx = -1;
-            for (int i = 0; i < nodes.size(); i++) {
-                if (!Double.isFinite(distToDeath[i])) continue;
-                double d2 = dist2(nodes.get(i), position);
-                if (d2 < bestD2) {
-                    bestD2 = d2;
-                    bestIdx = i;
-                }
-            }
-            if (bestIdx < 0) return null;
-            start = bestIdx;
-        }
+        if (position == null) return null;
+
+        int start = nearestReachable(position.x, position.y, position.z);
+        if (start < 0) return null;
+        return pathFromNode(start, maxCrumbs);
+    }
+
+    /**
+     * Closest node that can reach death (if the closest node overall is disconnected, this is the
+     * closest reachable one), or -1 if none.
+     */
+    int nearestReachable(double x, double y, double z) {
+        return reachableIndex.nearest(x, y, z);
+    }
+
+    /** Closest node overall (reachable or not), or -1 if the graph is empty. */
+    int nearestIndex(double x, double y, double z) {
+        return allIndex.nearest(x, y, z);
+    }
+
+    /** Closest node to {@code p} if it lies within {@code maxDist}, otherwise -1. */
+    int nodeNear(Vec3 p, double maxDist) {
+        int i = allIndex.nearest(p.x, p.y, p.z);
+        return (i >= 0 && dist2To(i, p.x, p.y, p.z) <= maxDist * maxDist) ? i : -1;
+    }
+
+    int nodeCount() {
+        return n;
+    }
+
+    /** Shortest distance from node {@code i} to the death node (+inf if unreachable). */
+    double distToGoal(int i) {
+        return distToDeath[i];
+    }
+
+    Vec3 node(int i) {
+        return new Vec3(xs[i], ys[i], zs[i]);
+    }
+
+    boolean isReachable(int i) {
+        return Double.isFinite(distToDeath[i]);
+    }
+
+    /** First edge of node {@code i}; its edges are {@code edgeStart(i) .. edgeEnd(i) - 1}. */
+    int edgeStart(int i) {
+        return offsets[i];
+    }
+
+    int edgeEnd(int i) {
+        return offsets[i + 1];
+    }
+
+    int edgeTarget(int edge) {
+        return targets[edge];
+    }
+
+    double dist2To(int i, double x, double y, double z) {
+        double dx = xs[i] - x;
+        double dy = ys[i] - y;
+        double dz = zs[i] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /** Follows next-hop pointers from {@code start} towards death. */
+    BreadcrumbPath pathFromNode(int start, int maxCrumbs) {
+        if (start < 0 || start >= n) return null;
 
         ArrayList<Vec3> crumbs = new ArrayList<>(Math.max(4, maxCrumbs));
         int cur = start;
-        int safety = nodes.size() + 8;
+        int safety = n + 8;
 
         while (crumbs.size() < maxCrumbs && safety-- > 0) {
-            Vec3 here = nodes.get(cur);
-            crumbs.add(new Vec3(here.x, here.y, here.z));
+            crumbs.add(node(cur));
 
-            if (cur == deathIdx) break;
+            if (cur == goalIdx) break;
             int nxt = nextTowardDeath[cur];
             if (nxt < 0 || nxt == cur) break;
             cur = nxt;
@@ -202,77 +405,110 @@ final class GraphRoute {
         return new BreadcrumbPath(start, crumbs);
     }
 
-    private static boolean contains(IntList l, int v) {
-        for (int i = 0; i < l.size(); i++) {
-            if (l.get(i) == v) return true;
-        }
-        return false;
-    }
-
-    private static double dist2(Vec3 a, Vec3 b) {
-        double dx = a.x - b.x;
-        double dy = a.y - b.y;
-        double dz = a.z - b.z;
-        return dx * dx + dy * dy + dz * dz;
-    }
+    /**
+     * Writes the nodes from {@code start} towards death into {@code out} as x, y, z triples, stopping after
+     * {@code maxNodes} nodes or before the path gets longer than {@code maxLength}; returns the number of nodes.
+     * Unlike {@link #pathFromNode} this allocates nothing.
+     */
+    int pathCoords(int start, int maxNodes, double maxLength, double[] out) {
+        if (start < 0 || start >= n) return 0;
 
-    private static int findClosestIndex(List<Vec3> pts, Vec3 target) {
-        int bestIdx = 0;
-        double bestD2 = Double.POSITIVE_INFINITY;
-        for (int i = 0; i < pts.size(); i++) {
-            Vec3 p = pts.get(i);
-            double d2 = dist2(p, target);
-            if (d2 < bestD2) {
-                bestD2 = d2;
-                bestIdx = i;
-            }
+        int count = 0;
+        int cur = start;
+        double length = 0.0;
+        int safety = n + 8;
+        while (count < maxNodes && safety-- > 0) {
+            out[count * 3] = xs[cur];
+            out[count * 3 + 1] = ys[cur];
+            out[count * 3 + 2] = zs[cur];
+            count++;
+
+            if (cur == goalIdx) break;
+            int nxt = nextTowardDeath[cur];
+            if (nxt < 0 || nxt == cur) break;
+            length += Math.sqrt(dist2(xs, ys, zs, cur, nxt));
+            if (length > maxLength) break;
+            cur = nxt;
         }
-        return bestIdx;
+        return count;
     }
 
-    private record Candidate(int j, double w) {}
-
-    private record State(int i, double d) {}
+    /**
+     * Shortest path from node {@code start} to node {@code goal} (A*, see {@link ShortestPathEngine#findPath}),
+     * independent of the death node; null if they are not connected.
+     */
+    BreadcrumbPath pathBetween(int start, int goal) {
+        if (start < 0 || start >= n || goal < 0 || goal >= n) return null;
 
-    /** Minimal int list (no fastutil). */
-    private static final class IntList {
-        private int[] a = new int[8];
-        private int size = 0;
+        ShortestPathEngine engine = SCRATCH.get().engine;
+        int len = engine.findPath(n, start, goal, offsets, targets, weights, xs, ys, zs);
+        if (len == 0) return null;
 
-        void add(int v) {
-            if (size == a.length) a = Arrays.copyOf(a, a.length * 2);
-            a[size++] = v;
+        ArrayList<Vec3> crumbs = new ArrayList<>(len);
+        for (int i = 0; i < len; i++) {
+            crumbs.add(node(engine.pathNode(i)));
         }
+        return new BreadcrumbPath(start, crumbs);
+    }
 
-        int size() {
-            return size;
-        }
+    /**
+     * Length of the shortest path from {@code start} to {@code goal} (A* without building the path, see
+     * {@link ShortestPathEngine#findCost}), independent of the death node; +inf if they are not connected.
+     */
+    double pathLength(int start, int goal) {
+        if (start < 0 || start >= n || goal < 0 || goal >= n) return Double.POSITIVE_INFINITY;
 
-        int get(int i) {
-            return a[i];
-        }
+        return SCRATCH.get().engine.findCost(n, start, goal, offsets, targets, weights, xs, ys, zs);
+    }
 
-        int[] toArray() {
-            return Arrays.copyOf(a, size);
-        }
+    private static double dist2(double[] xs, double[] ys, double[] zs, int a, int b) {
+        double dx = xs[a] - xs[b];
+        double dy = ys[a] - ys[b];
+        double dz = zs[a] - zs[b];
+        return dx * dx + dy * dy + dz * dz;
     }
 
-    /** Minimal double list (no fastutil). */
-    private static final class DoubleList {
-        private double[] a = new double[8];
-        private int size = 0;
+    private static int cellCoord(double v) {
+        return (int) Math.floor(v / CELL);
+    }
 
-        void add(double v) {
-            if (size == a.length) a = Arrays.copyOf(a, a.length * 2);
-            a[size++] = v;
-        }
+    private static long cellKey(int cx, int cz) {
+        return (((long) cx) << 32) ^ (cz & 0xffffffffL);
+    }
 
-        double[] toArray() {
-            return Arrays.copyOf(a, size);
+    /** Build and query scratch, reused by every build/query on the same thread. */
+    private static final class Scratch {
+        final ShortestPathEngine engine = new ShortestPathEngine();
+        final LongIntHashMap cells = new LongIntHashMap(256);
+        int[] cellNext = new int[0];
+
+        // Sorted top-K extra neighbors per node: node i uses [i * K, i * K + candCount[i]).
+        int[] candIds = new int[0];
+        double[] candW = new double[0];
+        int[] candCount = new int[0];
+
+        void ensureNodes(int n) {
+            if (cellNext.length >= n) return;
+            int cap = Math.max(64, Integer.highestOneBit(n - 1) << 1);
+            cellNext = new int[cap];
+            candCount = new int[cap];
+            candIds = new int[cap * MAX_EXTRA_NEIGHBORS];
+            candW = new double[cap * MAX_EXTRA_NEIGHBORS];
         }
 
-        int size() {
-            return size;
+        /** Inserts {@code (j, w)} into the sorted top-K at {@code base}; returns the new candidate count. */
+        int offerCandidate(int base, int j, double w, int found) {
+            final int K = MAX_EXTRA_NEIGHBORS;
+            if (found == K && w >= candW[base + K - 1]) return found;
+            int i = (found < K) ? found++ : K - 1;
+            while (i > 0 && candW[base + i - 1] > w) {
+                candIds[base + i] = candIds[base + i - 1];
+                candW[base + i] = candW[base + i - 1];
+                i--;
+            }
+            candIds[base + i] = j;
+            candW[base + i] = w;
+            return found;
         }
     }
 }
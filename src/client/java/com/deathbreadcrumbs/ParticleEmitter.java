@@ -0,0 +1,181 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.core.particles.ParticleOptions;
+import net.minecraft.core.particles.ParticleType;
+import net.minecraft.core.particles.ParticleTypes;
+import net.minecraft.world.level.Level;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+/**
+ * Spawns client particles through the best overload available in the running game.
+ *
+ * <p>Some mappings/versions expose forced (always visible) particles as
+ * {@code ClientLevel#addParticle(ParticleOptions, boolean force, ...)}, others as
+ * {@code ClientLevel#addAlwaysVisibleParticle(...)}. Resolving them reflectively on every particle is
+ * expensive, so the lookup runs once per level class and is bound to a {@link MethodHandle}.
+ * Package-private on purpose (only used by DeathBreadcrumbsClient).
+ */
+final class ParticleEmitter {
+
+    /** A resolved way of spawning one particle with zero velocity. */
+    @FunctionalInterface
+    private interface Sink {
+        void spawn(ClientLevel level, ParticleOptions opts, double x, double y, double z) throws Throwable;
+    }
+
+    /** Builds {@code ColorParticleOption}s for {@link ParticleTypes#ENTITY_EFFECT}. */
+    @FunctionalInterface
+    private interface ColorFactory {
+        ParticleOptions create(float r, float g, float b) throws Throwable;
+    }
+
+    private static final MethodType SINK_TYPE = MethodType.methodType(
+            void.class,
+            ClientLevel.class, ParticleOptions.class,
+            double.class, double.class, double.class,
+            double.class, double.class, double.class
+    );
+    private static final MethodType FORCED_SINK_TYPE = SINK_TYPE.insertParameterTypes(2, boolean.class);
+
+    /** Plain (distance-culled) spawn; always available because ClientLevel is a Level. */
+    private static final Sink PLAIN = (level, opts, x, y, z) -> level.addParticle(opts, x, y, z, 0.0, 0.0, 0.0);
+
+    private static final ClassValue<Sink> SINKS = new ClassValue<>() {
+        @Override
+        protected Sink computeValue(Class<?> type) {
+            return resolveSink(type);
+        }
+    };
+
+    private static ColorFactory colorFactory;
+    private static boolean colorFactoryResolved = false;
+
+    private ParticleEmitter() {
+    }
+
+    /**
+     * Spawns a forced-visible particle. Falls back to a regular {@link Level#addParticle} when the level is not a
+     * client level or the resolved overload fails at runtime.
+     */
+    static void spawnForced(Level level, ParticleOptions opts, double x, double y, double z) {
+        if (level instanceof ClientLevel cl) {
+            try {
+                SINKS.get(cl.getClass()).spawn(cl, opts, x, y, z);
+                return;
+            } catch (Throwable ignored) {
+            }
+        }
+        level.addParticle(opts, x, y, z, 0, 0, 0);
+    }
+
+    /**
+     * Builds ParticleOptions for ParticleTypes.ENTITY_EFFECT with the given tint, or {@code null} if this game
+     * version does not expose a usable factory. Callers with a fixed colour should cache the result.
+     */
+    static ParticleOptions entityEffect(double r, double g, double b) {
+        if (!colorFactoryResolved) {
+            colorFactory = resolveColorFactory();
+            colorFactoryResolved = true;
+        }
+        if (colorFactory == null) return null;
+        try {
+            return colorFactory.create((float) r, (float) g, (float) b);
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+
+    private static Sink resolveSink(Class<?> levelClass) {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+        // Prefer: addParticle(ParticleOptions, force=true, x,y,z, dx,dy,dz)
+        try {
+            Method m = levelClass.getMethod(
+                    "addParticle",
+                    ParticleOptions.class,
+                    boolean.class,
+                    double.class, double.class, double.class,
+                    double.class, double.class, double.class
+            );
+            MethodHandle h = lookup.unreflect(m).asType(FORCED_SINK_TYPE);
+            return (level, opts, x, y, z) -> {
+                h.invokeExact(level, opts, true, x, y, z, 0.0, 0.0, 0.0);
+            };
+        } catch (Throwable ignored) {
+        }
+
+        // Fallback: addAlwaysVisibleParticle(ParticleOptions, x,y,z, dx,dy,dz)
+        try {
+            Method m = levelClass.getMethod(
+                    "addAlwaysVisibleParticle",
+                    ParticleOptions.class,
+                    double.class, double.class, double.class,
+                    double.class, double.class, double.class
+            );
+            MethodHandle h = lookup.unreflect(m).asType(SINK_TYPE);
+            return (level, opts, x, y, z) -> {
+                h.invokeExact(level, opts, x, y, z, 0.0, 0.0, 0.0);
+            };
+        } catch (Throwable ignored) {
+        }
+
+        return PLAIN;
+    }
+
+    /**
+     * Different MC versions expose ColorParticleOption either via create(...) or a constructor.
+     * We use reflection so the project compiles across mappings, but only once.
+     */
+    private static ColorFactory resolveColorFactory() {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        Class<?> c;
+        try {
+            c = Class.forName("net.minecraft.core.particles.ColorParticleOption");
+        } catch (Throwable ignored) {
+            return null;
+        }
+
+        // Try static create(ParticleType, float,float,float)
+        try {
+            Method m = c.getMethod("create", ParticleType.class, float.class, float.class, float.class);
+            MethodHandle h = lookup.unreflect(m).asType(MethodType.methodType(
+                    ParticleOptions.class, ParticleType.class, float.class, float.class, float.class));
+            return (r, g, b) -> (ParticleOptions) h.invokeExact((ParticleType<?>) ParticleTypes.ENTITY_EFFECT, r, g, b);
+        } catch (Throwable ignored) {
+        }
+
+        // Try static create(ParticleType, float,float,float,float)
+        try {
+            Method m = c.getMethod("create", ParticleType.class, float.class, float.class, float.class, float.class);
+            MethodHandle h = lookup.unreflect(m).asType(MethodType.methodType(
+                    ParticleOptions.class, ParticleType.class, float.class, float.class, float.class, float.class));
+            return (r, g, b) -> (ParticleOptions) h.invokeExact((ParticleType<?>) ParticleTypes.ENTITY_EFFECT, r, g, b, 1.0f);
+        } catch (Throwable ignored) {
+        }
+
+        // Try constructor(float,float,float) or (float,float,float,float)
+        for (Constructor<?> ctor : c.getConstructors()) {
+            Class<?>[] p = ctor.getParameterTypes();
+            try {
+                if (p.length == 3 && p[0] == float.class && p[1] == float.class && p[2] == float.class) {
+                    MethodHandle h = lookup.unreflectConstructor(ctor).asType(MethodType.methodType(
+                            ParticleOptions.class, float.class, float.class, float.class));
+                    return (r, g, b) -> (ParticleOptions) h.invokeExact(r, g, b);
+                }
+                if (p.length == 4 && p[0] == float.class && p[1] == float.class && p[2] == float.class && p[3] == float.class) {
+                    MethodHandle h = lookup.unreflectConstructor(ctor).asType(MethodType.methodType(
+                            ParticleOptions.class, float.class, float.class, float.class, float.class));
+                    return (r, g, b) -> (ParticleOptions) h.invokeExact(r, g, b, 1.0f);
+                }
+            } catch (Throwable ignored) {
+            }
+        }
+        return null;
+    }
+}
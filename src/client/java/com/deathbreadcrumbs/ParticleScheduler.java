@@ -0,0 +1,144 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.world.phys.Vec3;
+
+/**
+ * Decides which of the particles the renderer wants this tick are actually spawned.
+ *
+ * <p>Crumbs are forced-visible, so vanilla culls none of them and each END_ROD lives for about three seconds; emitting
+ * every crumb every tick keeps far more particles alive than the trail needs. Per tick the scheduler:
+ * <ul>
+ *   <li>skips positions outside a cone around the view direction (a cheap stand-in for the frustum; anything within
+ *       {@link #CULL_MIN_DIST} is kept so crumbs don't pop when turning around);</li>
+ *   <li>emits each crumb only every {@link #NEAR_PERIOD} / {@link #MID_PERIOD} / {@link #FAR_PERIOD} ticks depending on
+ *       its distance, with a per-position phase, so emissions are spread evenly over the ticks;</li>
+ *   <li>stops at a global budget of {@link #BUDGET} particles, scaled down towards {@link #MIN_BUDGET} as the
+ *       (smoothed) frame rate falls from {@link #TARGET_FPS} to {@link #LOW_FPS}; the debug view of all checkpoints
+ *       gets {@link #DEBUG_FACTOR} times that.</li>
+ * </ul>
+ * The goal marker is asked first and may use at most half the budget; crumbs come next in path order (nearest ahead
+ * first), so a tight budget drops the far end of the trail.
+ *
+ * <p>Package-private on purpose (only used by DeathBreadcrumbsClient).
+ */
+final class ParticleScheduler {
+
+    static final int BUDGET = 24;     // particles per tick
+    static final int MIN_BUDGET = 6;
+    static final int DEBUG_FACTOR = 8;
+    static final int TARGET_FPS = 60;
+    static final int LOW_FPS = 25;
+
+    static final double NEAR_DIST = 16.0; // blocks
+    static final double FAR_DIST = 40.0;  // blocks
+    static final int NEAR_PERIOD = 2;     // ticks
+    static final int MID_PERIOD = 4;
+    static final int FAR_PERIOD = 8;
+
+    static final double VIEW_HALF_ANGLE_DEG = 75.0;
+    static final double CULL_MIN_DIST = 4.0; // blocks
+    private static final double VIEW_COS = Math.cos(Math.toRadians(VIEW_HALF_ANGLE_DEG));
+    private static final double FPS_SMOOTHING = 0.1;
+
+    private long tick;
+    private double eyeX, eyeY, eyeZ;
+    private Vec3 look;
+    private double fps = 0.0;
+    private int budget = BUDGET;
+    private int used;
+
+    // Stats (since start)
+    private long emitted;
+    private long culled;
+    private long deferred;
+    private long overBudget;
+
+    /**
+     * Starts a tick. {@code look} may be null (no culling); {@code fps <= 0} means unknown (no back-off).
+     */
+    void beginTick(long tick, Vec3 eye, Vec3 look, int fps, boolean debug) {
+        this.tick = tick;
+        this.eyeX = eye.x;
+        this.eyeY = eye.y;
+        this.eyeZ = eye.z;
+        this.look = look;
+        this.used = 0;
+
+        double t = 1.0;
+        if (fps <= 0) {
+            this.fps = 0.0;
+        } else {
+            this.fps = (this.fps <= 0.0) ? fps : this.fps + (fps - this.fps) * FPS_SMOOTHING;
+            t = Math.max(0.0, Math.min(1.0, (this.fps - LOW_FPS) / (double) (TARGET_FPS - LOW_FPS)));
+        }
+        budget = MIN_BUDGET + (int) Math.round((BUDGET - MIN_BUDGET) * t);
+        if (debug) budget *= DEBUG_FACTOR;
+    }
+
+    /** How many of the {@code wanted} goal marker particles around {@code center} to spawn this tick. */
+    int goalParticles(Vec3 center, int wanted) {
+        double d2 = dist2(center.x, center.y, center.z);
+        if (!inView(center.x, center.y, center.z, d2)) {
+            culled += wanted;
+            return 0;
+        }
+        int n = wanted;
+        if (d2 > FAR_DIST * FAR_DIST) n = Math.max(1, wanted / 3);
+        else if (d2 > NEAR_DIST * NEAR_DIST) n = Math.max(1, wanted / 2);
+        n = Math.min(n, Math.max(1, budget / 2) - used);
+        if (n <= 0) {
+            overBudget += wanted;
+            return 0;
+        }
+        deferred += wanted - n;
+        used += n;
+        emitted += n;
+        return n;
+    }
+
+    /** True if a crumb at this position is spawned this tick (the caller then spawns exactly one). */
+    boolean crumb(double x, double y, double z) {
+        double d2 = dist2(x, y, z);
+        if (!inView(x, y, z, d2)) {
+            culled++;
+            return false;
+        }
+        int period = (d2 <= NEAR_DIST * NEAR_DIST) ? NEAR_PERIOD : (d2 <= FAR_DIST * FAR_DIST) ? MID_PERIOD : FAR_PERIOD;
+        if (Math.floorMod(tick + phase(x, z), period) != 0) {
+            deferred++;
+            return false;
+        }
+        if (used >= budget) {
+            overBudget++;
+            return false;
+        }
+        used++;
+        emitted++;
+        return true;
+    }
+
+    String describe() {
+        return "budget=" + budget + "/tick" + ((fps > 0.0) ? " @" + Math.round(fps) + "fps" : "")
+                + ", emitted=" + emitted + ", culled=" + culled + ", spread=" + deferred + ", overBudget=" + overBudget;
+    }
+
+    private double dist2(double x, double y, double z) {
+        double dx = x - eyeX;
+        double dy = y - eyeY;
+        double dz = z - eyeZ;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private boolean inView(double x, double y, double z, double d2) {
+        if (look == null || d2 <= CULL_MIN_DIST * CULL_MIN_DIST) return true;
+        double dot = (x - eyeX) * look.x + (y - eyeY) * look.y + (z - eyeZ) * look.z;
+        // cos(angle) >= VIEW_COS, without the square root: dot >= VIEW_COS * |v| (look is a unit vector).
+        return dot >= 0.0 && dot * dot >= VIEW_COS * VIEW_COS * d2;
+    }
+
+    /** Stable per-block phase, so a crumb keeps its slot while the path around it shifts. */
+    private static int phase(double x, double z) {
+        int h = (int) Math.floor(x) * 73856093 ^ (int) Math.floor(z) * 19349663;
+        return h & 0x7fffffff;
+    }
+}
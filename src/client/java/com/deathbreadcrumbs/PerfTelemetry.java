@@ -0,0 +1,303 @@
+package com.deathbreadcrumbs;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Opt-in timing and allocation telemetry of the client tick and the background jobs.
+ *
+ * <p>Every section (a tick stage, the whole tick, a builder job, ...) keeps a rolling histogram of its durations:
+ * {@link #EPOCHS} epochs of {@link #EPOCH_NANOS} each, with log-scale buckets (four per power of two, so a
+ * percentile reads at most 25% high). Recording is O(1) and allocation free, and the memory is fixed. Bytes allocated
+ * by the recording thread are summed per epoch as well (com.sun.management, if the JVM supports it). That counter is
+ * a JVM-wide switch: it is turned on only while telemetry is enabled, and left as it was found afterwards.
+ *
+ * <p>While disabled the callers only read {@link #enabled()}; nothing is timed or recorded.
+ * Package-private on purpose (only used by DeathBreadcrumbsClient).
+ */
+final class PerfTelemetry {
+
+    /** The histogram covers the last {@code EPOCHS * EPOCH_NANOS} (one minute). */
+    static final int EPOCHS = 6;
+    static final long EPOCH_NANOS = 10_000_000_000L;
+
+    // Bucket 0 is everything below 2^MIN_SHIFT ns; then four buckets per octave up to ~2^(MIN_SHIFT + OCTAVES) ns.
+    private static final int MIN_SHIFT = 8;  // 256 ns
+    private static final int OCTAVES = 24;   // up to ~4.3 s
+    private static final int BUCKETS = 1 + OCTAVES * 4;
+
+    static final String CSV_HEADER = "section,samples,p50_us,p90_us,p99_us,max_us,mean_us,alloc_mean_b,alloc_max_b";
+
+    /** Summary of one section over the histogram window. */
+    static final class Stats {
+        final String name;
+        final long samples;
+        final long p50Nanos;
+        final long p90Nanos;
+        final long p99Nanos;
+        final long maxNanos;
+        final long meanNanos;
+        final long allocMeanBytes; // -1: not measured
+        final long allocMaxBytes;
+
+        Stats(String name, long samples, long p50Nanos, long p90Nanos, long p99Nanos, long maxNanos, long meanNanos,
+              long allocMeanBytes, long allocMaxBytes) {
+            this.name = name;
+            this.samples = samples;
+            this.p50Nanos = p50Nanos;
+            this.p90Nanos = p90Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+            this.meanNanos = meanNanos;
+            this.allocMeanBytes = allocMeanBytes;
+            this.allocMaxBytes = allocMaxBytes;
+        }
+    }
+
+    private static final class Section {
+        final String name;
+        final int[][] counts = new int[EPOCHS][BUCKETS];
+        final long[] samples = new long[EPOCHS];
+        final long[] sumNanos = new long[EPOCHS];
+        final long[] maxNanos = new long[EPOCHS];
+        final long[] sumBytes = new long[EPOCHS];
+        final long[] maxBytes = new long[EPOCHS];
+        long epochStart;
+        int epoch;
+
+        Section(String name) {
+            this.name = name;
+        }
+
+        /** Moves to the epoch containing {@code now}, clearing the ones that fell out of the window. */
+        void roll(long now) {
+            long elapsed = now - epochStart;
+            if (elapsed < EPOCH_NANOS) return;
+            long steps = elapsed / EPOCH_NANOS;
+            for (long s = 0; s < Math.min(steps, EPOCHS); s++) {
+                epoch = (epoch + 1) % EPOCHS;
+                Arrays.fill(counts[epoch], 0);
+                samples[epoch] = 0;
+                sumNanos[epoch] = 0;
+                maxNanos[epoch] = 0;
+                sumBytes[epoch] = 0;
+                maxBytes[epoch] = 0;
+            }
+            epochStart += steps * EPOCH_NANOS;
+        }
+
+        void clear(long now) {
+            for (int e = 0; e < EPOCHS; e++) {
+                Arrays.fill(counts[e], 0);
+                samples[e] = 0;
+                sumNanos[e] = 0;
+                maxNanos[e] = 0;
+                sumBytes[e] = 0;
+                maxBytes[e] = 0;
+            }
+            epoch = 0;
+            epochStart = now;
+        }
+    }
+
+    private final Section[] sections;
+    private final com.sun.management.ThreadMXBean threads;
+
+    private volatile boolean enabled = false;
+    private boolean hud = false;
+    // Allocation accounting is on while enabled; allocationSwitched: we turned it on (and turn it off again).
+    private volatile boolean allocationOn = false;
+    private boolean allocationSwitched = false;
+
+    PerfTelemetry(String... sectionNames) {
+        sections = new Section[sectionNames.length];
+        long now = System.nanoTime();
+        for (int i = 0; i < sections.length; i++) {
+            sections[i] = new Section(sectionNames[i]);
+            sections[i].clear(now);
+        }
+
+        com.sun.management.ThreadMXBean mx = null;
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean t
+                    && t.isThreadAllocatedMemorySupported()) {
+                mx = t;
+            }
+        } catch (Throwable ignored) {
+            // Timings only.
+        }
+        threads = mx;
+    }
+
+    boolean enabled() {
+        return enabled;
+    }
+
+    /** Turning telemetry on starts from empty histograms. */
+    void setEnabled(boolean on) {
+        if (on == enabled) return;
+        if (on) {
+            reset();
+            allocationSwitched = switchAllocation(true);
+            allocationOn = threads != null && threads.isThreadAllocatedMemoryEnabled();
+        } else {
+            hud = false;
+            allocationOn = false;
+            if (allocationSwitched) switchAllocation(false);
+            allocationSwitched = false;
+        }
+        enabled = on;
+    }
+
+    /** Sets thread allocation accounting; true if this call changed it. */
+    private boolean switchAllocation(boolean on) {
+        if (threads == null) return false;
+        try {
+            if (threads.isThreadAllocatedMemoryEnabled() == on) return false;
+            threads.setThreadAllocatedMemoryEnabled(on);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    boolean hud() {
+        return hud;
+    }
+
+    void setHud(boolean on) {
+        hud = on;
+    }
+
+    void reset() {
+        long now = System.nanoTime();
+        for (Section s : sections) {
+            synchronized (s) {
+                s.clear(now);
+            }
+        }
+    }
+
+    /** Bytes allocated so far by the calling thread (0 if the JVM cannot tell or accounting is off). */
+    long allocatedBytes() {
+        return allocationOn ? threads.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    boolean measuresAllocation() {
+        return allocationOn;
+    }
+
+    /** Records one run of {@code section}; safe from any thread. */
+    void record(int section, long nanos, long bytes) {
+        Section s = sections[section];
+        long now = System.nanoTime();
+        synchronized (s) {
+            s.roll(now);
+            int e = s.epoch;
+            s.counts[e][bucket(nanos)]++;
+            s.samples[e]++;
+            s.sumNanos[e] += nanos;
+            if (nanos > s.maxNanos[e]) s.maxNanos[e] = nanos;
+            s.sumBytes[e] += bytes;
+            if (bytes > s.maxBytes[e]) s.maxBytes[e] = bytes;
+        }
+    }
+
+    /** Runs {@code job} and records it under {@code section} if telemetry is on (for the builder thread). */
+    void measure(int section, Runnable job) {
+        if (!enabled) {
+            job.run();
+            return;
+        }
+        long t0 = System.nanoTime();
+        long a0 = allocatedBytes();
+        try {
+            job.run();
+        } finally {
+            record(section, System.nanoTime() - t0, allocatedBytes() - a0);
+        }
+    }
+
+    /** Per-section summary over the histogram window (sections without samples included). */
+    List<Stats> snapshot() {
+        ArrayList<Stats> out = new ArrayList<>(sections.length);
+        long now = System.nanoTime();
+        int[] merged = new int[BUCKETS];
+        for (Section s : sections) {
+            Arrays.fill(merged, 0);
+            long n = 0, sum = 0, max = 0, bytes = 0, maxBytes = 0;
+            synchronized (s) {
+                s.roll(now);
+                for (int e = 0; e < EPOCHS; e++) {
+                    int[] c = s.counts[e];
+                    for (int b = 0; b < BUCKETS; b++) merged[b] += c[b];
+                    n += s.samples[e];
+                    sum += s.sumNanos[e];
+                    max = Math.max(max, s.maxNanos[e]);
+                    bytes += s.sumBytes[e];
+                    maxBytes = Math.max(maxBytes, s.maxBytes[e]);
+                }
+            }
+            boolean alloc = measuresAllocation();
+            long allocMean = !alloc ? -1 : (n == 0) ? 0 : bytes / n;
+            out.add(new Stats(s.name, n,
+                    percentile(merged, n, 0.50, max), percentile(merged, n, 0.90, max), percentile(merged, n, 0.99, max),
+                    max, (n == 0) ? 0 : sum / n, allocMean, alloc ? maxBytes : -1));
+        }
+        return out;
+    }
+
+    /** One line per section that has samples: {@code NAME p50/p99/max us, alloc B}. */
+    List<String> describeLines() {
+        ArrayList<String> lines = new ArrayList<>();
+        for (Stats st : snapshot()) {
+            if (st.samples == 0) continue;
+            String line = String.format(Locale.ROOT, "%s p50=%.1f p99=%.1f max=%.1f us (n=%d)", st.name,
+                    st.p50Nanos / 1e3, st.p99Nanos / 1e3, st.maxNanos / 1e3, st.samples);
+            if (st.allocMeanBytes >= 0) line += ", alloc=" + st.allocMeanBytes + "B avg/" + st.allocMaxBytes + "B max";
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    byte[] toCsv() {
+        StringBuilder sb = new StringBuilder(CSV_HEADER).append('\n');
+        for (Stats st : snapshot()) {
+            sb.append(String.format(Locale.ROOT, "%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%d%n", st.name, st.samples,
+                    st.p50Nanos / 1e3, st.p90Nanos / 1e3, st.p99Nanos / 1e3, st.maxNanos / 1e3, st.meanNanos / 1e3,
+                    st.allocMeanBytes, st.allocMaxBytes));
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int bucket(long nanos) {
+        if (nanos < (1L << MIN_SHIFT)) return 0;
+        int octave = 63 - Long.numberOfLeadingZeros(nanos); // >= MIN_SHIFT
+        int sub = (int) (nanos >>> (octave - 2)) & 3;
+        return Math.min(BUCKETS - 1, 1 + (octave - MIN_SHIFT) * 4 + sub);
+    }
+
+    /** Upper bound of bucket {@code b} (exclusive). */
+    private static long bucketLimit(int b) {
+        if (b == 0) return 1L << MIN_SHIFT;
+        int octave = MIN_SHIFT + (b - 1) / 4;
+        int sub = (b - 1) % 4;
+        return (long) (5 + sub) << (octave - 2);
+    }
+
+    /** Value at quantile {@code q}: the upper bound of its bucket, capped by the exact maximum. */
+    private static long percentile(int[] counts, long n, double q, long max) {
+        if (n == 0) return 0;
+        long rank = (long) Math.ceil(q * n);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) return Math.min(bucketLimit(b), max);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,69 @@
+package com.deathbreadcrumbs;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Position / death trace of a play session, one CSV line per client tick ({@value #HEADER}).
+ *
+ * <p>Recorded in game with {@code /deathbreadcrumbs trace} and fed back by the headless replay harness. Deaths
+ * are not stored separately: the player died where {@code alive} drops to 0.
+ * Package-private on purpose (only used by DeathBreadcrumbsClient and the replay harness).
+ */
+final class ReplayTrace {
+
+    static final String HEADER = "tick,dimension,x,y,z,alive";
+
+    static final class Sample {
+        final long tick;
+        final String dimId;
+        final double x;
+        final double y;
+        final double z;
+        final boolean alive;
+
+        Sample(long tick, String dimId, double x, double y, double z, boolean alive) {
+            this.tick = tick;
+            this.dimId = dimId;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.alive = alive;
+        }
+    }
+
+    private ReplayTrace() {
+    }
+
+    static void appendLine(StringBuilder out, long tick, String dimId, double x, double y, double z, boolean alive) {
+        out.append(tick).append(',').append(dimId).append(',')
+                .append(String.format(Locale.ROOT, "%.3f,%.3f,%.3f", x, y, z))
+                .append(',').append(alive ? '1' : '0').append('\n');
+    }
+
+    /** Reads a trace; malformed lines (and the header) are skipped. */
+    static List<Sample> read(Path file) throws IOException {
+        ArrayList<Sample> samples = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] f = line.split(",");
+                if (f.length < 6) continue;
+                try {
+                    samples.add(new Sample(Long.parseLong(f[0].trim()), f[1].trim(),
+                            Double.parseDouble(f[2]), Double.parseDouble(f[3]), Double.parseDouble(f[4]),
+                            !"0".equals(f[5].trim())));
+                } catch (NumberFormatException ignored) {
+                    // header or garbage
+                }
+            }
+        }
+        return samples;
+    }
+}
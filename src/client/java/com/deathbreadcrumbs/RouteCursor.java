@@ -0,0 +1,102 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.world.phys.Vec3;
+
+/**
+ * Per-route cursor that exploits temporal coherence while the player walks a {@link GraphRoute}.
+ *
+ * <p>The closest node rarely jumps far between ticks, so instead of a global nearest-node query the cursor
+ * descends from the previous start node through its graph neighbors. It falls back to the global query when the
+ * player teleports or walks off the graph. When the start node is unchanged the previous
+ * {@link BreadcrumbPath} is returned as-is, so steady-state rendering allocates nothing.
+ * Package-private on purpose (only used by DeathBreadcrumbsClient).
+ */
+final class RouteCursor {
+
+    /** Moving further than this between two queries counts as a teleport. */
+    private static final double TELEPORT_DIST = 16.0; // blocks
+    private static final double TELEPORT_DIST2 = TELEPORT_DIST * TELEPORT_DIST;
+    /** If the local minimum is further than this, the player is off the graph: ask the global index. */
+    private static final double LOCAL_MAX_DIST2 = GraphRoute.CONNECT_DIST * GraphRoute.CONNECT_DIST;
+    private static final int MAX_DESCENT_STEPS = 64;
+
+    private GraphRoute graph = null;
+    private int lastStart = -1;
+    private double lastX;
+    private double lastY;
+    private double lastZ;
+    private BreadcrumbPath lastPath = null;
+    private int lastMaxCrumbs = -1;
+
+    BreadcrumbPath pathFrom(GraphRoute route, Vec3 position, int maxCrumbs) {
+        if (route == null || position == null) return null;
+
+        if (route != graph) {
+            graph = route;
+            lastStart = -1;
+            lastPath = null;
+        }
+
+        double x = position.x;
+        double y = position.y;
+        double z = position.z;
+
+        int start = -1;
+        if (lastStart >= 0) {
+            double mx = x - lastX;
+            double my = y - lastY;
+            double mz = z - lastZ;
+            if (mx * mx + my * my + mz * mz <= TELEPORT_DIST2) {
+                start = descend(route, lastStart, x, y, z);
+            }
+        }
+        if (start < 0) {
+            start = route.nearestReachable(x, y, z);
+        }
+
+        lastX = x;
+        lastY = y;
+        lastZ = z;
+        if (start < 0) {
+            lastStart = -1;
+            lastPath = null;
+            return null;
+        }
+
+        if (start != lastStart || lastPath == null || maxCrumbs != lastMaxCrumbs) {
+            lastPath = route.pathFromNode(start, maxCrumbs);
+            lastMaxCrumbs = maxCrumbs;
+        }
+        lastStart = start;
+        return lastPath;
+    }
+
+    /**
+     * Greedy descent over reachable graph neighbors. Returns -1 if the result is not trustworthy (too far from the
+     * player, or too many steps), in which case the caller should use the global index.
+     */
+    private static int descend(GraphRoute route, int from, double x, double y, double z) {
+        int cur = from;
+        double curD2 = route.dist2To(cur, x, y, z);
+
+        for (int step = 0; step < MAX_DESCENT_STEPS; step++) {
+            int best = cur;
+            double bestD2 = curD2;
+            for (int k = route.edgeStart(cur), end = route.edgeEnd(cur); k < end; k++) {
+                int v = route.edgeTarget(k);
+                if (!route.isReachable(v)) continue;
+                double d2 = route.dist2To(v, x, y, z);
+                if (d2 < bestD2) {
+                    bestD2 = d2;
+                    best = v;
+                }
+            }
+            if (best == cur) {
+                return (curD2 <= LOCAL_MAX_DIST2) ? cur : -1;
+            }
+            cur = best;
+            curD2 = bestD2;
+        }
+        return -1;
+    }
+}
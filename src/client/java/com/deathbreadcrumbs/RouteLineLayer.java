@@ -0,0 +1,141 @@
+package com.deathbreadcrumbs;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import net.fabricmc.fabric.api.client.rendering.v1.world.WorldRenderContext;
+import net.minecraft.client.Camera;
+import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.world.phys.Vec3;
+
+/**
+ * Draws the route ahead as one line strip in the world instead of particle crumbs.
+ *
+ * <p>The geometry (segment end points relative to the first node, unit directions for the line normals, and a
+ * brightness that fades along the route) is built on the tick thread, and only when the start node changes: the
+ * nodes are read straight from the {@link GraphRoute} into a fixed coordinate buffer, at most {@link #MAX_NODES} of
+ * them and {@link #MAX_LENGTH} blocks ahead, so a rebuild allocates nothing. Each frame just copies the prepared
+ * floats into the batched {@link RenderType#lines()} buffer of the world renderer, so the whole route costs one draw
+ * call however long it is.
+ * Package-private on purpose (only used by DeathBreadcrumbsClient).
+ */
+final class RouteLineLayer {
+
+    /** Nodes drawn at most (the particle renderer shows {@code CRUMBS_COUNT}). */
+    static final int MAX_NODES = 256;
+    /** How far ahead the line reaches, along the route. */
+    static final double MAX_LENGTH = 160.0; // blocks
+
+    private static final int COLOR_R = 255;
+    private static final int COLOR_G = 244;
+    private static final int COLOR_B = 214;
+    private static final int ALPHA_NEAR = 230;
+    private static final int ALPHA_FAR = 70;
+
+    private boolean enabled = false;
+
+    // Prepared geometry of the path from `start` over `graph`: per segment 2 x (x, y, z) relative to the origin,
+    // (nx, ny, nz) and an alpha.
+    private GraphRoute graph = null;
+    private int start = -1;
+    private final double[] coords = new double[MAX_NODES * 3];
+    private double originX, originY, originZ;
+    private final float[] ends = new float[(MAX_NODES - 1) * 6];
+    private final float[] normals = new float[(MAX_NODES - 1) * 3];
+    private final int[] alphas = new int[MAX_NODES - 1];
+    private int segments = 0;
+    private long rebuilds = 0;
+
+    boolean enabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean on) {
+        enabled = on;
+        if (!on) update(null, -1, 0.0);
+    }
+
+    /** Shows the path from node {@code start} over {@code graph} (null: nothing); rebuilds only if either changed. */
+    void update(GraphRoute graph, int start, double yOffset) {
+        if (graph == this.graph && start == this.start) return;
+        this.graph = graph;
+        this.start = start;
+        segments = 0;
+        if (graph == null) return;
+
+        int n = graph.pathCoords(start, MAX_NODES, MAX_LENGTH, coords);
+        if (n < 2) return;
+        int segs = n - 1;
+
+        originX = coords[0];
+        originY = coords[1] + yOffset;
+        originZ = coords[2];
+        for (int i = 0; i < segs; i++) {
+            int c = i * 3;
+            float ax = (float) (coords[c] - coords[0]);
+            float ay = (float) (coords[c + 1] - coords[1]);
+            float az = (float) (coords[c + 2] - coords[2]);
+            float bx = (float) (coords[c + 3] - coords[0]);
+            float by = (float) (coords[c + 4] - coords[1]);
+            float bz = (float) (coords[c + 5] - coords[2]);
+            float dx = bx - ax;
+            float dy = by - ay;
+            float dz = bz - az;
+            float len = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+            if (len < 1e-4f) {
+                dx = 0f;
+                dy = 1f;
+                dz = 0f;
+                len = 1f;
+            }
+
+            int e = segments * 6;
+            ends[e] = ax;
+            ends[e + 1] = ay;
+            ends[e + 2] = az;
+            ends[e + 3] = bx;
+            ends[e + 4] = by;
+            ends[e + 5] = bz;
+            int m = segments * 3;
+            normals[m] = dx / len;
+            normals[m + 1] = dy / len;
+            normals[m + 2] = dz / len;
+            alphas[segments] = ALPHA_NEAR + (ALPHA_FAR - ALPHA_NEAR) * i / Math.max(1, segs - 1);
+            segments++;
+        }
+        rebuilds++;
+    }
+
+    /** World render callback: emits the prepared segments (nothing if disabled or no route is shown). */
+    void render(WorldRenderContext context) {
+        if (!enabled || segments == 0) return;
+        PoseStack matrices = context.matrices();
+        MultiBufferSource consumers = context.consumers();
+        if (matrices == null || consumers == null) return;
+        Camera camera = context.gameRenderer().getMainCamera();
+        if (camera == null) return;
+        Vec3 cam = camera.position();
+
+        VertexConsumer lines = consumers.getBuffer(RenderType.lines());
+        matrices.pushPose();
+        matrices.translate(originX - cam.x, originY - cam.y, originZ - cam.z);
+        PoseStack.Pose pose = matrices.last();
+        for (int s = 0; s < segments; s++) {
+            int e = s * 6;
+            int m = s * 3;
+            int a = alphas[s];
+            lines.addVertex(pose, ends[e], ends[e + 1], ends[e + 2])
+                    .setColor(COLOR_R, COLOR_G, COLOR_B, a)
+                    .setNormal(pose, normals[m], normals[m + 1], normals[m + 2]);
+            lines.addVertex(pose, ends[e + 3], ends[e + 4], ends[e + 5])
+                    .setColor(COLOR_R, COLOR_G, COLOR_B, a)
+                    .setNormal(pose, normals[m], normals[m + 1], normals[m + 2]);
+        }
+        matrices.popPose();
+    }
+
+    String describe() {
+        if (!enabled) return "off";
+        return segments + " segments, " + rebuilds + " rebuilds";
+    }
+}
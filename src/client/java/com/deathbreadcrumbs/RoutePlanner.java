@@ -0,0 +1,343 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.world.phys.Vec3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Visiting order for several queued deaths in the same dimension.
+ *
+ * <p>The routes' point chains are merged into one {@link GraphRoute} (proximity edges join routes that cross or
+ * overlap). The cost matrix of an open tour that starts at the player is filled with A* distances between the deaths
+ * ({@link GraphRoute#pathLength}), which only expand the part of the graph between two stops. Small queues are ordered
+ * exactly (Held-Karp); larger ones start from the previous tour, with new deaths put where they add the least
+ * (cheapest insertion), or from nearest neighbor if there is no previous tour, and are then improved by 2-opt. Only
+ * the first leg, the one the breadcrumbs follow, is solved as a full shortest-path tree, since the player may leave it
+ * anywhere. When every death lies on the shared navigation graph of the dimension (all recorded lives, see
+ * {@link com.deathbreadcrumbs.nav.PointDatabase#navGraph}), that graph is used instead of merging the routes, so the
+ * tour can also take shortcuts over older trails.
+ *
+ * <p>Plans are computed on the route builder thread and are immutable. Reaching a death re-plans the rest from the
+ * previous tour; costs between deaths are reused while the graph is the same, so that re-plan only searches from the
+ * player and solves the next leg's tree.
+ * Package-private on purpose (only used by DeathBreadcrumbsClient).
+ */
+final class RoutePlanner {
+
+    /** Up to this many deaths the order is exact. */
+    static final int EXACT_MAX = 9;
+    private static final int TWO_OPT_MAX_PASSES = 32;
+    /** Legs between disconnected parts of the graph cost their straight-line distance times this. */
+    private static final double DISCONNECTED_FACTOR = 2.0;
+
+    /** One queued death: its route points, the last one being the death position. */
+    static final class Target {
+        final long id;
+        final List<Vec3> points;
+
+        Target(long id, List<Vec3> points) {
+            this.id = id;
+            this.points = points;
+        }
+    }
+
+    static final class Plan {
+        final long generation;
+        private final long[] order;
+        /** Death node of each stop in {@link #graph}. */
+        private final int[] nodes;
+        /** {@code between[i][j]}: cost from stop {@code i} to stop {@code j}. */
+        private final double[][] between;
+        private final GraphRoute graph;
+        /** Tree towards the first stop. */
+        private final GraphRoute leg;
+        /** Estimated tour length from the player over all deaths (blocks). */
+        final double length;
+        final boolean exact;
+
+        private Plan(long generation, long[] order, int[] nodes, double[][] between, GraphRoute graph, GraphRoute leg,
+                     double length, boolean exact) {
+            this.generation = generation;
+            this.order = order;
+            this.nodes = nodes;
+            this.between = between;
+            this.graph = graph;
+            this.leg = leg;
+            this.length = length;
+            this.exact = exact;
+        }
+
+        int size() {
+            return order.length;
+        }
+
+        /** Route id of the {@code i}-th death to visit. */
+        long idAt(int i) {
+            return order[i];
+        }
+
+        /** Graph leading to the death of route {@code id} if it is the first stop, otherwise null. */
+        GraphRoute legFor(long id) {
+            return (order[0] == id) ? leg : null;
+        }
+
+        private int indexOf(long id) {
+            for (int i = 0; i < order.length; i++) {
+                if (order[i] == id) return i;
+            }
+            return -1;
+        }
+    }
+
+    private RoutePlanner() {
+    }
+
+    /**
+     * Plans a tour over {@code targets} starting at {@code start}; null if there is nothing to order.
+     *
+     * @param nav shared navigation graph of the targets' dimension, or null to merge the routes themselves
+     * @param previous the last plan of the same dimension (seeds the order and its costs), or null
+     */
+    static Plan plan(long generation, List<Target> targets, Vec3 start, GraphRoute nav, Plan previous) {
+        final int k = targets.size();
+        if (k < 2 || start == null) return null;
+        for (Target t : targets) {
+            if (t.points == null || t.points.isEmpty()) return null;
+        }
+
+        int[] deathNode = new int[k];
+        GraphRoute merged = (nav != null) ? mapOnto(nav, targets, deathNode) : null;
+        if (merged == null) {
+            ArrayList<List<Vec3>> chains = new ArrayList<>(k);
+            int n = 0;
+            for (int t = 0; t < k; t++) {
+                List<Vec3> pts = targets.get(t).points;
+                chains.add(pts);
+                n += pts.size();
+                deathNode[t] = n - 1;
+            }
+            merged = GraphRoute.buildMerged(chains);
+            if (merged == null) return null;
+        }
+
+        // Stop of each target in the previous plan (-1: new), if its costs can be reused.
+        int[] prevStop = new int[k];
+        Arrays.fill(prevStop, -1);
+        if (previous != null) {
+            for (int t = 0; t < k; t++) {
+                int i = previous.indexOf(targets.get(t).id);
+                if (i >= 0 && previous.graph == merged && previous.nodes[i] == deathNode[t]) prevStop[t] = i;
+            }
+        }
+
+        // cost[0][*]: from the player; cost[a + 1][b + 1]: from death a to death b.
+        int startNode = merged.nearestIndex(start.x, start.y, start.z);
+        double[][] cost = new double[k + 1][k + 1];
+        for (int b = 0; b < k; b++) {
+            cost[0][b + 1] = legCost(merged, startNode, deathNode[b]);
+            for (int a = 0; a < k; a++) {
+                if (a == b) continue;
+                cost[a + 1][b + 1] = (prevStop[a] >= 0 && prevStop[b] >= 0)
+                        ? previous.between[prevStop[a]][prevStop[b]]
+                        : legCost(merged, deathNode[a], deathNode[b]);
+            }
+        }
+
+        boolean exact = k <= EXACT_MAX;
+        int[] tour;
+        if (exact) {
+            tour = exactOrder(cost);
+        } else if (previous != null) {
+            tour = twoOpt(cost, insertionOrder(cost, seedOrder(targets, previous)));
+        } else {
+            tour = heuristicOrder(cost);
+        }
+
+        long[] order = new long[k];
+        int[] nodes = new int[k];
+        double[][] between = new double[k][k];
+        for (int i = 0; i < k; i++) {
+            int t = tour[i] - 1;
+            order[i] = targets.get(t).id;
+            nodes[i] = deathNode[t];
+            for (int j = 0; j < k; j++) between[i][j] = cost[tour[i]][tour[j]];
+        }
+        GraphRoute leg = merged.towards(nodes[0]);
+        return new Plan(generation, order, nodes, between, merged, leg, pathCost(cost, tour), exact);
+    }
+
+    /** Maps every death onto a node of {@code nav} (filling {@code deathNode}); null if one is too far off it. */
+    private static GraphRoute mapOnto(GraphRoute nav, List<Target> targets, int[] deathNode) {
+        for (int t = 0; t < targets.size(); t++) {
+            List<Vec3> pts = targets.get(t).points;
+            deathNode[t] = nav.nodeNear(pts.get(pts.size() - 1), GraphRoute.CONNECT_DIST);
+            if (deathNode[t] < 0) return null;
+        }
+        return nav;
+    }
+
+    private static double legCost(GraphRoute merged, int from, int to) {
+        if (from < 0) return 0.0;
+        // Searched from the death, like the tree the breadcrumbs follow (edge lists may be slightly asymmetric).
+        double d = merged.pathLength(to, from);
+        if (Double.isFinite(d)) return d;
+        Vec3 p = merged.node(to);
+        return Math.sqrt(merged.dist2To(from, p.x, p.y, p.z)) * DISCONNECTED_FACTOR;
+    }
+
+    /**
+     * Exact open tour from node 0 over nodes {@code 1..k} (Held-Karp, O(2^k * k^2)). Returns the visiting order
+     * (node numbers, 0 excluded).
+     */
+    static int[] exactOrder(double[][] cost) {
+        final int k = cost.length - 1;
+        final int full = (1 << k) - 1;
+        double[][] best = new double[1 << k][k];
+        int[][] prev = new int[1 << k][k];
+        for (double[] row : best) Arrays.fill(row, Double.POSITIVE_INFINITY);
+        for (int j = 0; j < k; j++) {
+            best[1 << j][j] = cost[0][j + 1];
+            prev[1 << j][j] = -1;
+        }
+
+        for (int mask = 1; mask <= full; mask++) {
+            for (int j = 0; j < k; j++) {
+                double base = best[mask][j];
+                if ((mask & (1 << j)) == 0 || base == Double.POSITIVE_INFINITY) continue;
+                for (int m = 0; m < k; m++) {
+                    if ((mask & (1 << m)) != 0) continue;
+                    int next = mask | (1 << m);
+                    double c = base + cost[j + 1][m + 1];
+                    if (c < best[next][m]) {
+                        best[next][m] = c;
+                        prev[next][m] = j;
+                    }
+                }
+            }
+        }
+
+        int last = 0;
+        for (int j = 1; j < k; j++) {
+            if (best[full][j] < best[full][last]) last = j;
+        }
+        int[] tour = new int[k];
+        int mask = full;
+        for (int i = k - 1, j = last; i >= 0; i--) {
+            tour[i] = j + 1;
+            int p = prev[mask][j];
+            mask &= ~(1 << j);
+            j = p;
+        }
+        return tour;
+    }
+
+    /** Nearest-neighbor open tour from node 0 over nodes {@code 1..k}, improved by 2-opt. */
+    static int[] heuristicOrder(double[][] cost) {
+        final int k = cost.length - 1;
+        int[] tour = new int[k];
+        boolean[] used = new boolean[k + 1];
+        int cur = 0;
+        for (int i = 0; i < k; i++) {
+            int pick = -1;
+            for (int c = 1; c <= k; c++) {
+                if (!used[c] && (pick < 0 || cost[cur][c] < cost[cur][pick])) pick = c;
+            }
+            used[pick] = true;
+            tour[i] = pick;
+            cur = pick;
+        }
+        return twoOpt(cost, tour);
+    }
+
+    /** The previous tour's nodes that are still targets, in the previous order (node numbers, 0 excluded). */
+    private static int[] seedOrder(List<Target> targets, Plan previous) {
+        int[] seed = new int[targets.size()];
+        int n = 0;
+        for (int i = 0; i < previous.size(); i++) {
+            for (int t = 0; t < targets.size(); t++) {
+                if (targets.get(t).id == previous.idAt(i)) {
+                    seed[n++] = t + 1;
+                    break;
+                }
+            }
+        }
+        return Arrays.copyOf(seed, n);
+    }
+
+    /**
+     * Open tour from node 0 that keeps {@code seed} in order and inserts every other node of {@code 1..k} where it
+     * lengthens the tour the least (cheapest insertion).
+     */
+    static int[] insertionOrder(double[][] cost, int[] seed) {
+        final int k = cost.length - 1;
+        int[] tour = Arrays.copyOf(seed, k);
+        int len = seed.length;
+        boolean[] placed = new boolean[k + 1];
+        for (int s : seed) placed[s] = true;
+
+        for (int c = 1; c <= k; c++) {
+            if (placed[c]) continue;
+            int bestAt = len;
+            double bestDelta = Double.POSITIVE_INFINITY;
+            for (int at = 0; at <= len; at++) {
+                int prev = (at == 0) ? 0 : tour[at - 1];
+                double delta = cost[prev][c];
+                if (at < len) delta += cost[c][tour[at]] - cost[prev][tour[at]];
+                if (delta < bestDelta) {
+                    bestDelta = delta;
+                    bestAt = at;
+                }
+            }
+            System.arraycopy(tour, bestAt, tour, bestAt + 1, len - bestAt);
+            tour[bestAt] = c;
+            len++;
+        }
+        return tour;
+    }
+
+    /**
+     * Improves an open tour in place by 2-opt: reverses {@code tour[i..j]} while that shortens the path. Costs may
+     * be slightly asymmetric (edge lists are not always mirrored), so candidates are scored on the whole path.
+     */
+    static int[] twoOpt(double[][] cost, int[] tour) {
+        final int k = tour.length;
+        double current = pathCost(cost, tour);
+        for (int pass = 0; pass < TWO_OPT_MAX_PASSES; pass++) {
+            boolean improved = false;
+            for (int i = 0; i < k - 1; i++) {
+                for (int j = i + 1; j < k; j++) {
+                    reverse(tour, i, j);
+                    double c = pathCost(cost, tour);
+                    if (c + 1e-9 < current) {
+                        current = c;
+                        improved = true;
+                    } else {
+                        reverse(tour, i, j);
+                    }
+                }
+            }
+            if (!improved) break;
+        }
+        return tour;
+    }
+
+    private static double pathCost(double[][] cost, int[] tour) {
+        double total = 0.0;
+        int cur = 0;
+        for (int t : tour) {
+            total += cost[cur][t];
+            cur = t;
+        }
+        return total;
+    }
+
+    private static void reverse(int[] a, int i, int j) {
+        while (i < j) {
+            int t = a[i];
+            a[i++] = a[j];
+            a[j--] = t;
+        }
+    }
+}
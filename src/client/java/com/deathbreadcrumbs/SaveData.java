@@ -1,7 +1,8 @@
 package com.deathbreadcrumbs;
 
 /**
- * JSON-serializable save structure for client-side breadcrumb state.
+ * Save structure for one dimension's checkpoint trail: decoded from the binary {@link TrailLog},
+ * or read from legacy JSON saves (which are migrated on load).
  * Package-private on purpose (only used by DeathBreadcrumbsClient).
  */
 final class SaveData {
@@ -0,0 +1,234 @@
+package com.deathbreadcrumbs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background writer for the {@link TrailLog} save file.
+ *
+ * <p>The client thread only hands over immutable byte arrays; all file I/O happens on one daemon thread.
+ * Queued jobs for the same file are coalesced: appends are concatenated, and a full rewrite supersedes
+ * everything queued before it. Appends are fsynced; rewrites go to a temp file that is fsynced and then
+ * atomically renamed over the save, so a crash never leaves a half-written file behind.
+ *
+ * <p>A failed write is reported once through {@link #consumeFailure()} so the caller can schedule a full rewrite;
+ * until then further appends to that file are skipped (they would land after a gap). Follow-up file operations that
+ * depend on a write (retiring a migrated save) are queued behind it with {@link #submitAfter}, so the client thread
+ * never waits for the disk.
+ * Package-private on purpose (only used by DeathBreadcrumbsClient).
+ */
+final class SaveWriter {
+
+    /** File operation run on the writer thread. */
+    interface FileTask {
+        void run() throws IOException;
+    }
+
+    private static final class Job {
+        final Path file;
+        boolean replace;
+        byte[] bytes;
+        final FileTask task; // non-null: run it instead of writing `bytes`
+
+        Job(Path file, boolean replace, byte[] bytes, FileTask task) {
+            this.file = file;
+            this.replace = replace;
+            this.bytes = bytes;
+            this.task = task;
+        }
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "DeathBreadcrumbs-SaveWriter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Object lock = new Object();
+    private final ArrayList<Job> queue = new ArrayList<>();
+    private boolean drainScheduled = false;
+
+    // Only touched on the writer thread.
+    private Path brokenFile = null;
+
+    private final AtomicBoolean failedSinceCheck = new AtomicBoolean(false);
+
+    // Counters (readable from any thread).
+    private final AtomicLong saves = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong lastLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+
+    /** Queues bytes to be appended to {@code file}. */
+    void submitAppend(Path file, byte[] bytes) {
+        submit(file, false, bytes);
+    }
+
+    /** Queues a full rewrite of {@code file}; anything queued earlier for it is dropped. */
+    void submitReplace(Path file, byte[] bytes) {
+        submit(file, true, bytes);
+    }
+
+    /**
+     * Queues {@code task} behind everything queued so far; it runs only if those writes of {@code file} succeeded.
+     * Later rewrites of {@code file} do not supersede the writes queued before it.
+     */
+    void submitAfter(Path file, FileTask task) {
+        synchronized (lock) {
+            queue.add(new Job(file, false, null, task));
+            scheduleDrain();
+        }
+    }
+
+    /** True (once) if a write failed since the last call. */
+    boolean consumeFailure() {
+        return failedSinceCheck.getAndSet(false);
+    }
+
+    /** Waits (bounded) until every queued job has been written, e.g. on shutdown. */
+    void awaitIdle(long timeoutMillis) {
+        try {
+            executor.submit(() -> { }).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception ignored) {
+        }
+    }
+
+    String describeStats() {
+        long n = saves.get();
+        long avgMicros = (n == 0) ? 0 : totalLatencyNanos.get() / n / 1000;
+        return "saves=" + n
+                + ", coalesced=" + coalesced.get()
+                + ", failures=" + failures.get()
+                + ", bytes=" + bytesWritten.get()
+                + ", latencyUs(last/avg/max)=" + (lastLatencyNanos.get() / 1000) + "/" + avgMicros
+                + "/" + (maxLatencyNanos.get() / 1000);
+    }
+
+    private void submit(Path file, boolean replace, byte[] bytes) {
+        synchronized (lock) {
+            Job last = queue.isEmpty() ? null : queue.get(queue.size() - 1);
+            if (replace) {
+                // Writes a queued task waits for stay; only the ones after it are superseded.
+                int from = queue.size();
+                while (from > 0 && !(queue.get(from - 1).task != null && queue.get(from - 1).file.equals(file))) from--;
+                List<Job> tail = queue.subList(from, queue.size());
+                int before = tail.size();
+                tail.removeIf(j -> j.file.equals(file));
+                coalesced.addAndGet(before - tail.size());
+                queue.add(new Job(file, true, bytes, null));
+            } else if (last != null && last.task == null && last.file.equals(file)) {
+                // Append after a queued append/rewrite of the same file: just extend it.
+                byte[] merged = Arrays.copyOf(last.bytes, last.bytes.length + bytes.length);
+                System.arraycopy(bytes, 0, merged, last.bytes.length, bytes.length);
+                last.bytes = merged;
+                coalesced.incrementAndGet();
+            } else {
+                queue.add(new Job(file, false, bytes, null));
+            }
+            scheduleDrain();
+        }
+    }
+
+    /** Caller holds {@code lock}. */
+    private void scheduleDrain() {
+        if (!drainScheduled) {
+            drainScheduled = true;
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        ArrayList<Job> jobs;
+        synchronized (lock) {
+            jobs = new ArrayList<>(queue);
+            queue.clear();
+            drainScheduled = false;
+        }
+
+        for (Job job : jobs) {
+            if (!job.replace && job.file.equals(brokenFile)) continue; // waiting for a full rewrite
+            if (job.task != null) {
+                try {
+                    job.task.run();
+                } catch (IOException | RuntimeException e) {
+                    DeathBreadcrumbs.LOGGER.warn("[Death Breadcrumbs] File task after {} failed: {}", job.file,
+                            e.toString());
+                }
+                continue;
+            }
+
+            long t0 = System.nanoTime();
+            try {
+                if (job.replace) {
+                    writeAtomically(job.file, job.bytes);
+                    if (job.file.equals(brokenFile)) brokenFile = null;
+                } else {
+                    appendDurably(job.file, job.bytes);
+                }
+                long dt = System.nanoTime() - t0;
+                saves.incrementAndGet();
+                bytesWritten.addAndGet(job.bytes.length);
+                lastLatencyNanos.set(dt);
+                totalLatencyNanos.addAndGet(dt);
+                maxLatencyNanos.accumulateAndGet(dt, Math::max);
+            } catch (IOException | RuntimeException e) {
+                failures.incrementAndGet();
+                brokenFile = job.file;
+                failedSinceCheck.set(true);
+                DeathBreadcrumbs.LOGGER.warn("[Death Breadcrumbs] Failed to write {}: {}", job.file, e.toString());
+            }
+        }
+    }
+
+    private static void appendDurably(Path file, byte[] bytes) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (FileChannel ch = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            writeFully(ch, bytes);
+            ch.force(true);
+        }
+    }
+
+    private static void writeAtomically(Path file, byte[] bytes) throws IOException {
+        Path dir = file.getParent();
+        Files.createDirectories(dir);
+        Path tmp = dir.resolve(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(ch, bytes);
+            ch.force(true);
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        // Persist the rename itself (best-effort: not every platform can open a directory).
+        try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+            d.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void writeFully(FileChannel ch, byte[] bytes) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        while (buf.hasRemaining()) ch.write(buf);
+    }
+}
@@ -0,0 +1,161 @@
+package com.deathbreadcrumbs;
+
+import com.deathbreadcrumbs.nav.PointDatabase;
+import net.minecraft.world.phys.Vec3;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of the state that outlives a single life: the point database, the death queue and the
+ * prebuilt route graphs.
+ *
+ * <p>State is split into a small index (segment and id counters, plus the death queue as id/dimension/block
+ * stubs) and one file per dimension (its point-database records and the points and solved graphs of its queued
+ * routes). At startup only the index and the current dimension are read; other dimensions are read when they are
+ * first entered. Files are always rewritten whole (atomically, see {@link SaveWriter}), so no torn-tail handling
+ * is needed here. Package-private on purpose (only used by DeathBreadcrumbsClient).
+ */
+final class StateCodec {
+
+    static final int INDEX_MAGIC = 0x44424349; // "DBCI"
+    static final int DIM_MAGIC = 0x44424344; // "DBCD"
+    static final int VERSION = 1;
+
+    /** Death queue entry as stored in the index; points and graph live in the dimension file. */
+    static final class QueuedRoute {
+        final long id;
+        final String dim;
+        final int x;
+        final int y;
+        final int z;
+
+        QueuedRoute(long id, String dim, int x, int y, int z) {
+            this.id = id;
+            this.dim = dim;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+
+    static final class Index {
+        long segmentId;
+        long nextPointId;
+        long nextRouteId;
+        final ArrayList<QueuedRoute> queue = new ArrayList<>();
+    }
+
+    /** Route data stored in a dimension file ({@code graph} is null if it was not built yet). */
+    static final class StoredRoute {
+        final long id;
+        final List<Vec3> points;
+        final GraphRoute graph;
+
+        StoredRoute(long id, List<Vec3> points, GraphRoute graph) {
+            this.id = id;
+            this.points = points;
+            this.graph = graph;
+        }
+    }
+
+    private StateCodec() {
+    }
+
+    static byte[] encodeIndex(Index index) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + index.queue.size() * 48);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(INDEX_MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(index.segmentId);
+        out.writeLong(index.nextPointId);
+        out.writeLong(index.nextRouteId);
+        out.writeInt(index.queue.size());
+        for (QueuedRoute q : index.queue) {
+            out.writeLong(q.id);
+            out.writeUTF(q.dim);
+            out.writeInt(q.x);
+            out.writeInt(q.y);
+            out.writeInt(q.z);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static Index decodeIndex(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != INDEX_MAGIC) throw new IOException("not a state index");
+        if (in.readUnsignedByte() != VERSION) throw new IOException("unsupported state index version");
+
+        Index index = new Index();
+        index.segmentId = in.readLong();
+        index.nextPointId = in.readLong();
+        index.nextRouteId = in.readLong();
+        int n = in.readInt();
+        if (n < 0) throw new IOException("bad queue size " + n);
+        for (int i = 0; i < n; i++) {
+            long id = in.readLong();
+            String dim = in.readUTF();
+            index.queue.add(new QueuedRoute(id, dim, in.readInt(), in.readInt(), in.readInt()));
+        }
+        return index;
+    }
+
+    static byte[] encodeDimension(String dim, PointDatabase db, List<StoredRoute> routes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(DIM_MAGIC);
+        out.writeByte(VERSION);
+        out.writeUTF(dim);
+
+        db.writeDimension(dim, out);
+
+        out.writeInt(routes.size());
+        for (StoredRoute r : routes) {
+            out.writeLong(r.id);
+            out.writeInt(r.points.size());
+            for (int i = 0; i < r.points.size(); i++) {
+                Vec3 p = r.points.get(i);
+                out.writeDouble(p.x);
+                out.writeDouble(p.y);
+                out.writeDouble(p.z);
+            }
+            out.writeBoolean(r.graph != null);
+            if (r.graph != null) r.graph.writeTo(out);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /** Reads a dimension file: its records go straight into {@code db}, the routes are returned. */
+    static List<StoredRoute> decodeDimension(byte[] data, String dim, PointDatabase db) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != DIM_MAGIC) throw new IOException("not a dimension state file");
+        if (in.readUnsignedByte() != VERSION) throw new IOException("unsupported dimension state version");
+        String stored = in.readUTF();
+        if (!stored.equals(dim)) throw new IOException("state file belongs to " + stored + ", not " + dim);
+
+        db.readDimension(dim, in);
+
+        int n = in.readInt();
+        if (n < 0) throw new IOException("bad route count " + n);
+        ArrayList<StoredRoute> routes = new ArrayList<>(n);
+        for (int r = 0; r < n; r++) {
+            long id = in.readLong();
+            int count = in.readInt();
+            if (count < 0) throw new IOException("bad point count " + count);
+            ArrayList<Vec3> points = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                points.add(new Vec3(in.readDouble(), in.readDouble(), in.readDouble()));
+            }
+            GraphRoute graph = in.readBoolean() ? GraphRoute.readFrom(in, points) : null;
+            routes.add(new StoredRoute(id, points, graph));
+        }
+        return routes;
+    }
+}
@@ -0,0 +1,55 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.core.GlobalPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.Vec3;
+
+import java.nio.file.Path;
+
+/**
+ * Everything one tick of the breadcrumb pipeline reads from, or does to, the game.
+ *
+ * <p>{@link GamePort} implements it over the running client; a headless replay implements it over a recorded
+ * trace, so the recording / capture / routing state machine can run (and be measured) without Minecraft.
+ * Package-private on purpose (only used by DeathBreadcrumbsClient and its ports).
+ */
+interface TickPort {
+
+    Vec3 position();
+
+    boolean isAlive();
+
+    Vec3 eyePosition();
+
+    /** Unit view vector, or null if unknown (nothing is culled). */
+    Vec3 viewDirection();
+
+    /** Current frame rate, or 0 if unknown. */
+    int fps();
+
+    /** On a horse, boat, minecart, ... */
+    boolean isRiding();
+
+    /** Elytra flight. */
+    boolean isGliding();
+
+    long gameTime();
+
+    ResourceKey<Level> dimension();
+
+    /** Where the game says the player died last, or null. */
+    GlobalPos lastDeathLocation();
+
+    /** Save directory of the current world/server (files are derived from it), or null to keep state in memory. */
+    Path saveBase();
+
+    /** One breadcrumb particle (always visible). */
+    void spawnCrumb(double x, double y, double z);
+
+    /** One particle of the death point marker. */
+    void spawnGoalParticle(double x, double y, double z);
+
+    /** Chat feedback to the player. */
+    void message(String text);
+}
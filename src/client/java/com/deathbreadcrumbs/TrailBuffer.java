@@ -0,0 +1,224 @@
+package com.deathbreadcrumbs;
+
+import com.deathbreadcrumbs.nav.LongIntHashMap;
+import net.minecraft.world.phys.Vec3;
+
+/**
+ * Fixed-capacity circular buffer of trail points stored as primitive coordinate columns.
+ *
+ * <p>Points are addressed either by index ({@code 0} = oldest live point) or by a monotonically increasing id;
+ * live ids are {@code [headId, tailId)} and map to slots {@code id & mask}. Append, drop-front and truncate only
+ * move the head/tail counters, so none of them shifts elements. Truncating rewinds the id counter, so consecutive
+ * points always have consecutive ids.
+ *
+ * <p>Live points are also kept in an XZ grid ({@link #CELL}-sized cells, an intrusive doubly-linked list of slots
+ * per cell), updated by every mutation, so proximity lookups cost the same no matter how far back a point is.
+ *
+ * <p>Package-private on purpose (only used by the trail classes).
+ */
+final class TrailBuffer {
+
+    static final int CELL = GraphRoute.CELL;
+    static final int NONE = LongIntHashMap.MISSING;
+
+    private final int mask;
+    private long head = 0; // oldest live id
+    private long tail = 0; // next id to assign
+
+    // Coordinate columns by slot (read directly by TrailGraph).
+    final double[] xs;
+    final double[] ys;
+    final double[] zs;
+
+    /** Intrusive doubly-linked list of slots per grid cell. */
+    private final LongIntHashMap cellHead;
+    private final long[] cellOf;
+    private final int[] cellNext;
+    private final int[] cellPrev;
+
+    /** @param maxPoints number of points the buffer must hold (rounded up to a power of two) */
+    TrailBuffer(int maxPoints) {
+        int cap = 16;
+        while (cap < maxPoints) cap <<= 1;
+        this.mask = cap - 1;
+        this.xs = new double[cap];
+        this.ys = new double[cap];
+        this.zs = new double[cap];
+        this.cellHead = new LongIntHashMap(cap);
+        this.cellOf = new long[cap];
+        this.cellNext = new int[cap];
+        this.cellPrev = new int[cap];
+    }
+
+    int size() {
+        return (int) (tail - head);
+    }
+
+    boolean isEmpty() {
+        return tail == head;
+    }
+
+    boolean isFull() {
+        return size() == mask + 1;
+    }
+
+    long headId() {
+        return head;
+    }
+
+    long tailId() {
+        return tail;
+    }
+
+    int slot(long id) {
+        return (int) id & mask;
+    }
+
+    /** Slot of the point at {@code index} (0 = oldest). */
+    int slotAt(int index) {
+        return (int) (head + index) & mask;
+    }
+
+    /** Recovers the id of a live slot (ids in [head, tail) map to distinct slots). */
+    long idOf(int slot) {
+        return head + ((slot - slot(head)) & mask);
+    }
+
+    double x(int index) {
+        return xs[slotAt(index)];
+    }
+
+    double y(int index) {
+        return ys[slotAt(index)];
+    }
+
+    double z(int index) {
+        return zs[slotAt(index)];
+    }
+
+    /** Allocates; prefer {@link #x}/{@link #y}/{@link #z} on hot paths. */
+    Vec3 get(int index) {
+        int s = slotAt(index);
+        return new Vec3(xs[s], ys[s], zs[s]);
+    }
+
+    /** Appends a point; the caller must make room first if the buffer {@link #isFull() is full}. */
+    void append(double x, double y, double z) {
+        if (isFull()) throw new IllegalStateException("trail buffer full");
+        int s = slot(tail++);
+        xs[s] = x;
+        ys[s] = y;
+        zs[s] = z;
+        linkCell(s);
+    }
+
+    void replaceLast(double x, double y, double z) {
+        if (isEmpty()) return;
+        int s = slot(tail - 1);
+        unlinkCell(s);
+        xs[s] = x;
+        ys[s] = y;
+        zs[s] = z;
+        linkCell(s);
+    }
+
+    /** Keeps only the first {@code keep} points. */
+    void truncate(int keep) {
+        long newTail = head + Math.max(0, keep);
+        while (tail > newTail) unlinkCell(slot(--tail));
+    }
+
+    /** Drops the {@code count} oldest points. */
+    void dropFront(int count) {
+        long newHead = head + Math.max(0, Math.min(count, size()));
+        while (head < newHead) unlinkCell(slot(head++));
+    }
+
+    void clear() {
+        head = tail = 0;
+        cellHead.clear();
+    }
+
+    /**
+     * Index of the newest point in {@code [fromIndex, toIndex)} whose horizontal distance to {@code (x, z)} is at
+     * most {@code radius}, or -1. Only scans the grid cells the radius overlaps.
+     */
+    int findLatestNearXZ(double x, double z, double radius, int fromIndex, int toIndex) {
+        long from = head + Math.max(0, fromIndex);
+        long to = head + Math.min(toIndex, size());
+        if (from >= to) return -1;
+
+        double r2 = radius * radius;
+        long best = -1;
+        int cx0 = cellCoord(x - radius);
+        int cx1 = cellCoord(x + radius);
+        int cz0 = cellCoord(z - radius);
+        int cz1 = cellCoord(z + radius);
+        for (int cx = cx0; cx <= cx1; cx++) {
+            for (int cz = cz0; cz <= cz1; cz++) {
+                for (int s = cellHead.get(cellKey(cx, cz)); s != NONE; s = cellNext[s]) {
+                    long id = idOf(s);
+                    if (id < from || id >= to || id <= best) continue;
+                    double dx = xs[s] - x;
+                    double dz = zs[s] - z;
+                    if (dx * dx + dz * dz <= r2) best = id;
+                }
+            }
+        }
+        return (best < 0) ? -1 : (int) (best - head);
+    }
+
+    /** First slot in grid cell {@code (cx, cz)}, or {@link #NONE}; continue with {@link #cellNext}. */
+    int cellFirst(int cx, int cz) {
+        return cellHead.get(cellKey(cx, cz));
+    }
+
+    int cellNext(int slot) {
+        return cellNext[slot];
+    }
+
+    static int cellCoord(double v) {
+        return (int) Math.floor(v / CELL);
+    }
+
+    private static long cellKey(int cx, int cz) {
+        return (((long) cx) << 32) ^ (cz & 0xffffffffL);
+    }
+
+    private void linkCell(int s) {
+        long key = cellKey(cellCoord(xs[s]), cellCoord(zs[s]));
+        int first = cellHead.get(key);
+        cellOf[s] = key;
+        cellPrev[s] = NONE;
+        cellNext[s] = first;
+        if (first != NONE) cellPrev[first] = s;
+        cellHead.put(key, s);
+    }
+
+    private void unlinkCell(int s) {
+        int prev = cellPrev[s];
+        int next = cellNext[s];
+        if (next != NONE) cellPrev[next] = prev;
+        if (prev != NONE) {
+            cellNext[prev] = next;
+        } else if (next != NONE) {
+            cellHead.put(cellOf[s], next);
+        } else {
+            cellHead.remove(cellOf[s]);
+        }
+    }
+
+    /** Copies points {@code fromIndex..size-1} into a compact interleaved {@code x,y,z} array. */
+    double[] copyFrom(int fromIndex) {
+        int from = Math.max(0, Math.min(fromIndex, size()));
+        int n = size() - from;
+        double[] out = new double[n * 3];
+        for (int i = 0; i < n; i++) {
+            int s = slotAt(from + i);
+            out[i * 3] = xs[s];
+            out[i * 3 + 1] = ys[s];
+            out[i * 3 + 2] = zs[s];
+        }
+        return out;
+    }
+}
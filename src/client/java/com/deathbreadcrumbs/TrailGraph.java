@@ -0,0 +1,365 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.world.phys.Vec3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Navigation graph that is maintained incrementally alongside the checkpoint list.
+ *
+ * <p>Node {@code i} mirrors checkpoint {@code i}. Sequential edges are implicit (i-1, i+1); proximity edges
+ * (within {@link GraphRoute#CONNECT_DIST}, at most {@link GraphRoute#MAX_EXTRA_NEIGHBORS} per node) are kept
+ * symmetric and updated as checkpoints are appended, collapsed or evicted. Capturing a death route then only has
+ * to {@link #snapshot(int) snapshot} the current segment and run one shortest-path pass, instead of rebuilding the
+ * spatial hash and neighbor lists from scratch.
+ *
+ * <p>Node positions live in a {@link TrailBuffer} (a ring of slots indexed by a monotonically increasing id;
+ * truncating the tail rewinds the id counter so "sequential" always means {@code id +/- 1}). The graph owns the
+ * buffer: all mutations go through the graph, readers use {@link #points()}.
+ */
+final class TrailGraph {
+
+    private static final double CONNECT_DIST2 = GraphRoute.CONNECT_DIST * GraphRoute.CONNECT_DIST;
+    private static final int K = GraphRoute.MAX_EXTRA_NEIGHBORS;
+    private static final int NONE = TrailBuffer.NONE;
+
+    private final TrailBuffer buf;
+    // Coordinate columns of buf (same arrays, cached for the distance checks).
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+
+    /** Proximity neighbors by slot: ids at {@code slot * K .. slot * K + extraCount[slot]}. */
+    private final long[] extra;
+    private final byte[] extraCount;
+
+    // Scratch for top-K candidate selection.
+    private final long[] candIds = new long[K];
+    private final double[] candD2 = new double[K];
+
+    TrailGraph(int maxNodes) {
+        this.buf = new TrailBuffer(maxNodes + 2);
+        int cap = buf.xs.length;
+        this.xs = buf.xs;
+        this.ys = buf.ys;
+        this.zs = buf.zs;
+        this.extra = new long[cap * K];
+        this.extraCount = new byte[cap];
+    }
+
+    int size() {
+        return buf.size();
+    }
+
+    /** Read-only view of the node positions (index 0 = oldest). Do not mutate it directly. */
+    TrailBuffer points() {
+        return buf;
+    }
+
+    void clear() {
+        buf.clear();
+        Arrays.fill(extraCount, (byte) 0);
+    }
+
+    /** Appends a node after the current last one. */
+    void append(Vec3 p) {
+        if (buf.isFull()) dropFront(1);
+
+        long id = buf.tailId();
+        buf.append(p.x, p.y, p.z);
+        int s = slot(id);
+        extraCount[s] = 0;
+
+        // Top-K nearest earlier nodes within CONNECT_DIST (sequential neighbor excluded: it is implicit).
+        int found = 0;
+        int cx = TrailBuffer.cellCoord(p.x);
+        int cz = TrailBuffer.cellCoord(p.z);
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                for (int t = buf.cellFirst(cx + dx, cz + dz); t != NONE; t = buf.cellNext(t)) {
+                    if (t == s) continue;
+                    long j = buf.idOf(t);
+                    if (j == id - 1) continue;
+                    double d2 = dist2(s, t);
+                    if (d2 > CONNECT_DIST2) continue;
+                    found = offerCandidate(j, d2, found);
+                }
+            }
+        }
+
+        for (int c = 0; c < found; c++) {
+            connect(id, candIds[c], candD2[c]);
+        }
+    }
+
+    /** Replaces the last node. */
+    void replaceLast(Vec3 p) {
+        if (size() == 0) return;
+        truncate(size() - 1);
+        append(p);
+    }
+
+    /** Keeps only the first {@code keep} nodes. */
+    void truncate(int keep) {
+        keep = Math.max(0, keep);
+        int size = size();
+        if (keep >= size) return;
+        for (long id = buf.tailId() - 1; id >= buf.headId() + keep; id--) {
+            removeNode(id);
+        }
+        buf.truncate(keep);
+    }
+
+    /** Drops the {@code count} oldest nodes. */
+    void dropFront(int count) {
+        count = Math.min(count, size());
+        if (count <= 0) return;
+        long head = buf.headId();
+        for (int i = 0; i < count; i++) {
+            removeNode(head + i);
+        }
+        buf.dropFront(count);
+    }
+
+    /** True if node {@code index} has a proximity neighbor before {@code index - 2}: it joins an older part of the trail. */
+    boolean isJunction(int index) {
+        long id = buf.headId() + index;
+        int s = slot(id);
+        for (int k = 0; k < extraCount[s]; k++) {
+            if (extra[s * K + k] < id - 2) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Copies nodes {@code fromIndex..size-1} (positions into one compact array) and the edges among them into a
+     * standalone {@link Snapshot}.
+     */
+    Snapshot snapshot(int fromIndex) {
+        int from = Math.max(0, Math.min(fromIndex, size()));
+        long base = buf.headId() + from;
+        int n = size() - from;
+
+        Snapshot snap = new Snapshot(buf.copyFrom(from), n);
+        for (int i = 0; i < n; i++) {
+            int s = slot(base + i);
+
+            int cnt = extraCount[s];
+            int[] nb = new int[cnt];
+            int m = 0;
+            for (int k = 0; k < cnt; k++) {
+                long j = extra[s * K + k];
+                if (j < base) continue; // outside the current segment
+                nb[m++] = (int) (j - base);
+            }
+            snap.extra.add(m == cnt ? nb : Arrays.copyOf(nb, m));
+        }
+        return snap;
+    }
+
+    static Snapshot emptySnapshot() {
+        return new Snapshot(new double[3 * 4], 0);
+    }
+
+    /** Inserts {@code (id, d2)} into the sorted top-K scratch; returns the new candidate count. */
+    private int offerCandidate(long id, double d2, int found) {
+        if (found == K && d2 >= candD2[K - 1]) return found;
+        int i = (found < K) ? found++ : K - 1;
+        while (i > 0 && candD2[i - 1] > d2) {
+            candIds[i] = candIds[i - 1];
+            candD2[i] = candD2[i - 1];
+            i--;
+        }
+        candIds[i] = id;
+        candD2[i] = d2;
+        return found;
+    }
+
+    /**
+     * Adds the symmetric edge {@code a <-> b}. If {@code b} is already full, the edge replaces b's farthest
+     * proximity neighbor when closer, otherwise it is skipped.
+     */
+    private void connect(long a, long b, double d2) {
+        int sa = slot(a);
+        int sb = slot(b);
+        if (extraCount[sb] == K) {
+            int far = -1;
+            double farD2 = d2;
+            for (int k = 0; k < K; k++) {
+                double e2 = dist2(sb, slot(extra[sb * K + k]));
+                if (e2 > farD2) {
+                    farD2 = e2;
+                    far = k;
+                }
+            }
+            if (far < 0) return;
+            long evicted = extra[sb * K + far];
+            removeExtra(slot(evicted), b);
+            extra[sb * K + far] = a;
+        } else {
+            extra[sb * K + extraCount[sb]++] = a;
+        }
+        extra[sa * K + extraCount[sa]++] = b;
+    }
+
+    private void removeNode(long id) {
+        int s = slot(id);
+        for (int k = 0; k < extraCount[s]; k++) {
+            removeExtra(slot(extra[s * K + k]), id);
+        }
+        extraCount[s] = 0;
+    }
+
+    private void removeExtra(int s, long id) {
+        int cnt = extraCount[s];
+        for (int k = 0; k < cnt; k++) {
+            if (extra[s * K + k] == id) {
+                extra[s * K + k] = extra[s * K + cnt - 1];
+                extraCount[s] = (byte) (cnt - 1);
+                return;
+            }
+        }
+    }
+
+    private int slot(long id) {
+        return buf.slot(id);
+    }
+
+    private double dist2(int a, int b) {
+        double dx = xs[a] - xs[b];
+        double dy = ys[a] - ys[b];
+        double dz = zs[a] - zs[b];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Detached copy of one trail segment: positions in a compact interleaved {@code x,y,z} array plus proximity
+     * neighbors (local indices). Sequential edges stay implicit until {@link #toRoute()}.
+     */
+    static final class Snapshot {
+        private double[] xyz;
+        private int n;
+        private final ArrayList<int[]> extra;
+        // Materialized once by points(); reset by add().
+        private List<Vec3> points;
+
+        private Snapshot(double[] xyz, int n) {
+            this.xyz = xyz;
+            this.n = n;
+            this.extra = new ArrayList<>(n + 2);
+        }
+
+        int size() {
+            return n;
+        }
+
+        boolean isEmpty() {
+            return n == 0;
+        }
+
+        Vec3 last() {
+            return (n == 0) ? null : point(n - 1);
+        }
+
+        /**
+         * Appends a point, or replaces the last one if it lies within {@code mergeDist} (same rule as the old
+         * close-point simplification). New nodes are connected to their nearest snapshot nodes.
+         */
+        void add(Vec3 p, double mergeDist) {
+            points = null;
+            if (n > 0 && dist2(n - 1, p) <= mergeDist * mergeDist) {
+                set(n - 1, p);
+                return;
+            }
+
+            // Small linear top-K scan: only called for the final approach / death position.
+            long[] ids = new long[K];
+            double[] d2s = new double[K];
+            int found = 0;
+            for (int j = 0; j < n - 1; j++) {
+                double d2 = dist2(j, p);
+                if (d2 > CONNECT_DIST2) continue;
+                if (found == K && d2 >= d2s[K - 1]) continue;
+                int i = (found < K) ? found++ : K - 1;
+                while (i > 0 && d2s[i - 1] > d2) {
+                    ids[i] = ids[i - 1];
+                    d2s[i] = d2s[i - 1];
+                    i--;
+                }
+                ids[i] = j;
+                d2s[i] = d2;
+            }
+
+            int[] nb = new int[found];
+            for (int c = 0; c < found; c++) {
+                int j = (int) ids[c];
+                nb[c] = j;
+                int[] old = extra.get(j);
+                int[] grown = Arrays.copyOf(old, old.length + 1);
+                grown[old.length] = n;
+                extra.set(j, grown);
+            }
+            if ((n + 1) * 3 > xyz.length) xyz = Arrays.copyOf(xyz, (n + 2) * 3);
+            set(n++, p);
+            extra.add(nb);
+        }
+
+        /**
+         * The snapshot as an immutable point list (built once; call after the last {@link #add}).
+         * The route builder and the death route share it.
+         */
+        List<Vec3> points() {
+            if (points == null) {
+                ArrayList<Vec3> list = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) list.add(point(i));
+                points = Collections.unmodifiableList(list);
+            }
+            return points;
+        }
+
+        /** Lays the snapshot out as a CSR graph and runs the shortest-path pass from the last point (the death node). */
+        GraphRoute toRoute() {
+            if (n < 2) return null;
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+            double[] zs = new double[n];
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i < n; i++) {
+                xs[i] = xyz[i * 3];
+                ys[i] = xyz[i * 3 + 1];
+                zs[i] = xyz[i * 3 + 2];
+                int seq = (i > 0 ? 1 : 0) + (i < n - 1 ? 1 : 0);
+                offsets[i + 1] = offsets[i] + seq + extra.get(i).length;
+            }
+            int[] targets = new int[offsets[n]];
+            for (int i = 0; i < n; i++) {
+                int m = offsets[i];
+                if (i > 0) targets[m++] = i - 1;
+                if (i < n - 1) targets[m++] = i + 1;
+                int[] ex = extra.get(i);
+                System.arraycopy(ex, 0, targets, m, ex.length);
+            }
+            return GraphRoute.fromAdjacency(xs, ys, zs, offsets, targets);
+        }
+
+        private Vec3 point(int i) {
+            return new Vec3(xyz[i * 3], xyz[i * 3 + 1], xyz[i * 3 + 2]);
+        }
+
+        private void set(int i, Vec3 p) {
+            xyz[i * 3] = p.x;
+            xyz[i * 3 + 1] = p.y;
+            xyz[i * 3 + 2] = p.z;
+        }
+
+        private double dist2(int i, Vec3 p) {
+            double dx = xyz[i * 3] - p.x;
+            double dy = xyz[i * 3 + 1] - p.y;
+            double dz = xyz[i * 3 + 2] - p.z;
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.world.phys.Vec3;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Compact binary, append-only encoding of the checkpoint trail.
+ *
+ * <p>Every mutation of a {@link CheckpointTrail} is recorded as a small operation (append, replace-last, truncate,
+ * drop-front, clear, meta). A dimension operation switches which trail the following operations apply to, so one
+ * file holds the trails of every dimension. Positions are quantized to 1/16 block and delta-encoded against the
+ * previous logged position with zigzag varints, so a typical checkpoint costs a handful of bytes. Autosave appends
+ * only the operations logged since the last save; once the file holds many more operations than live checkpoints
+ * it is rewritten as a compact snapshot ({@link #encodeSnapshot}).
+ *
+ * <p>File layout: {@code MAGIC, VERSION, op*}. A truncated trailing operation (e.g. after a crash) is ignored on
+ * load. Package-private on purpose (only used by DeathBreadcrumbsClient).
+ */
+final class TrailLog {
+
+    static final int MAGIC = 0x44424331; // "DBC1"
+    static final int VERSION = 1;
+
+    private static final int OP_DIM = 1;
+    private static final int OP_APPEND = 2;
+    private static final int OP_REPLACE_LAST = 3;
+    private static final int OP_TRUNCATE = 4;
+    private static final int OP_DROP_FRONT = 5;
+    private static final int OP_CLEAR = 6;
+    private static final int OP_META = 7;
+
+    private static final double QUANT = 16.0; // 1/16 block
+
+    /** Compact once the file holds this many operations beyond twice the live checkpoint count. */
+    private static final int COMPACT_SLACK = 512;
+
+    /** Ops logged since the last flush. */
+    private final Bytes pending = new Bytes(256);
+    private int pendingOps = 0;
+    /** Ops already in the file. */
+    private int fileOps = 0;
+    /** Whether the file on disk matches what this log has flushed (false => next save must compact). */
+    private boolean fileValid = false;
+    /** Dimension the next logged operation applies to (as of the last dimension op). */
+    private String loggedDim = null;
+
+    // Delta base (last logged position, quantized).
+    private long bx;
+    private long by;
+    private long bz;
+
+    boolean hasPending() {
+        return pendingOps > 0;
+    }
+
+    int pendingBytes() {
+        return pending.size;
+    }
+
+    /** True if the next save should rewrite the whole file instead of appending. */
+    boolean needsCompaction(int liveCount) {
+        return !fileValid || (fileOps + pendingOps) > (2 * liveCount + COMPACT_SLACK);
+    }
+
+    /** Forces the next save to compact (e.g. the file no longer matches the in-memory state). */
+    void invalidate() {
+        fileValid = false;
+    }
+
+    /** Directs the following operations at the trail of {@code dim} (logs a dimension op only if it changes). */
+    void select(String dim) {
+        if (Objects.equals(dim, loggedDim)) return;
+        putDim(pending, dim);
+        pendingOps++;
+        loggedDim = dim;
+    }
+
+    void logMeta(String dim, int segmentStart, long lastCheckpointTick, Vec3 lastCheckpointPos) {
+        select(dim);
+        putMeta(pending, segmentStart, lastCheckpointTick, lastCheckpointPos);
+        pendingOps++;
+    }
+
+    void logAppend(Vec3 p) {
+        pending.put(OP_APPEND);
+        putDelta(pending, p);
+        pendingOps++;
+    }
+
+    void logReplaceLast(Vec3 p) {
+        pending.put(OP_REPLACE_LAST);
+        putDelta(pending, p);
+        pendingOps++;
+    }
+
+    void logTruncate(int keep) {
+        pending.put(OP_TRUNCATE);
+        pending.putVarLong(keep);
+        pendingOps++;
+    }
+
+    void logDropFront(int count) {
+        pending.put(OP_DROP_FRONT);
+        pending.putVarLong(count);
+        pendingOps++;
+    }
+
+    void logClear() {
+        pending.put(OP_CLEAR);
+        pendingOps++;
+    }
+
+    /**
+     * Takes the pending operations, ready to be appended to the file (callers log meta records first).
+     * The log then assumes the append succeeds.
+     */
+    byte[] drainAppend() {
+        byte[] out = pending.toArray();
+        fileOps += pendingOps;
+        pending.size = 0;
+        pendingOps = 0;
+        return out;
+    }
+
+    /**
+     * Encodes a full file (header + every non-empty trail). Pending operations are dropped since the snapshot
+     * already contains them; the log then assumes the file is replaced with the returned bytes.
+     */
+    byte[] encodeSnapshot(Collection<CheckpointTrail> trails) {
+        int total = 0;
+        for (CheckpointTrail t : trails) total += t.size();
+        Bytes out = new Bytes(16 + total * 6);
+        out.putInt(MAGIC);
+        out.put(VERSION);
+
+        bx = by = bz = 0;
+        loggedDim = null;
+        int ops = 0;
+        for (CheckpointTrail t : trails) {
+            if (t.isEmpty()) continue;
+            putDim(out, t.dimId);
+            loggedDim = t.dimId;
+            for (int i = 0; i < t.size(); i++) {
+                out.put(OP_APPEND);
+                putDelta(out, t.x(i), t.y(i), t.z(i));
+            }
+            putMeta(out, t.segmentStart(), t.lastTick(), t.lastPos());
+            ops += t.size() + 2;
+        }
+
+        pending.size = 0;
+        pendingOps = 0;
+        fileOps = ops;
+        fileValid = true;
+        return out.toArray();
+    }
+
+    /**
+     * Replays a file into one {@link SaveData} per dimension (in first-seen order; empty trails are omitted).
+     * On success the log continues appending after the loaded state; returns {@code null} if the bytes are not
+     * a trail log.
+     */
+    List<SaveData> decode(byte[] data) {
+        if (data == null || data.length < 5) return null;
+        Reader in = new Reader(data);
+        if (in.getInt() != MAGIC) return null;
+        if (in.get() != VERSION) return null;
+
+        // Operations before the first dimension op (only possible in files written without one) are dropped.
+        Map<String, SaveData> byDim = new LinkedHashMap<>();
+        Map<String, ArrayList<Vec3>> lists = new LinkedHashMap<>();
+        SaveData out = new SaveData();
+        ArrayList<Vec3> pts = new ArrayList<>();
+        String dim = null;
+        bx = by = bz = 0;
+        int ops = 0;
+
+        while (in.remaining() > 0) {
+            int mark = in.pos;
+            long sbx = bx, sby = by, sbz = bz;
+            try {
+                int op = in.get();
+                switch (op) {
+                    case OP_DIM -> {
+                        int len = (int) in.getVarLong();
+                        dim = new String(in.getBytes(len), StandardCharsets.UTF_8);
+                        out = byDim.get(dim);
+                        if (out == null) {
+                            out = new SaveData();
+                            out.dimension = dim;
+                            byDim.put(dim, out);
+                            lists.put(dim, new ArrayList<>());
+                        }
+                        pts = lists.get(dim);
+                    }
+                    case OP_APPEND -> pts.add(getDelta(in));
+                    case OP_REPLACE_LAST -> {
+                        Vec3 p = getDelta(in);
+                        if (pts.isEmpty()) pts.add(p);
+                        else pts.set(pts.size() - 1, p);
+                    }
+                    case OP_TRUNCATE -> {
+                        int keep = (int) in.getVarLong();
+                        if (keep < pts.size()) pts.subList(Math.max(0, keep), pts.size()).clear();
+                    }
+                    case OP_DROP_FRONT -> {
+                        int count = (int) in.getVarLong();
+                        pts.subList(0, Math.min(Math.max(0, count), pts.size())).clear();
+                    }
+                    case OP_CLEAR -> pts.clear();
+                    case OP_META -> {
+                        out.checkpointSegmentStart = (int) in.getVarLong();
+                        out.lastCheckpointTick = in.getVarLong();
+                        out.lastCheckpointPos = (in.get() != 0)
+                                ? new double[]{
+                                        unzigzag(in.getVarLong()) / QUANT,
+                                        unzigzag(in.getVarLong()) / QUANT,
+                                        unzigzag(in.getVarLong()) / QUANT}
+                                : null;
+                    }
+                    default -> throw new IndexOutOfBoundsException("unknown op " + op);
+                }
+                ops++;
+            } catch (IndexOutOfBoundsException e) {
+                // Torn/corrupt tail: keep everything before it and rewrite the file on the next save.
+                in.pos = mark;
+                bx = sbx;
+                by = sby;
+                bz = sbz;
+                break;
+            }
+        }
+
+        ArrayList<SaveData> result = new ArrayList<>(byDim.size());
+        for (SaveData d : byDim.values()) {
+            ArrayList<Vec3> list = lists.get(d.dimension);
+            if (list.isEmpty()) continue;
+            d.checkpoints = new double[list.size()][];
+            for (int i = 0; i < list.size(); i++) {
+                Vec3 p = list.get(i);
+                d.checkpoints[i] = new double[]{p.x, p.y, p.z};
+            }
+            result.add(d);
+        }
+
+        pending.size = 0;
+        pendingOps = 0;
+        fileOps = ops;
+        fileValid = (in.pos == data.length);
+        loggedDim = dim;
+        return result;
+    }
+
+    private static void putDim(Bytes out, String dim) {
+        out.put(OP_DIM);
+        byte[] b = (dim == null ? "" : dim).getBytes(StandardCharsets.UTF_8);
+        out.putVarLong(b.length);
+        out.put(b);
+    }
+
+    private void putDelta(Bytes out, Vec3 p) {
+        putDelta(out, p.x, p.y, p.z);
+    }
+
+    private void putDelta(Bytes out, double x, double y, double z) {
+        long qx = Math.round(x * QUANT);
+        long qy = Math.round(y * QUANT);
+        long qz = Math.round(z * QUANT);
+        out.putVarLong(zigzag(qx - bx));
+        out.putVarLong(zigzag(qy - by));
+        out.putVarLong(zigzag(qz - bz));
+        bx = qx;
+        by = qy;
+        bz = qz;
+    }
+
+    private Vec3 getDelta(Reader in) {
+        long qx = bx + unzigzag(in.getVarLong());
+        long qy = by + unzigzag(in.getVarLong());
+        long qz = bz + unzigzag(in.getVarLong());
+        bx = qx;
+        by = qy;
+        bz = qz;
+        return new Vec3(qx / QUANT, qy / QUANT, qz / QUANT);
+    }
+
+    private static void putMeta(Bytes out, int segmentStart, long lastCheckpointTick, Vec3 lastPos) {
+        out.put(OP_META);
+        out.putVarLong(Math.max(0, segmentStart));
+        out.putVarLong(lastCheckpointTick);
+        if (lastPos == null) {
+            out.put(0);
+        } else {
+            out.put(1);
+            out.putVarLong(zigzag(Math.round(lastPos.x * QUANT)));
+            out.putVarLong(zigzag(Math.round(lastPos.y * QUANT)));
+            out.putVarLong(zigzag(Math.round(lastPos.z * QUANT)));
+        }
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /** Minimal growable byte buffer. */
+    private static final class Bytes {
+        private byte[] a;
+        private int size = 0;
+
+        Bytes(int capacity) {
+            a = new byte[Math.max(16, capacity)];
+        }
+
+        void put(int b) {
+            if (size == a.length) a = Arrays.copyOf(a, a.length * 2);
+            a[size++] = (byte) b;
+        }
+
+        void put(byte[] b) {
+            for (byte v : b) put(v);
+        }
+
+        void putInt(int v) {
+            put(v >>> 24);
+            put(v >>> 16);
+            put(v >>> 8);
+            put(v);
+        }
+
+        /** Unsigned LEB128 (callers zigzag signed values first). */
+        void putVarLong(long v) {
+            while ((v & ~0x7FL) != 0) {
+                put((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            put((int) v);
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(a, size);
+        }
+    }
+
+    /** Bounds-checked reader; running past the end throws IndexOutOfBoundsException. */
+    private static final class Reader {
+        private final byte[] a;
+        private int pos = 0;
+
+        Reader(byte[] a) {
+            this.a = a;
+        }
+
+        int remaining() {
+            return a.length - pos;
+        }
+
+        int get() {
+            if (pos >= a.length) throw new IndexOutOfBoundsException();
+            return a[pos++] & 0xFF;
+        }
+
+        byte[] getBytes(int len) {
+            if (len < 0 || len > remaining()) throw new IndexOutOfBoundsException();
+            byte[] b = Arrays.copyOfRange(a, pos, pos + len);
+            pos += len;
+            return b;
+        }
+
+        int getInt() {
+            return (get() << 24) | (get() << 16) | (get() << 8) | get();
+        }
+
+        long getVarLong() {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = get();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new IndexOutOfBoundsException("varint too long");
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.world.phys.Vec3;
+
+/**
+ * Streaming line simplification of the checkpoint trail.
+ *
+ * <p>Works on the last three points only: the anchor {@code A} (second to last trail point), the pending point
+ * {@code P} (last trail point) and the new checkpoint {@code Q}. If {@code P} adds no shape to {@code A -> Q}, the
+ * caller replaces it by {@code Q} instead of appending, so a straight run collapses into one edge. Points dropped
+ * since the anchor are remembered, which makes the test cover the whole run:
+ * <ul>
+ *   <li>{@link Mode#RDP}: every dropped point lies within {@link #TOLERANCE} of segment {@code A -> Q} (the
+ *       opening-window form of Ramer-Douglas-Peucker);</li>
+ *   <li>{@link Mode#VISVALINGAM}: the triangle areas of the dropped points add up to at most the area of a
+ *       {@link #TOLERANCE}-high triangle over {@code A -> Q}.</li>
+ * </ul>
+ * In both modes a point is kept if it deviates more than {@link #VERTICAL_TOLERANCE} from the line's height
+ * (stairs, drops), if it is linked to an older part of the trail (a junction), or if the run would grow longer than
+ * {@link #MAX_SPAN} (so crossing trails still find a node within {@link GraphRoute#CONNECT_DIST}).
+ *
+ * <p>Package-private on purpose (only used by DeathBreadcrumbsClient).
+ */
+final class TrailSimplifier {
+
+    enum Mode { OFF, RDP, VISVALINGAM }
+
+    static final double TOLERANCE = 0.75;         // blocks
+    static final double VERTICAL_TOLERANCE = 0.5; // blocks
+    static final double MAX_SPAN = 12.0;          // blocks
+    /** At most this many points are folded into one edge (bounds the window test). */
+    private static final int WINDOW = 16;
+
+    private Mode mode = Mode.RDP;
+
+    // Points dropped since the anchor (P is not among them until it is dropped).
+    private final double[] wx = new double[WINDOW];
+    private final double[] wy = new double[WINDOW];
+    private final double[] wz = new double[WINDOW];
+    private int wn = 0;
+    private double windowArea = 0.0;
+
+    // Segment A -> Q of the current offer.
+    private double ax;
+    private double ay;
+    private double az;
+    private double dx;
+    private double dy;
+    private double dz;
+    private double span2;
+
+    // Trail state the window belongs to; any other mutation of the trail invalidates it.
+    private CheckpointTrail expectTrail = null;
+    private int expectSize = -1;
+    private double expectX;
+    private double expectY;
+    private double expectZ;
+
+    // Reduction statistics: checkpoints offered to the trail, and how many of them replaced a pending point.
+    private long offered = 0;
+    private long dropped = 0;
+
+    Mode mode() {
+        return mode;
+    }
+
+    void setMode(Mode mode) {
+        this.mode = mode;
+        reset();
+    }
+
+    void reset() {
+        wn = 0;
+        windowArea = 0.0;
+        expectTrail = null;
+    }
+
+    /** Share of recorded checkpoints that simplification folded into their neighbors (0..1). */
+    double reductionRatio() {
+        return (offered == 0) ? 0.0 : (double) dropped / offered;
+    }
+
+    long offered() {
+        return offered;
+    }
+
+    long dropped() {
+        return dropped;
+    }
+
+    /**
+     * Offers a new checkpoint {@code q}. Returns true if the trail's last point is redundant and should be replaced
+     * by {@code q}; false if {@code q} should be appended. The caller must then mutate the trail accordingly.
+     */
+    boolean offer(CheckpointTrail trail, Vec3 q) {
+        offered++;
+        int n = trail.size();
+        if (mode == Mode.OFF || n < 2 || n - 2 < trail.segmentStart() || !matches(trail, n)) {
+            startWindow(trail, n + 1, q);
+            return false;
+        }
+
+        int p = n - 1;
+        ax = trail.x(p - 1);
+        ay = trail.y(p - 1);
+        az = trail.z(p - 1);
+        double px = trail.x(p);
+        double py = trail.y(p);
+        double pz = trail.z(p);
+        setSegment(q);
+
+        boolean keep = wn == WINDOW
+                || span2 > MAX_SPAN * MAX_SPAN
+                || trail.isJunction(p)
+                || !fits(px, py, pz);
+        if (!keep) {
+            if (mode == Mode.RDP) {
+                for (int i = 0; i < wn && !keep; i++) keep = !fits(wx[i], wy[i], wz[i]);
+            } else {
+                double area = triangleArea(px, py, pz);
+                keep = windowArea + area > 0.5 * TOLERANCE * Math.sqrt(span2);
+                if (!keep) windowArea += area;
+            }
+        }
+
+        if (keep) {
+            startWindow(trail, n + 1, q);
+            return false;
+        }
+        wx[wn] = px;
+        wy[wn] = py;
+        wz[wn] = pz;
+        wn++;
+        expect(trail, n, q);
+        dropped++;
+        return true;
+    }
+
+    private void setSegment(Vec3 q) {
+        dx = q.x - ax;
+        dy = q.y - ay;
+        dz = q.z - az;
+        span2 = dx * dx + dy * dy + dz * dz;
+    }
+
+    private boolean matches(CheckpointTrail trail, int n) {
+        if (trail != expectTrail || n != expectSize) return false;
+        int last = n - 1;
+        return trail.x(last) == expectX && trail.y(last) == expectY && trail.z(last) == expectZ;
+    }
+
+    private void startWindow(CheckpointTrail trail, int size, Vec3 q) {
+        wn = 0;
+        windowArea = 0.0;
+        expect(trail, size, q);
+    }
+
+    private void expect(CheckpointTrail trail, int size, Vec3 q) {
+        expectTrail = trail;
+        expectSize = size;
+        expectX = q.x;
+        expectY = q.y;
+        expectZ = q.z;
+    }
+
+    /**
+     * Point {@code (x, y, z)} projects onto segment {@code A -> Q} and stays within the height tolerance of it,
+     * and (RDP) within the distance tolerance. VISVALINGAM leaves the distance to the area test.
+     */
+    private boolean fits(double x, double y, double z) {
+        double t = (span2 == 0.0) ? 0.0 : ((x - ax) * dx + (y - ay) * dy + (z - az) * dz) / span2;
+        if (t < 0.0 || t > 1.0) return false; // behind the anchor or past Q: a turn-back
+        double ex = x - (ax + t * dx);
+        double ey = y - (ay + t * dy);
+        double ez = z - (az + t * dz);
+        if (Math.abs(ey) > VERTICAL_TOLERANCE) return false;
+        return mode != Mode.RDP || ex * ex + ey * ey + ez * ez <= TOLERANCE * TOLERANCE;
+    }
+
+    /** Area of the triangle {@code A, (x, y, z), Q}. */
+    private double triangleArea(double x, double y, double z) {
+        double ux = x - ax;
+        double uy = y - ay;
+        double uz = z - az;
+        double nx = uy * dz - uz * dy;
+        double ny = uz * dx - ux * dz;
+        double nz = ux * dy - uy * dx;
+        return 0.5 * Math.sqrt(nx * nx + ny * ny + nz * nz);
+    }
+}
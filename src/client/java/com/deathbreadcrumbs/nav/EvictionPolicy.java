@@ -0,0 +1,21 @@
+package com.deathbreadcrumbs.nav;
+
+/**
+ * Decides which {@link PointDatabase} records are dropped first once the database is over capacity.
+ *
+ * <p>Records with the lowest {@link #rank} are evicted first; ties go to the older record.</p>
+ */
+@FunctionalInterface
+public interface EvictionPolicy {
+
+    /** Least recently seen first. */
+    EvictionPolicy LRU = (lastSeenTick, visits, segmentId) -> lastSeenTick;
+
+    /** Least visited first. */
+    EvictionPolicy LFU = (lastSeenTick, visits, segmentId) -> visits;
+
+    /** Whole oldest segments (lives / trails) first. */
+    EvictionPolicy OLDEST_SEGMENT = (lastSeenTick, visits, segmentId) -> segmentId;
+
+    long rank(long lastSeenTick, int visits, long segmentId);
+}
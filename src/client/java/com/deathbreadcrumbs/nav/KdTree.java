@@ -0,0 +1,155 @@
+package com.deathbreadcrumbs.nav;
+
+/**
+ * Static 3D KD-tree over a subset of points stored in primitive coordinate arrays.
+ *
+ * <p>The tree is implicit: {@code order[lo..hi)} is split at its midpoint along the axis with the widest spread,
+ * so no node objects are allocated. Nearest-neighbor queries are O(log n) on typical trails.</p>
+ *
+ * <p>Queries keep their running best in fields, so one tree must not be queried from several threads at once.</p>
+ */
+public final class KdTree {
+
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final int[] order;
+    private final byte[] axis;
+
+    // Query state.
+    private double qx;
+    private double qy;
+    private double qz;
+    private int best;
+    private double bestD2;
+
+    /**
+     * @param ids point indices to include (copied); coordinates are read from {@code xs/ys/zs} and must not change
+     */
+    public KdTree(double[] xs, double[] ys, double[] zs, int[] ids, int count) {
+        this.xs = xs;
+        this.ys = ys;
+        this.zs = zs;
+        this.order = new int[count];
+        System.arraycopy(ids, 0, order, 0, count);
+        this.axis = new byte[count];
+        build(0, count);
+    }
+
+    /** Builds a tree over all points {@code 0..count-1}. */
+    public static KdTree ofAll(double[] xs, double[] ys, double[] zs, int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) ids[i] = i;
+        return new KdTree(xs, ys, zs, ids, count);
+    }
+
+    public int size() {
+        return order.length;
+    }
+
+    /** Returns the index of the point closest to {@code (x, y, z)}, or {@code -1} if the tree is empty. */
+    public int nearest(double x, double y, double z) {
+        qx = x;
+        qy = y;
+        qz = z;
+        best = -1;
+        bestD2 = Double.POSITIVE_INFINITY;
+        search(0, order.length);
+        return best;
+    }
+
+    private void search(int lo, int hi) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int i = order[mid];
+
+            double dx = xs[i] - qx;
+            double dy = ys[i] - qy;
+            double dz = zs[i] - qz;
+            double d2 = dx * dx + dy * dy + dz * dz;
+            if (d2 < bestD2) {
+                bestD2 = d2;
+                best = i;
+            }
+
+            double diff = switch (axis[mid]) {
+                case 0 -> qx - xs[i];
+                case 1 -> qy - ys[i];
+                default -> qz - zs[i];
+            };
+
+            // Descend into the near side first; visit the far side only if the split plane is close enough.
+            if (diff < 0) {
+                search(lo, mid);
+                if (diff * diff >= bestD2) return;
+                lo = mid + 1;
+            } else {
+                search(mid + 1, hi);
+                if (diff * diff >= bestD2) return;
+                hi = mid;
+            }
+        }
+    }
+
+    private void build(int lo, int hi) {
+        while (hi - lo > 1) {
+            int a = widestAxis(lo, hi);
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi - 1, mid, a);
+            axis[mid] = (byte) a;
+            build(lo, mid);
+            lo = mid + 1;
+        }
+    }
+
+    private int widestAxis(int lo, int hi) {
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        double minZ = Double.POSITIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int k = lo; k < hi; k++) {
+            int i = order[k];
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+            minZ = Math.min(minZ, zs[i]);
+            maxZ = Math.max(maxZ, zs[i]);
+        }
+        double sx = maxX - minX;
+        double sy = maxY - minY;
+        double sz = maxZ - minZ;
+        if (sx >= sy && sx >= sz) return 0;
+        return (sy >= sz) ? 1 : 2;
+    }
+
+    /** Quickselect: places the k-th smallest element (by axis {@code a}) of {@code order[lo..hi]} at k. */
+    private void select(int lo, int hi, int k, int a) {
+        while (hi > lo) {
+            double pivot = coord(order[(lo + hi) >>> 1], a);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coord(order[i], a) < pivot) i++;
+                while (coord(order[j], a) > pivot) j--;
+                if (i <= j) {
+                    int t = order[i];
+                    order[i] = order[j];
+                    order[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) hi = j;
+            else if (k >= i) lo = i;
+            else return;
+        }
+    }
+
+    private double coord(int i, int a) {
+        return switch (a) {
+            case 0 -> xs[i];
+            case 1 -> ys[i];
+            default -> zs[i];
+        };
+    }
+}
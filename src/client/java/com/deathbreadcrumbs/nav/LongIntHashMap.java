@@ -0,0 +1,126 @@
+package com.deathbreadcrumbs.nav;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing {@code long -> int} hash table (linear probing, backward-shift deletion).
+ *
+ * <p>Used for spatial cell tables, where boxing every {@code Long} key on lookup would dominate the cost.
+ * Missing keys map to {@link #MISSING}.</p>
+ *
+ * <p>Dependency-free (no fastutil).</p>
+ */
+public final class LongIntHashMap {
+
+    public static final int MISSING = -1;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    public LongIntHashMap(int expectedSize) {
+        int cap = 16;
+        while (cap * 3 < Math.max(4, expectedSize) * 4) cap <<= 1;
+        allocate(cap);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Approximate heap footprint of the backing arrays, in bytes. */
+    public long footprintBytes() {
+        return (long) keys.length * (8 + 4 + 1);
+    }
+
+    public int get(long key) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) return values[i];
+            i = (i + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    public void put(long key, int value) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        used[i] = true;
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 4 > keys.length * 3) rehash(keys.length << 1);
+    }
+
+    public void remove(long key) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) {
+                shiftBack(i);
+                size--;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /** Fills the hole at {@code hole} by moving later entries of the same probe run backwards. */
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (!used[i]) break;
+            int home = slot(keys[i]);
+            // Move the entry only if its home slot is not cyclically within (hole, i].
+            boolean between = (hole <= i) ? (hole < home && home <= i) : (hole < home || home <= i);
+            if (between) continue;
+            keys[hole] = keys[i];
+            values[hole] = values[i];
+            hole = i;
+        }
+        used[hole] = false;
+    }
+
+    private void rehash(int newCap) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(newCap);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (!oldUsed[i]) continue;
+            int j = slot(oldKeys[i]);
+            while (used[j]) j = (j + 1) & mask;
+            used[j] = true;
+            keys[j] = oldKeys[i];
+            values[j] = oldValues[i];
+        }
+    }
+
+    private void allocate(int cap) {
+        keys = new long[cap];
+        values = new int[cap];
+        used = new boolean[cap];
+        mask = cap - 1;
+    }
+
+    private int slot(long key) {
+        // Murmur-like finalizer; cell keys are highly structured.
+        long k = key;
+        k ^= (k >>> 33);
+        k *= 0xff51afd7ed558ccdL;
+        k ^= (k >>> 33);
+        return (int) k & mask;
+    }
+}
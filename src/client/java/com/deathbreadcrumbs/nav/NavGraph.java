@@ -0,0 +1,75 @@
+package com.deathbreadcrumbs.nav;
+
+/**
+ * Immutable snapshot of one dimension's navigation graph, exported by {@link PointDatabase#navGraph}.
+ *
+ * <p>Nodes are the database records of that dimension (local indices {@code 0..size-1}); the edges of node
+ * {@code i} are {@code targets[offsets[i] .. offsets[i + 1])} and cover the segment chains of every recorded life
+ * (in both directions) plus the proximity links. The arrays are shared with whoever builds on the snapshot and must
+ * not be modified.</p>
+ */
+public final class NavGraph {
+
+    private final String dimKey;
+    private final long version;
+    private final long[] ids;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final int[] offsets;
+    private final int[] targets;
+
+    NavGraph(String dimKey, long version, long[] ids, double[] xs, double[] ys, double[] zs,
+             int[] offsets, int[] targets) {
+        this.dimKey = dimKey;
+        this.version = version;
+        this.ids = ids;
+        this.xs = xs;
+        this.ys = ys;
+        this.zs = zs;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    public String dimKey() {
+        return dimKey;
+    }
+
+    /** Database change counter at export time; equal versions of the same dimension mean identical graphs. */
+    public long version() {
+        return version;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /** Database id of node {@code i}. */
+    public long id(int i) {
+        return ids[i];
+    }
+
+    public double[] xs() {
+        return xs;
+    }
+
+    public double[] ys() {
+        return ys;
+    }
+
+    public double[] zs() {
+        return zs;
+    }
+
+    public int[] offsets() {
+        return offsets;
+    }
+
+    public int[] targets() {
+        return targets;
+    }
+}
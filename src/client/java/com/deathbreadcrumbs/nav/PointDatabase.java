@@ -2,7 +2,11 @@ package com.deathbreadcrumbs.nav;
 
 import net.minecraft.world.phys.Vec3;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -13,30 +17,279 @@ import java.util.Map;
  *     <li>safe linking (prevents cycles inside a segment)</li>
  * </ul>
  *
+ * <p>Storage is struct-of-arrays: every record is a row index into primitive columns, links are row indices,
+ * cells map to the head of an intrusive per-cell chain and dimensions are interned to small ints. Lookups on the
+ * hot path ({@link #addOrMerge}) therefore neither box keys nor touch per-record objects.
+ * {@link PointRecord}s are only materialized by {@link #get(PointId)}.</p>
+ *
+ * <p>The database is bounded: once it holds {@code capacity} records, a batch of records chosen by the
+ * {@link EvictionPolicy} is dropped before the next insert. Links pointing at evicted records are cleared.</p>
+ *
+ * <p>Besides the segment chains, every record keeps up to {@link #NAV_MAX_NEIGHBORS} symmetric proximity links to
+ * records of the same dimension within {@link #NAV_LINK_DIST}, maintained on insert and on eviction. Together they
+ * form a navigation graph over everything ever recorded, exported per dimension by {@link #navGraph}.</p>
+ *
  * <p>Dependency-free (no fastutil).</p>
  */
 public final class PointDatabase {
 
+    /** Proximity link radius and per-record link budget (same as the per-route graphs). */
+    public static final double NAV_LINK_DIST = 8.0;
+    public static final int NAV_MAX_NEIGHBORS = 8;
+
+    private static final int NONE = -1;
+    private static final int SMOOTH_WINDOW = 8;
+    private static final int K = NAV_MAX_NEIGHBORS;
+    private static final double NAV_LINK_DIST2 = NAV_LINK_DIST * NAV_LINK_DIST;
+
     private final int cellSize;
     private final double mergeDist;
     private final double mergeDist2;
     private final int maxBackwalkForCycleCheck;
 
+    private int capacity;
+    private EvictionPolicy evictionPolicy;
+    private long evictions = 0;
+
     private long nextId = 1;
 
-    private final Map<Long, ArrayList<PointId>> cellToIds = new HashMap<>();
-    private final Map<Long, PointRecord> idToRecord = new HashMap<>();
+    // Interned dimension keys.
+    private final Map<String, Integer> dimToIndex = new HashMap<>();
+    private final ArrayList<String> dimKeys = new ArrayList<>();
+
+    // Row columns.
+    private int size = 0;
+    private long[] ids;
+    private int[] dim;
+    private double[] x;
+    private double[] y;
+    private double[] z;
+    private int[] prev;
+    private int[] next;
+    private long[] segmentId;
+    private long[] lastSeenTick;
+    private int[] visits;
+    private int[] cellNext;
+    // Proximity links by row: rows at near[r * K .. r * K + nearCount[r]).
+    private int[] near;
+    private byte[] nearCount;
+
+    // Bumped on every change to rows, positions or links; keys the cached navGraph export.
+    private long navVersion = 0;
+    private NavGraph navCache = null;
+
+    // Top-K candidate scratch for proximity linking.
+    private final int[] candRows = new int[K];
+    private final double[] candD2 = new double[K];
+
+    // Eviction scratch (reused across batches).
+    private long[] rankScratch = new long[0];
+    private long[] sortScratch = new long[0];
+    private int[] remapScratch = new int[0];
+
+    private final LongIntHashMap idToRow = new LongIntHashMap(1024);
+    private final LongIntHashMap cellHead = new LongIntHashMap(256);
 
     public PointDatabase(int cellSize, double mergeDist, int maxBackwalkForCycleCheck) {
+        this(cellSize, mergeDist, maxBackwalkForCycleCheck, 0, EvictionPolicy.LRU);
+    }
+
+    /**
+     * @param capacity maximum number of records; {@code <= 0} means unbounded
+     */
+    public PointDatabase(int cellSize, double mergeDist, int maxBackwalkForCycleCheck,
+                         int capacity, EvictionPolicy evictionPolicy) {
         this.cellSize = Math.max(1, cellSize);
         this.mergeDist = Math.max(0.0, mergeDist);
         this.mergeDist2 = this.mergeDist * this.mergeDist;
         this.maxBackwalkForCycleCheck = Math.max(16, maxBackwalkForCycleCheck);
+        setCapacity(capacity);
+        setEvictionPolicy(evictionPolicy);
+        allocate(1024);
+    }
+
+    /** Number of stored records. */
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets the maximum number of records ({@code <= 0} means unbounded). Shrinking below the current size
+     * evicts immediately.
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = (capacity <= 0) ? Integer.MAX_VALUE : capacity;
+        if (size > this.capacity) evict(size - this.capacity);
+    }
+
+    public EvictionPolicy evictionPolicy() {
+        return evictionPolicy;
+    }
+
+    public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+        this.evictionPolicy = (evictionPolicy == null) ? EvictionPolicy.LRU : evictionPolicy;
+    }
+
+    /** Total number of records evicted since creation. */
+    public long evictions() {
+        return evictions;
+    }
+
+    /** Approximate heap footprint of the columns and tables, in bytes. */
+    public long footprintBytes() {
+        // ids, segmentId, lastSeenTick: 8 each; x/y/z: 8 each; dim, prev, next, visits, cellNext: 4 each;
+        // proximity links: 4 * K + 1.
+        long rows = (long) ids.length * (3 * 8 + 3 * 8 + 5 * 4 + 4 * K + 1);
+        long scratch = (long) rankScratch.length * 8 + (long) sortScratch.length * 8 + (long) remapScratch.length * 4;
+        return rows + scratch + idToRow.footprintBytes() + cellHead.footprintBytes();
+    }
+
+    /**
+     * Interns a dimension key. Callers on a hot path should intern once and use the {@code int} overloads.
+     */
+    public int internDim(String dimKey) {
+        Integer idx = dimToIndex.get(dimKey);
+        if (idx != null) return idx;
+        int d = dimKeys.size();
+        dimKeys.add(dimKey);
+        dimToIndex.put(dimKey, d);
+        return d;
+    }
+
+    /**
+     * The id the next new record will get. Persist it alongside per-dimension saves so ids stay unique while
+     * some dimensions are not loaded yet.
+     */
+    public long nextId() {
+        return nextId;
     }
 
+    /** Makes sure ids below {@code minNextId} are never handed out again. */
+    public void reserveIdsBelow(long minNextId) {
+        if (minNextId > nextId) nextId = minNextId;
+    }
+
+    /**
+     * Writes every record of one dimension (see {@link #readDimension}). Links are written as ids; links to
+     * records outside the dimension are dropped on read.
+     */
+    public void writeDimension(String dimKey, DataOutput out) throws IOException {
+        Integer d = dimToIndex.get(dimKey);
+        int count = 0;
+        if (d != null) {
+            for (int r = 0; r < size; r++) {
+                if (dim[r] == d) count++;
+            }
+        }
+        out.writeInt(count);
+        if (count == 0) return;
+
+        for (int r = 0; r < size; r++) {
+            if (dim[r] != d) continue;
+            out.writeLong(ids[r]);
+            out.writeDouble(x[r]);
+            out.writeDouble(y[r]);
+            out.writeDouble(z[r]);
+            out.writeLong((prev[r] == NONE) ? 0 : ids[prev[r]]);
+            out.writeLong((next[r] == NONE) ? 0 : ids[next[r]]);
+            out.writeLong(segmentId[r]);
+            out.writeLong(lastSeenTick[r]);
+            out.writeInt(visits[r]);
+        }
+    }
+
+    /**
+     * Adds the records written by {@link #writeDimension}. Ids that already exist are skipped; if the database
+     * ends up over capacity, the usual eviction runs.
+     *
+     * @return number of records added
+     */
+    public int readDimension(String dimKey, DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) throw new IOException("bad record count " + count);
+        int d = internDim(dimKey);
+
+        int[] rows = new int[count];
+        long[] prevIds = new long[count];
+        long[] nextIds = new long[count];
+        int added = 0;
+        for (int i = 0; i < count; i++) {
+            long id = in.readLong();
+            double px = in.readDouble();
+            double py = in.readDouble();
+            double pz = in.readDouble();
+            prevIds[i] = in.readLong();
+            nextIds[i] = in.readLong();
+            long seg = in.readLong();
+            long seen = in.readLong();
+            int v = in.readInt();
+
+            if (id <= 0 || idToRow.get(id) != NONE) {
+                rows[i] = NONE;
+                continue;
+            }
+            int r = size++;
+            if (r == ids.length) grow();
+            ids[r] = id;
+            dim[r] = d;
+            x[r] = px;
+            y[r] = py;
+            z[r] = pz;
+            prev[r] = NONE;
+            next[r] = NONE;
+            segmentId[r] = seg;
+            lastSeenTick[r] = seen;
+            visits[r] = v;
+            idToRow.put(id, r);
+            rows[i] = r;
+            if (id >= nextId) nextId = id + 1;
+            added++;
+        }
+
+        // Second pass: every record of the dimension exists now, so links can be resolved.
+        for (int i = 0; i < count; i++) {
+            int r = rows[i];
+            if (r == NONE) continue;
+            int p = (prevIds[i] == 0) ? NONE : idToRow.get(prevIds[i]);
+            int nx = (nextIds[i] == 0) ? NONE : idToRow.get(nextIds[i]);
+            if (p != NONE && dim[p] == d) prev[r] = p;
+            if (nx != NONE && dim[nx] == d) next[r] = nx;
+        }
+        // Proximity links: each record joins the cells only now and links against the records already there, as on
+        // insert (linkNear starts from an empty list, so linking a record twice would leave one-sided links).
+        for (int i = 0; i < count; i++) {
+            int r = rows[i];
+            if (r == NONE) continue;
+            addToCell(r);
+            linkNear(r);
+        }
+        navVersion++;
+
+        if (size > capacity) evict(size - capacity);
+        return added;
+    }
+
+    /**
+     * Returns a detached snapshot of the record, or {@code null} if the id is unknown.
+     */
     public PointRecord get(PointId id) {
         if (id == null) return null;
-        return idToRecord.get(id.value());
+        int r = idToRow.get(id.value());
+        if (r == NONE) return null;
+        return new PointRecord(
+                id,
+                dimKeys.get(dim[r]),
+                new Vec3(x[r], y[r], z[r]),
+                idOrNull(prev[r]),
+                idOrNull(next[r]),
+                segmentId[r],
+                lastSeenTick[r],
+                visits[r]
+        );
     }
 
     /**
@@ -45,52 +298,231 @@ public final class PointDatabase {
      */
     public PointId addOrMerge(String dimKey, Vec3 pos, PointId prevId, long segmentId, long tickNow) {
         if (dimKey == null || pos == null) return null;
+        return addOrMerge(internDim(dimKey), pos, prevId, segmentId, tickNow);
+    }
+
+    /**
+     * Same as {@link #addOrMerge(String, Vec3, PointId, long, long)} for an {@link #internDim interned} dimension.
+     */
+    public PointId addOrMerge(int dimIdx, Vec3 pos, PointId prevId, long segId, long tickNow) {
+        if (pos == null || dimIdx < 0 || dimIdx >= dimKeys.size()) return null;
+
+        int prevRow = (prevId == null) ? NONE : idToRow.get(prevId.value());
+
+        navVersion++;
+        int nearest = findNearestWithin(dimIdx, pos.x, pos.y, pos.z);
+        if (nearest != NONE) {
+            touch(nearest, tickNow, pos);
+            safeLink(prevRow, nearest, segId);
+            return new PointId(ids[nearest]);
+        }
+
+        if (size >= capacity) {
+            // Evict in batches so the selection cost is amortized over many inserts.
+            evict(size - capacity + Math.max(1, capacity >>> 4));
+            if (prevRow != NONE) prevRow = idToRow.get(prevId.value());
+        }
+
+        int r = size++;
+        if (r == ids.length) grow();
+        ids[r] = nextId++;
+        dim[r] = dimIdx;
+        x[r] = pos.x;
+        y[r] = pos.y;
+        z[r] = pos.z;
+        prev[r] = NONE;
+        next[r] = NONE;
+        segmentId[r] = segId;
+        lastSeenTick[r] = tickNow;
+        visits[r] = 1;
+        idToRow.put(ids[r], r);
+        addToCell(r);
+        linkNear(r);
+
+        safeLink(prevRow, r, segId);
+        return new PointId(ids[r]);
+    }
 
-        PointRecord nearest = findNearestWithin(dimKey, pos);
-        if (nearest != null) {
-            nearest.touch(tickNow, pos, /*smoothWindow*/ 8);
-            safeLink(prevId, nearest.id(), segmentId);
-            return nearest.id();
+    /**
+     * Navigation graph of one dimension as an immutable CSR snapshot: chain links (both directions) plus
+     * proximity links. Cached until the database changes, so repeated calls between changes are free.
+     */
+    public NavGraph navGraph(String dimKey) {
+        Integer boxed = dimToIndex.get(dimKey);
+        int d = (boxed == null) ? NONE : boxed;
+        NavGraph cached = navCache;
+        if (cached != null && cached.version() == navVersion && cached.dimKey().equals(dimKey)) return cached;
+
+        // Row -> local node index (NONE for other dimensions).
+        if (remapScratch.length < ids.length) remapScratch = new int[ids.length];
+        int[] local = remapScratch;
+        int m = 0;
+        for (int r = 0; r < size; r++) {
+            local[r] = (dim[r] == d) ? m++ : NONE;
+        }
+
+        long[] nodeIds = new long[m];
+        double[] xs = new double[m];
+        double[] ys = new double[m];
+        double[] zs = new double[m];
+        int[] offsets = new int[m + 1];
+
+        // Pass 1: degrees. A chain link that the other end does not list (as chain or proximity link) is added to
+        // that end as well, so every edge is stored once per direction.
+        for (int r = 0; r < size; r++) {
+            int i = local[r];
+            if (i == NONE) continue;
+            nodeIds[i] = ids[r];
+            xs[i] = x[r];
+            ys[i] = y[r];
+            zs[i] = z[r];
+            offsets[i + 1] += rowDegree(r);
+            if (next[r] != NONE && !listsRow(next[r], r)) offsets[local[next[r]] + 1]++;
+            if (prev[r] != NONE && prev[r] != next[r] && !listsRow(prev[r], r)) offsets[local[prev[r]] + 1]++;
+        }
+        for (int i = 0; i < m; i++) offsets[i + 1] += offsets[i];
+
+        // Pass 2: fill. fill[i] is the next free slot of node i.
+        int[] targets = new int[offsets[m]];
+        int[] fill = Arrays.copyOf(offsets, m);
+        for (int r = 0; r < size; r++) {
+            int i = local[r];
+            if (i == NONE) continue;
+            if (prev[r] != NONE) targets[fill[i]++] = local[prev[r]];
+            if (next[r] != NONE && next[r] != prev[r]) targets[fill[i]++] = local[next[r]];
+            for (int k = 0; k < nearCount[r]; k++) {
+                int o = near[r * K + k];
+                if (o != prev[r] && o != next[r]) targets[fill[i]++] = local[o];
+            }
+            if (next[r] != NONE && !listsRow(next[r], r)) targets[fill[local[next[r]]]++] = i;
+            if (prev[r] != NONE && prev[r] != next[r] && !listsRow(prev[r], r)) targets[fill[local[prev[r]]]++] = i;
+        }
+
+        navCache = new NavGraph(dimKey, navVersion, nodeIds, xs, ys, zs, offsets, targets);
+        return navCache;
+    }
+
+    private int rowDegree(int r) {
+        int deg = (prev[r] != NONE ? 1 : 0) + (next[r] != NONE && next[r] != prev[r] ? 1 : 0);
+        for (int k = 0; k < nearCount[r]; k++) {
+            int o = near[r * K + k];
+            if (o != prev[r] && o != next[r]) deg++;
+        }
+        return deg;
+    }
+
+    /** True if row {@code r} already has an edge to {@code o} in the export (chain or proximity link). */
+    private boolean listsRow(int r, int o) {
+        if (prev[r] == o || next[r] == o) return true;
+        for (int k = 0; k < nearCount[r]; k++) {
+            if (near[r * K + k] == o) return true;
+        }
+        return false;
+    }
+
+    /** Links a new row to its nearest rows of the same dimension within {@link #NAV_LINK_DIST}. */
+    private void linkNear(int r) {
+        nearCount[r] = 0;
+        int d = dim[r];
+        int span = (int) Math.ceil(NAV_LINK_DIST / cellSize);
+        int cx = cellX(x[r]);
+        int cz = cellZ(z[r]);
+        int found = 0;
+        for (int dx = -span; dx <= span; dx++) {
+            for (int dz = -span; dz <= span; dz++) {
+                for (int o = cellHead.get(cellKey(d, cx + dx, cz + dz)); o != NONE; o = cellNext[o]) {
+                    if (o == r || dim[o] != d) continue;
+                    double d2 = dist2(r, o);
+                    if (d2 > NAV_LINK_DIST2) continue;
+                    found = offerCandidate(o, d2, found);
+                }
+            }
         }
+        for (int c = 0; c < found; c++) connectNear(r, candRows[c], candD2[c]);
+    }
 
-        PointId id = new PointId(nextId++);
-        PointRecord rec = new PointRecord(id, dimKey, pos, segmentId, tickNow);
-        idToRecord.put(id.value(), rec);
-        addToCell(rec);
+    private int offerCandidate(int o, double d2, int found) {
+        if (found == K && d2 >= candD2[K - 1]) return found;
+        int i = (found < K) ? found++ : K - 1;
+        while (i > 0 && candD2[i - 1] > d2) {
+            candRows[i] = candRows[i - 1];
+            candD2[i] = candD2[i - 1];
+            i--;
+        }
+        candRows[i] = o;
+        candD2[i] = d2;
+        return found;
+    }
 
-        safeLink(prevId, id, segmentId);
-        return id;
+    /**
+     * Adds the symmetric link {@code a <-> b}. If {@code b} is full, the link replaces b's farthest link when
+     * closer, otherwise it is skipped.
+     */
+    private void connectNear(int a, int b, double d2) {
+        if (nearCount[b] == K) {
+            int far = -1;
+            double farD2 = d2;
+            for (int k = 0; k < K; k++) {
+                double e2 = dist2(b, near[b * K + k]);
+                if (e2 > farD2) {
+                    farD2 = e2;
+                    far = k;
+                }
+            }
+            if (far < 0) return;
+            removeNear(near[b * K + far], b);
+            near[b * K + far] = a;
+        } else {
+            near[b * K + nearCount[b]++] = a;
+        }
+        near[a * K + nearCount[a]++] = b;
     }
 
-    private void addToCell(PointRecord rec) {
-        long ck = cellKey(rec.dimKey(), cellX(rec.pos().x), cellZ(rec.pos().z));
-        cellToIds.computeIfAbsent(ck, k -> new ArrayList<>()).add(rec.id());
+    private void removeNear(int r, int o) {
+        int cnt = nearCount[r];
+        for (int k = 0; k < cnt; k++) {
+            if (near[r * K + k] == o) {
+                near[r * K + k] = near[r * K + cnt - 1];
+                nearCount[r] = (byte) (cnt - 1);
+                return;
+            }
+        }
+    }
+
+    private double dist2(int a, int b) {
+        double dx = x[a] - x[b];
+        double dy = y[a] - y[b];
+        double dz = z[a] - z[b];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private void addToCell(int r) {
+        long ck = cellKey(dim[r], cellX(x[r]), cellZ(z[r]));
+        cellNext[r] = cellHead.get(ck);
+        cellHead.put(ck, r);
     }
 
-    private PointRecord findNearestWithin(String dimKey, Vec3 pos) {
-        if (mergeDist <= 0) return null;
+    private int findNearestWithin(int d, double px, double py, double pz) {
+        if (mergeDist <= 0) return NONE;
 
-        int cx = cellX(pos.x);
-        int cz = cellZ(pos.z);
+        int cx = cellX(px);
+        int cz = cellZ(pz);
 
-        PointRecord best = null;
+        int best = NONE;
         double bestD2 = Double.POSITIVE_INFINITY;
 
         // Check 3x3 neighboring cells.
         for (int dx = -1; dx <= 1; dx++) {
             for (int dz = -1; dz <= 1; dz++) {
-                long ck = cellKey(dimKey, cx + dx, cz + dz);
-                ArrayList<PointId> ids = cellToIds.get(ck);
-                if (ids == null) continue;
-
-                for (int i = 0; i < ids.size(); i++) {
-                    PointRecord r = get(ids.get(i));
-                    if (r == null) continue;
-
-                    // The cell key includes dimKey, but keep this guard in case of hash collision.
-                    if (!dimKey.equals(r.dimKey())) continue;
-
-                    double d2 = dist2(pos, r.pos());
+                long ck = cellKey(d, cx + dx, cz + dz);
+                for (int r = cellHead.get(ck); r != NONE; r = cellNext[r]) {
+                    // The cell key includes the dimension, but keep this guard in case of hash collision.
+                    if (dim[r] != d) continue;
+
+                    double ex = x[r] - px;
+                    double ey = y[r] - py;
+                    double ez = z[r] - pz;
+                    double d2 = ex * ex + ey * ey + ez * ez;
                     if (d2 <= mergeDist2 && d2 < bestD2) {
                         bestD2 = d2;
                         best = r;
@@ -102,81 +534,188 @@ public final class PointDatabase {
     }
 
     /**
-     * Prevents accidental cycles inside a segment when merging back into an older point.
+     * Updates metadata and optionally applies light smoothing towards {@code newPos}.
+     * The row keeps its cell until the next eviction compaction re-buckets it.
      */
-    private void safeLink(PointId prev, PointId next, long segmentId) {
-        if (prev == null || next == null) return;
-        if (prev.equals(next)) return;
+    private void touch(int r, long tickNow, Vec3 newPos) {
+        lastSeenTick[r] = tickNow;
+        visits[r]++;
+
+        if (visits[r] <= SMOOTH_WINDOW) {
+            // Simple EMA (75/25) to dampen jitter.
+            x[r] = (x[r] * 0.75) + (newPos.x * 0.25);
+            y[r] = (y[r] * 0.75) + (newPos.y * 0.25);
+            z[r] = (z[r] * 0.75) + (newPos.z * 0.25);
+        } else {
+            x[r] = newPos.x;
+            y[r] = newPos.y;
+            z[r] = newPos.z;
+        }
+    }
 
-        PointRecord a = get(prev);
-        PointRecord b = get(next);
-        if (a == null || b == null) return;
-        if (!a.dimKey().equals(b.dimKey())) return;
+    /**
+     * Prevents accidental cycles inside a segment when merging back into an older point.
+     */
+    private void safeLink(int a, int b, long segId) {
+        if (a == NONE || b == NONE) return;
+        if (a == b) return;
+        if (dim[a] != dim[b]) return;
 
-        if (a.segmentId() != segmentId) return;
-        if (b.segmentId() != segmentId) return;
+        if (segmentId[a] != segId) return;
+        if (segmentId[b] != segId) return;
 
-        if (next.equals(a.nextId())) return;
-        if (prev.equals(b.prevId())) return;
+        if (next[a] == b) return;
+        if (prev[b] == a) return;
 
-        if (wouldCreateCycle(prev, next, segmentId)) return;
+        if (wouldCreateCycle(a, b, segId)) return;
 
         // Do not overwrite existing links.
-        if (a.nextId() == null) a.setNextId(next);
-        if (b.prevId() == null) b.setPrevId(prev);
+        if (next[a] == NONE) next[a] = b;
+        if (prev[b] == NONE) prev[b] = a;
     }
 
-    private boolean wouldCreateCycle(PointId prev, PointId next, long segmentId) {
-        PointId cur = prev;
+    private boolean wouldCreateCycle(int a, int b, long segId) {
+        int cur = a;
         for (int i = 0; i < maxBackwalkForCycleCheck; i++) {
-            PointRecord r = get(cur);
-            if (r == null) return false;
-            if (r.segmentId() != segmentId) return false;
+            if (segmentId[cur] != segId) return false;
 
-            PointId p = r.prevId();
-            if (p == null) return false;
-            if (p.equals(next)) return true;
+            int p = prev[cur];
+            if (p == NONE) return false;
+            if (p == b) return true;
 
             cur = p;
         }
         return true; // too deep => conservative
     }
 
-    private int cellX(double x) {
-        return (int) Math.floor(x / cellSize);
+    /**
+     * Drops the {@code count} lowest-ranked records, compacts the columns (keeping insertion order, so ties
+     * still go to older records) and clears every link that pointed at an evicted record.
+     */
+    private void evict(int count) {
+        count = Math.min(count, size);
+        if (count <= 0) return;
+
+        if (rankScratch.length < ids.length) {
+            rankScratch = new long[ids.length];
+            sortScratch = new long[ids.length];
+            remapScratch = new int[ids.length];
+        }
+        long[] rank = rankScratch;
+        for (int r = 0; r < size; r++) {
+            rank[r] = evictionPolicy.rank(lastSeenTick[r], visits[r], segmentId[r]);
+        }
+        System.arraycopy(rank, 0, sortScratch, 0, size);
+        Arrays.sort(sortScratch, 0, size);
+        long threshold = sortScratch[count - 1];
+
+        int atThreshold = count;
+        for (int r = 0; r < size; r++) {
+            if (rank[r] < threshold) atThreshold--;
+        }
+
+        // Old row -> new row (NONE if evicted).
+        int[] remap = remapScratch;
+        int kept = 0;
+        for (int r = 0; r < size; r++) {
+            boolean drop = rank[r] < threshold || (rank[r] == threshold && atThreshold-- > 0);
+            remap[r] = drop ? NONE : kept++;
+        }
+
+        for (int r = 0; r < size; r++) {
+            int w = remap[r];
+            if (w == NONE || w == r) continue;
+            ids[w] = ids[r];
+            dim[w] = dim[r];
+            x[w] = x[r];
+            y[w] = y[r];
+            z[w] = z[r];
+            prev[w] = prev[r];
+            next[w] = next[r];
+            segmentId[w] = segmentId[r];
+            lastSeenTick[w] = lastSeenTick[r];
+            visits[w] = visits[r];
+        }
+
+        // Proximity links: remap, dropping evicted rows (w <= r, so row w's old links are already consumed).
+        for (int r = 0; r < size; r++) {
+            int w = remap[r];
+            if (w == NONE) continue;
+            int cnt = 0;
+            for (int k = 0; k < nearCount[r]; k++) {
+                int o = remap[near[r * K + k]];
+                if (o != NONE) near[w * K + cnt++] = o;
+            }
+            nearCount[w] = (byte) cnt;
+        }
+
+        evictions += size - kept;
+        size = kept;
+        navVersion++;
+
+        idToRow.clear();
+        cellHead.clear();
+        for (int r = 0; r < size; r++) {
+            prev[r] = (prev[r] == NONE) ? NONE : remap[prev[r]];
+            next[r] = (next[r] == NONE) ? NONE : remap[next[r]];
+            idToRow.put(ids[r], r);
+            addToCell(r);
+        }
     }
 
-    private int cellZ(double z) {
-        return (int) Math.floor(z / cellSize);
+    private PointId idOrNull(int r) {
+        return (r == NONE) ? null : new PointId(ids[r]);
     }
 
-    /**
-     * Hashes a dimension key and 2D cell coordinates into a single long.
-     *
-     * <p>This does not need to be stable across runs; it is only used as a map key.</p>
-     */
-    private static long cellKey(String dimKey, int cx, int cz) {
-        long dimHash = (long) dimKey.hashCode();
+    private void allocate(int cap) {
+        ids = new long[cap];
+        dim = new int[cap];
+        x = new double[cap];
+        y = new double[cap];
+        z = new double[cap];
+        prev = new int[cap];
+        next = new int[cap];
+        segmentId = new long[cap];
+        lastSeenTick = new long[cap];
+        visits = new int[cap];
+        cellNext = new int[cap];
+        near = new int[cap * K];
+        nearCount = new byte[cap];
+    }
 
-        // Mix dimHash into both halves to reduce clustering.
-        long k = (dimHash << 32) ^ (dimHash >>> 32);
+    private void grow() {
+        int cap = ids.length << 1;
+        ids = Arrays.copyOf(ids, cap);
+        dim = Arrays.copyOf(dim, cap);
+        x = Arrays.copyOf(x, cap);
+        y = Arrays.copyOf(y, cap);
+        z = Arrays.copyOf(z, cap);
+        prev = Arrays.copyOf(prev, cap);
+        next = Arrays.copyOf(next, cap);
+        segmentId = Arrays.copyOf(segmentId, cap);
+        lastSeenTick = Arrays.copyOf(lastSeenTick, cap);
+        visits = Arrays.copyOf(visits, cap);
+        cellNext = Arrays.copyOf(cellNext, cap);
+        near = Arrays.copyOf(near, cap * K);
+        nearCount = Arrays.copyOf(nearCount, cap);
+    }
 
-        // Add cell coords.
-        k ^= ((long) cx << 32) ^ (cz & 0xffffffffL);
+    private int cellX(double v) {
+        return (int) Math.floor(v / cellSize);
+    }
 
-        // Finalize (Murmur-like avalanche).
-        k ^= (k >>> 33);
-        k *= 0xff51afd7ed558ccdL;
-        k ^= (k >>> 33);
-        k *= 0xc4ceb9fe1a85ec53L;
-        k ^= (k >>> 33);
-        return k;
+    private int cellZ(double v) {
+        return (int) Math.floor(v / cellSize);
     }
 
-    private static double dist2(Vec3 a, Vec3 b) {
-        double dx = a.x - b.x;
-        double dy = a.y - b.y;
-        double dz = a.z - b.z;
-        return dx * dx + dy * dy + dz * dz;
+    /**
+     * Packs an interned dimension and 2D cell coordinates into a single long.
+     *
+     * <p>This does not need to be stable across runs; it is only used as a table key.</p>
+     */
+    private static long cellKey(int d, int cx, int cz) {
+        long k = ((long) cx << 32) ^ (cz & 0xffffffffL);
+        // Spread the dimension over the high bits; collisions are filtered by the dimension guard.
+        return k ^ ((long) d * 0x9e3779b97f4a7c15L);
     }
 }
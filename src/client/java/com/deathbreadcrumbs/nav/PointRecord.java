@@ -5,33 +5,36 @@ import net.minecraft.world.phys.Vec3;
 /**
  * One stored support point in the {@link PointDatabase}.
  *
- * <p>Fields are intentionally minimal; mutation is limited to the point position (smoothing),
- * link pointers, and lightweight metadata.</p>
+ * <p>The database keeps its rows in primitive columns; a {@code PointRecord} is a detached, read-only snapshot
+ * of one row (position, link pointers, and lightweight metadata) taken by {@link PointDatabase#get(PointId)}.</p>
  */
 public final class PointRecord {
     private final PointId id;
     private final String dimKey;
 
-    private Vec3 pos;
+    private final Vec3 pos;
 
     /** Directed chain inside one segment (optional). */
-    private PointId prevId;
-    private PointId nextId;
+    private final PointId prevId;
+    private final PointId nextId;
 
     /** Logical segment id (increment on death/teleport/etc.). */
     private final long segmentId;
 
     /** Optional metadata. */
-    private long lastSeenTick;
-    private int visits;
+    private final long lastSeenTick;
+    private final int visits;
 
-    PointRecord(PointId id, String dimKey, Vec3 pos, long segmentId, long tickNow) {
+    PointRecord(PointId id, String dimKey, Vec3 pos, PointId prevId, PointId nextId,
+                long segmentId, long lastSeenTick, int visits) {
         this.id = id;
         this.dimKey = dimKey;
         this.pos = pos;
+        this.prevId = prevId;
+        this.nextId = nextId;
         this.segmentId = segmentId;
-        this.lastSeenTick = tickNow;
-        this.visits = 1;
+        this.lastSeenTick = lastSeenTick;
+        this.visits = visits;
     }
 
     public PointId id() {
@@ -65,31 +68,4 @@ public final class PointRecord {
     PointId nextId() {
         return nextId;
     }
-
-    void setPrevId(PointId prevId) {
-        this.prevId = prevId;
-    }
-
-    void setNextId(PointId nextId) {
-        this.nextId = nextId;
-    }
-
-    /**
-     * Updates metadata and optionally applies light smoothing towards {@code newPos}.
-     */
-    void touch(long tickNow, Vec3 newPos, int smoothWindow) {
-        this.lastSeenTick = tickNow;
-        this.visits++;
-
-        if (smoothWindow > 0 && this.visits <= smoothWindow) {
-            // Simple EMA (75/25) to dampen jitter.
-            this.pos = new Vec3(
-                    (this.pos.x * 0.75) + (newPos.x * 0.25),
-                    (this.pos.y * 0.75) + (newPos.y * 0.25),
-                    (this.pos.z * 0.75) + (newPos.z * 0.25)
-            );
-        } else {
-            this.pos = newPos;
-        }
-    }
 }
@@ -0,0 +1,261 @@
+package com.deathbreadcrumbs.nav;
+
+import java.util.Arrays;
+
+/**
+ * Reusable single-source shortest-path solver over a graph in compressed sparse row form (the edges of node
+ * {@code i} are {@code targets[offsets[i] .. offsets[i + 1])} with parallel {@code weights}).
+ *
+ * <p>Dijkstra with an indexed 4-ary min-heap: every node is in the heap at most once and a shorter tentative
+ * distance moves it up in place (decrease-key), so a solve allocates nothing once the scratch arrays have grown
+ * to the largest graph seen. Equal distances are popped in ascending node order, which keeps the resulting
+ * next-hop tree deterministic.</p>
+ *
+ * <p>Point-to-point queries ({@link #findPath}, or {@link #findCost} when only the distance is needed) run A* over
+ * the same heap with a straight-line heuristic. Their per-node state is tagged with a query generation, so a query
+ * only touches the nodes it expands instead of resetting arrays sized to the whole graph.</p>
+ *
+ * <p>Holds mutable scratch state: use one engine per thread.</p>
+ */
+public final class ShortestPathEngine {
+
+    private static final int ARITY = 4;
+    private static final int ABSENT = -1;
+    private static final int DONE = -2;
+
+    private int[] heap = new int[0];
+    private int[] pos = new int[0];
+    private int size;
+    // Keys of the current search (the caller's distance array, or fScore for A*).
+    private double[] key;
+
+    // A* state; a node's entries are valid only while stamp[v] == generation.
+    private int[] stamp = new int[0];
+    private int generation = 0;
+    private double[] gScore = new double[0];
+    private double[] fScore = new double[0];
+    private int[] parent = new int[0];
+    private int[] path = new int[0];
+    private int pathLength = 0;
+    private double pathCost = Double.POSITIVE_INFINITY;
+
+    /**
+     * Computes shortest paths from {@code source} over the undirected {@code n}-node graph (non-negative
+     * weights). Fills {@code dist[i]} (+inf if unreachable) and {@code next[i]}, the neighbor of {@code i} on its
+     * shortest path to the source (-1 for the source and unreachable nodes).
+     */
+    public void solve(int n, int source, int[] offsets, int[] targets, double[] weights, int[] next, double[] dist) {
+        ensureCapacity(n);
+        Arrays.fill(next, 0, n, -1);
+        Arrays.fill(dist, 0, n, Double.POSITIVE_INFINITY);
+        Arrays.fill(pos, 0, n, ABSENT);
+        key = dist;
+        size = 0;
+
+        dist[source] = 0.0;
+        push(source);
+
+        while (size > 0) {
+            int u = pop();
+            pos[u] = DONE;
+            double du = dist[u];
+
+            for (int k = offsets[u], end = offsets[u + 1]; k < end; k++) {
+                int v = targets[k];
+                if (pos[v] == DONE) continue;
+                double nd = du + weights[k];
+                if (nd < dist[v]) {
+                    dist[v] = nd;
+                    // From v, the best next hop towards the source is u.
+                    next[v] = u;
+                    if (pos[v] == ABSENT) push(v);
+                    else siftUp(pos[v]);
+                }
+            }
+        }
+        key = null;
+    }
+
+    /**
+     * A* from {@code source} to {@code target}. The straight-line heuristic is admissible and consistent as long as
+     * no edge weight is shorter than the euclidean distance between its ends (true for route graphs). Returns the
+     * number of nodes on a shortest path, or 0 if the target is unreachable; read them with {@link #pathNode}
+     * (source first).
+     */
+    public int findPath(int n, int source, int target, int[] offsets, int[] targets, double[] weights,
+                        double[] xs, double[] ys, double[] zs) {
+        pathLength = 0;
+        pathCost = Double.POSITIVE_INFINITY;
+        if (search(n, source, target, offsets, targets, weights, xs, ys, zs)) reconstruct(source, target);
+        return pathLength;
+    }
+
+    /**
+     * Same search as {@link #findPath}, but only returns the total weight of a shortest path (+inf if the target is
+     * unreachable) without reconstructing it. The result of the last {@link #findPath} stays readable.
+     */
+    public double findCost(int n, int source, int target, int[] offsets, int[] targets, double[] weights,
+                           double[] xs, double[] ys, double[] zs) {
+        return search(n, source, target, offsets, targets, weights, xs, ys, zs)
+                ? gScore[target] : Double.POSITIVE_INFINITY;
+    }
+
+    /** The A* search itself; true if {@code target} was reached (its parent chain leads back to the source). */
+    private boolean search(int n, int source, int target, int[] offsets, int[] targets, double[] weights,
+                           double[] xs, double[] ys, double[] zs) {
+        ensureCapacity(n);
+        nextGeneration();
+        key = fScore;
+        size = 0;
+
+        final double tx = xs[target];
+        final double ty = ys[target];
+        final double tz = zs[target];
+
+        touch(source);
+        gScore[source] = 0.0;
+        fScore[source] = straight(xs, ys, zs, source, tx, ty, tz);
+        push(source);
+
+        boolean found = false;
+        while (size > 0) {
+            int u = pop();
+            pos[u] = DONE;
+            if (u == target) {
+                found = true;
+                break;
+            }
+            double gu = gScore[u];
+
+            for (int k = offsets[u], end = offsets[u + 1]; k < end; k++) {
+                int v = targets[k];
+                if (stamp[v] != generation) touch(v);
+                else if (pos[v] == DONE) continue;
+                double ng = gu + weights[k];
+                if (ng < gScore[v]) {
+                    gScore[v] = ng;
+                    parent[v] = u;
+                    fScore[v] = ng + straight(xs, ys, zs, v, tx, ty, tz);
+                    if (pos[v] == ABSENT) push(v);
+                    else siftUp(pos[v]);
+                }
+            }
+        }
+        key = null;
+        return found;
+    }
+
+    /** Node {@code i} (0 = source) of the path found by the last {@link #findPath}. */
+    public int pathNode(int i) {
+        return path[i];
+    }
+
+    /** Total weight of the path found by the last {@link #findPath} (+inf if none). */
+    public double pathCost() {
+        return pathCost;
+    }
+
+    private void touch(int v) {
+        stamp[v] = generation;
+        gScore[v] = Double.POSITIVE_INFINITY;
+        parent[v] = -1;
+        pos[v] = ABSENT;
+    }
+
+    private void nextGeneration() {
+        if (++generation == 0) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+
+    private void reconstruct(int source, int target) {
+        int count = 1;
+        for (int v = target; v != source; v = parent[v]) count++;
+        int i = count;
+        for (int v = target; ; v = parent[v]) {
+            path[--i] = v;
+            if (v == source) break;
+        }
+        pathLength = count;
+        pathCost = gScore[target];
+    }
+
+    private static double straight(double[] xs, double[] ys, double[] zs, int v, double tx, double ty, double tz) {
+        double dx = xs[v] - tx;
+        double dy = ys[v] - ty;
+        double dz = zs[v] - tz;
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    private void ensureCapacity(int n) {
+        if (heap.length < n) {
+            int cap = Math.max(16, Integer.highestOneBit(Math.max(1, n - 1)) << 1);
+            heap = new int[cap];
+            pos = new int[cap];
+            stamp = new int[cap];
+            gScore = new double[cap];
+            fScore = new double[cap];
+            parent = new int[cap];
+            path = new int[cap];
+            generation = 0;
+        }
+    }
+
+    private void push(int v) {
+        heap[size] = v;
+        pos[v] = size;
+        siftUp(size++);
+    }
+
+    private int pop() {
+        int top = heap[0];
+        int last = heap[--size];
+        if (size > 0) {
+            heap[0] = last;
+            pos[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private boolean less(int a, int b) {
+        double ka = key[a];
+        double kb = key[b];
+        return ka < kb || (ka == kb && a < b);
+    }
+
+    private void siftUp(int i) {
+        int v = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) / ARITY;
+            int p = heap[parent];
+            if (!less(v, p)) break;
+            heap[i] = p;
+            pos[p] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        pos[v] = i;
+    }
+
+    private void siftDown(int i) {
+        int v = heap[i];
+        while (true) {
+            int first = i * ARITY + 1;
+            if (first >= size) break;
+            int end = Math.min(first + ARITY, size);
+            int best = first;
+            for (int c = first + 1; c < end; c++) {
+                if (less(heap[c], heap[best])) best = c;
+            }
+            int b = heap[best];
+            if (!less(b, v)) break;
+            heap[i] = b;
+            pos[b] = i;
+            i = best;
+        }
+        heap[i] = v;
+        pos[v] = i;
+    }
+}
@@ -0,0 +1,86 @@
+package com.deathbreadcrumbs;
+
+import com.deathbreadcrumbs.nav.EvictionPolicy;
+import com.deathbreadcrumbs.nav.PointDatabase;
+import com.deathbreadcrumbs.nav.PointId;
+import net.minecraft.world.phys.Vec3;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording a whole synthetic trail: the checkpoint trail with its incremental graph (with and without
+ * simplification), the capture snapshot, and the point database. One invocation records all {@code size} points,
+ * so scores are trails per second; divide by {@code size} for the per-checkpoint cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordingBenchmark {
+
+    @Param({"RANDOM_WALK", "SPIRAL", "DENSE_CAVE", "STRAIGHT_CROSSING"})
+    public TrailShapes shape;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int size;
+
+    private List<Vec3> points;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        points = shape.points(size, 42L);
+    }
+
+    @Benchmark
+    public int recordTrail() {
+        return record(TrailSimplifier.Mode.OFF).size();
+    }
+
+    @Benchmark
+    public int recordTrailSimplified() {
+        return record(TrailSimplifier.Mode.RDP).size();
+    }
+
+    /** Recording plus the death-time snapshot and route solve. */
+    @Benchmark
+    public GraphRoute recordAndCapture() {
+        CheckpointTrail trail = record(TrailSimplifier.Mode.RDP);
+        return trail.snapshotSegment().toRoute();
+    }
+
+    @Benchmark
+    public int pointDatabase() {
+        PointDatabase db = new PointDatabase(32, 2.0, 2048, Math.max(size, 16), EvictionPolicy.LRU);
+        int dim = db.internDim("minecraft:overworld");
+        PointId prev = null;
+        long tick = 0;
+        for (Vec3 p : points) prev = db.addOrMerge(dim, p, prev, 1L, tick++);
+        return db.size();
+    }
+
+    private CheckpointTrail record(TrailSimplifier.Mode mode) {
+        CheckpointTrail trail = new CheckpointTrail("minecraft:overworld", size, new TrailLog());
+        TrailSimplifier simplifier = new TrailSimplifier();
+        simplifier.setMode(mode);
+        for (Vec3 p : points) {
+            if (!trail.isEmpty() && simplifier.offer(trail, p)) trail.replaceLast(p);
+            else trail.append(p);
+        }
+        return trail;
+    }
+}
@@ -0,0 +1,155 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.world.phys.Vec3;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Headless replay of a session through the client tick pipeline, as fast as it runs.
+ *
+ * <pre>
+ *   ./gradlew replay --args="path/to/trace.csv"
+ *   ./gradlew replay --args="--synthetic RANDOM_WALK 2000 5"   (shape, checkpoints per life, lives)
+ * </pre>
+ *
+ * <p>Every {@link DeathBreadcrumbsClient.TickStage} is timed separately; the report lists p50 / p99 / max per stage,
+ * the allocation rate of the client thread and the retained heap growth over the whole replay. Route builds and
+ * planning still run on the builder thread, as in game, so their cost shows up only as heap and not per stage.</p>
+ */
+public final class ReplayDriver {
+
+    /** Walking pace of synthetic traces (about vanilla walking speed). */
+    private static final double WALK_PER_TICK = 0.25; // blocks
+    private static final int DEAD_TICKS = 20;
+
+    private ReplayDriver() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<ReplayTrace.Sample> trace;
+        if (args.length >= 1 && !args[0].equals("--synthetic")) {
+            trace = ReplayTrace.read(Path.of(args[0]));
+        } else {
+            TrailShapes shape = TrailShapes.valueOf(args.length >= 2 ? args[1] : "RANDOM_WALK");
+            int perLife = (args.length >= 3) ? Integer.parseInt(args[2]) : 2000;
+            int lives = (args.length >= 4) ? Integer.parseInt(args[3]) : 5;
+            trace = synthetic(shape, perLife, lives);
+        }
+        if (trace.isEmpty()) {
+            System.out.println("Empty trace.");
+            return;
+        }
+
+        DeathBreadcrumbsClient.TickStage[] stages = DeathBreadcrumbsClient.TickStage.values();
+        long[][] nanos = new long[stages.length][trace.size()];
+        ReplayPort port = new ReplayPort();
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long heapBefore = retainedHeap(memory);
+        long allocBefore = threads.getThreadAllocatedBytes(thread);
+        long wallStart = System.nanoTime();
+
+        for (int i = 0; i < trace.size(); i++) {
+            port.advance(trace.get(i));
+            for (int s = 0; s < stages.length; s++) {
+                long t0 = System.nanoTime();
+                DeathBreadcrumbsClient.runStage(stages[s], port);
+                nanos[s][i] = System.nanoTime() - t0;
+            }
+        }
+
+        long wall = System.nanoTime() - wallStart;
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocBefore;
+        long heapAfter = retainedHeap(memory);
+
+        int ticks = trace.size();
+        System.out.printf(Locale.ROOT, "Replayed %d ticks (%.1f min of play) in %.2f s, %d deaths%n",
+                ticks, ticks / 1200.0, wall / 1e9, port.deaths);
+        System.out.printf(Locale.ROOT, "%-8s %10s %10s %10s %12s%n", "stage", "p50 us", "p99 us", "max us", "total ms");
+        long[] total = new long[ticks];
+        for (int s = 0; s < stages.length; s++) {
+            for (int i = 0; i < ticks; i++) total[i] += nanos[s][i];
+            printStage(stages[s].name(), nanos[s]);
+        }
+        printStage("TICK", total);
+        System.out.printf(Locale.ROOT, "Allocated on the tick thread: %.1f MiB (%.0f B/tick)%n",
+                allocated / 1048576.0, (double) allocated / ticks);
+        System.out.printf(Locale.ROOT, "Retained heap growth: %.1f MiB%n", (heapAfter - heapBefore) / 1048576.0);
+        System.out.printf(Locale.ROOT, "Particles: %d crumbs, %d goal; %d messages%n",
+                port.crumbs, port.goalParticles, port.messages);
+        System.exit(0); // the builder and writer threads are daemons, but don't wait for queued work
+    }
+
+    private static void printStage(String name, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        long sum = 0;
+        for (long v : sorted) sum += v;
+        System.out.printf(Locale.ROOT, "%-8s %10.1f %10.1f %10.1f %12.1f%n", name,
+                percentile(sorted, 0.50) / 1e3, percentile(sorted, 0.99) / 1e3,
+                sorted[sorted.length - 1] / 1e3, sum / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double q) {
+        int i = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+    }
+
+    private static long retainedHeap(MemoryMXBean memory) throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Lives along {@code shape}: walk the trail, die at its end, respawn at the start, walk back to the death
+     * point (which completes that route), then start the next life from there.
+     */
+    static List<ReplayTrace.Sample> synthetic(TrailShapes shape, int perLife, int lives) {
+        ArrayList<ReplayTrace.Sample> out = new ArrayList<>();
+        final String dim = "minecraft:overworld";
+        long[] tick = {0};
+        Vec3 origin = new Vec3(0.0, 64.0, 0.0);
+        for (int life = 0; life < lives; life++) {
+            List<Vec3> shapePoints = shape.points(perLife, 1000L + life);
+            Vec3 first = shapePoints.get(0);
+            ArrayList<Vec3> path = new ArrayList<>(perLife);
+            for (Vec3 p : shapePoints) {
+                path.add(new Vec3(p.x - first.x + origin.x, p.y - first.y + origin.y, p.z - first.z + origin.z));
+            }
+
+            walk(out, tick, dim, path);
+            Vec3 death = path.get(path.size() - 1);
+            for (int i = 0; i < DEAD_TICKS; i++) {
+                out.add(new ReplayTrace.Sample(tick[0]++, dim, death.x, death.y, death.z, false));
+            }
+            // Respawn at the start of the life, then follow the same way to the death point.
+            walk(out, tick, dim, path);
+            origin = death;
+        }
+        return out;
+    }
+
+    private static void walk(List<ReplayTrace.Sample> out, long[] tick, String dim, List<Vec3> path) {
+        for (int i = 1; i < path.size(); i++) {
+            Vec3 a = path.get(i - 1);
+            Vec3 b = path.get(i);
+            int steps = Math.max(1, (int) Math.ceil(a.distanceTo(b) / WALK_PER_TICK));
+            for (int k = 0; k < steps; k++) {
+                double t = (double) k / steps;
+                out.add(new ReplayTrace.Sample(tick[0]++, dim,
+                        a.x + (b.x - a.x) * t, a.y + (b.y - a.y) * t, a.z + (b.z - a.z) * t, true));
+            }
+        }
+    }
+}
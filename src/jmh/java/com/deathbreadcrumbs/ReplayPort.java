@@ -0,0 +1,119 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.GlobalPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.Vec3;
+
+import java.nio.file.Path;
+
+/**
+ * {@link TickPort} over a {@link ReplayTrace}: the player is wherever the current sample says, deaths happen where
+ * {@code alive} drops, and particles / messages are only counted. Nothing is saved.
+ */
+final class ReplayPort implements TickPort {
+
+    private ReplayTrace.Sample sample;
+    private ResourceKey<Level> dimension = Level.OVERWORLD;
+    private Vec3 position = Vec3.ZERO;
+    private boolean wasAlive = true;
+    private GlobalPos lastDeath = null;
+
+    long crumbs;
+    long goalParticles;
+    long messages;
+    long deaths;
+
+    /** Moves the replay to the next tick. */
+    void advance(ReplayTrace.Sample next) {
+        sample = next;
+        dimension = dimensionOf(next.dimId);
+        position = new Vec3(next.x, next.y, next.z);
+        if (wasAlive && !next.alive) {
+            deaths++;
+            lastDeath = GlobalPos.of(dimension, new BlockPos(
+                    (int) Math.floor(next.x), (int) Math.floor(next.y), (int) Math.floor(next.z)));
+        }
+        wasAlive = next.alive;
+    }
+
+    /** Vanilla dimensions only (a replay needs no registry); anything else replays as the overworld. */
+    static ResourceKey<Level> dimensionOf(String dimId) {
+        if ("minecraft:the_nether".equals(dimId)) return Level.NETHER;
+        if ("minecraft:the_end".equals(dimId)) return Level.END;
+        return Level.OVERWORLD;
+    }
+
+    @Override
+    public Vec3 position() {
+        return position;
+    }
+
+    @Override
+    public boolean isAlive() {
+        return sample == null || sample.alive;
+    }
+
+    @Override
+    public Vec3 eyePosition() {
+        return position;
+    }
+
+    /** Traces carry no view: nothing is culled and there is no frame rate to back off from. */
+    @Override
+    public Vec3 viewDirection() {
+        return null;
+    }
+
+    @Override
+    public int fps() {
+        return 0;
+    }
+
+    /** Traces carry positions only; the sampler still adapts to the replayed speed. */
+    @Override
+    public boolean isRiding() {
+        return false;
+    }
+
+    @Override
+    public boolean isGliding() {
+        return false;
+    }
+
+    @Override
+    public long gameTime() {
+        return (sample == null) ? 0 : sample.tick;
+    }
+
+    @Override
+    public ResourceKey<Level> dimension() {
+        return dimension;
+    }
+
+    @Override
+    public GlobalPos lastDeathLocation() {
+        return lastDeath;
+    }
+
+    @Override
+    public Path saveBase() {
+        return null;
+    }
+
+    @Override
+    public void spawnCrumb(double x, double y, double z) {
+        crumbs++;
+    }
+
+    @Override
+    public void spawnGoalParticle(double x, double y, double z) {
+        goalParticles++;
+    }
+
+    @Override
+    public void message(String text) {
+        messages++;
+    }
+}
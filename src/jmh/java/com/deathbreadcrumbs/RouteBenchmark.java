@@ -0,0 +1,100 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.world.phys.Vec3;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route graph construction and per-tick queries over synthetic trails.
+ *
+ * <p>{@code build} is what happens once per death; {@code pathFrom*} is what the client does every tick while a
+ * route is shown (the cursor variant walks along the trail like a player, the global variant jumps around).
+ * {@code legCostAStar} / {@code legCostTree} answer the same question (the tree distance of a probe node to the first
+ * trail point) with one A* query and with a full shortest-path tree; the route planner's cost matrix uses the former.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteBenchmark {
+
+    private static final int CRUMBS = 18;
+
+    @Param({"RANDOM_WALK", "SPIRAL", "DENSE_CAVE", "STRAIGHT_CROSSING"})
+    public TrailShapes shape;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int size;
+
+    private List<Vec3> points;
+    private GraphRoute route;
+    private Vec3[] probes;
+    private int[] probeNodes;
+    private int probe;
+    private RouteCursor cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        points = shape.points(size, 42L);
+        route = GraphRoute.build(points);
+
+        // Player positions: walk the trail backwards (as when returning to the death) with some sideways offset.
+        SplittableRandom rnd = new SplittableRandom(7L);
+        probes = new Vec3[Math.min(size, 4096)];
+        for (int i = 0; i < probes.length; i++) {
+            Vec3 p = points.get(points.size() - 1 - (int) ((long) i * points.size() / probes.length));
+            probes[i] = new Vec3(p.x + rnd.nextDouble(-2.0, 2.0), p.y, p.z + rnd.nextDouble(-2.0, 2.0));
+        }
+        cursor = new RouteCursor();
+
+        probeNodes = new int[probes.length];
+        for (int i = 0; i < probes.length; i++) {
+            probeNodes[i] = route.nearestIndex(probes[i].x, probes[i].y, probes[i].z);
+        }
+    }
+
+    @Benchmark
+    public GraphRoute build() {
+        return GraphRoute.build(points);
+    }
+
+    @Benchmark
+    public BreadcrumbPath pathFromGlobal() {
+        probe = (probe + 1) % probes.length;
+        return route.pathFrom(probes[probe], CRUMBS);
+    }
+
+    @Benchmark
+    public BreadcrumbPath pathFromCursor() {
+        probe = (probe + 1) % probes.length;
+        return cursor.pathFrom(route, probes[probe], CRUMBS);
+    }
+
+    @Benchmark
+    public double legCostAStar() {
+        probe = (probe + 1) % probes.length;
+        return route.pathLength(0, probeNodes[probe]);
+    }
+
+    @Benchmark
+    public double legCostTree() {
+        probe = (probe + 1) % probes.length;
+        return route.towards(0).distToGoal(probeNodes[probe]);
+    }
+}
@@ -0,0 +1,92 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.world.phys.Vec3;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic checkpoint trails for the benchmarks. All shapes use roughly the recorder's spacing (one point every
+ * ~4 blocks) and are deterministic for a given seed.
+ */
+enum TrailShapes {
+
+    /** Wandering surface walk: slowly drifting heading, gentle hills. */
+    RANDOM_WALK {
+        @Override
+        void generate(SplittableRandom rnd, int n, List<Vec3> out) {
+            double x = 0.0, y = 64.0, z = 0.0, heading = 0.0;
+            for (int i = 0; i < n; i++) {
+                heading += rnd.nextDouble(-0.35, 0.35);
+                x += Math.cos(heading) * STEP;
+                z += Math.sin(heading) * STEP;
+                y = clampY(y + rnd.nextDouble(-0.6, 0.6));
+                out.add(new Vec3(x, y, z));
+            }
+        }
+    },
+
+    /** Outward spiral: every ring passes close to the previous one (many proximity edges, few crossings). */
+    SPIRAL {
+        @Override
+        void generate(SplittableRandom rnd, int n, List<Vec3> out) {
+            double angle = 0.0;
+            for (int i = 0; i < n; i++) {
+                double radius = 6.0 + angle * 1.1; // ~7 blocks between rings
+                angle += STEP / radius;
+                out.add(new Vec3(Math.cos(angle) * radius, 64.0 + rnd.nextDouble(-0.2, 0.2), Math.sin(angle) * radius));
+            }
+        }
+    },
+
+    /** Cave system: short tunnels with sharp turns and steep Y changes, folded into a small volume. */
+    DENSE_CAVE {
+        @Override
+        void generate(SplittableRandom rnd, int n, List<Vec3> out) {
+            double x = 0.0, y = 32.0, z = 0.0, heading = 0.0;
+            for (int i = 0; i < n; i++) {
+                if (i % 6 == 0) heading += rnd.nextDouble(-2.0, 2.0);
+                x += Math.cos(heading) * STEP * 0.75;
+                z += Math.sin(heading) * STEP * 0.75;
+                y = clampY(y + rnd.nextDouble(-1.5, 1.5));
+                // Stay within a 96-block cube: the trail keeps running into itself.
+                if (Math.abs(x) > 48.0 || Math.abs(z) > 48.0) heading += Math.PI;
+                out.add(new Vec3(x, y, z));
+            }
+        }
+    },
+
+    /** Long straight runs (bridges, tunnels) that keep crossing each other. */
+    STRAIGHT_CROSSING {
+        @Override
+        void generate(SplittableRandom rnd, int n, List<Vec3> out) {
+            double x = 0.0, z = 0.0;
+            int leg = 0;
+            for (int i = 0; i < n; ) {
+                // Turning 135 degrees after every leg draws a star: each leg crosses the earlier ones.
+                double heading = (leg++) * 0.75 * Math.PI + rnd.nextDouble(-0.1, 0.1);
+                int len = 50 + rnd.nextInt(50);
+                for (int k = 0; k < len && i < n; k++, i++) {
+                    x += Math.cos(heading) * STEP;
+                    z += Math.sin(heading) * STEP;
+                    out.add(new Vec3(x, 64.0, z));
+                }
+            }
+        }
+    };
+
+    static final double STEP = 4.0;
+
+    abstract void generate(SplittableRandom rnd, int n, List<Vec3> out);
+
+    List<Vec3> points(int n, long seed) {
+        ArrayList<Vec3> out = new ArrayList<>(n);
+        generate(new SplittableRandom(seed), n, out);
+        return out;
+    }
+
+    private static double clampY(double y) {
+        return Math.max(-60.0, Math.min(300.0, y));
+    }
+}
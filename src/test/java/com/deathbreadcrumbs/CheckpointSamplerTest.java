@@ -0,0 +1,140 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.world.phys.Vec3;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckpointSamplerTest {
+
+    private static final double BASE_SPACING = 4.0;
+    private static final int MAX_INTERVAL = 40;
+
+    @Test
+    void walkingUsesTheBaseSpacing() {
+        Walk walk = new Walk(new Vec3(0.0, 64.0, 0.0));
+        for (int t = 1; t <= 400; t++) walk.step(new Vec3(t * 0.2, 64.0, 0.0), false, false);
+
+        assertEquals(BASE_SPACING, walk.sampler.spacing(), 1e-9);
+        assertTrue(walk.points.size() > 10);
+        for (int i = 1; i < walk.points.size(); i++) {
+            assertEquals(CheckpointSampler.Reason.DISTANCE, walk.reasons.get(i));
+            assertEquals(BASE_SPACING, walk.gap(i), 0.2 + 1e-9);
+        }
+    }
+
+    @Test
+    void ridingAndGlidingStretchTheSpacing() {
+        Walk riding = new Walk(new Vec3(0.0, 64.0, 0.0));
+        for (int t = 1; t <= 400; t++) riding.step(new Vec3(t * 0.2, 64.0, 0.0), true, false);
+        assertEquals(BASE_SPACING * 1.5, riding.sampler.spacing(), 1e-9);
+        for (int i = 2; i < riding.points.size(); i++) assertTrue(riding.gap(i) >= BASE_SPACING * 1.5);
+
+        // Elytra pace: well past the cap, so edges stay short enough for crossing trails to connect.
+        Walk gliding = new Walk(new Vec3(0.0, 120.0, 0.0));
+        for (int t = 1; t <= 400; t++) gliding.step(new Vec3(t * 1.5, 120.0 - t * 0.05, 0.0), false, true);
+        assertEquals(CheckpointSampler.MAX_SPACING, gliding.sampler.spacing(), 1e-9);
+        for (int i = 1; i < gliding.points.size(); i++) {
+            assertTrue(gliding.gap(i) <= CheckpointSampler.MAX_SPACING + 1.5 + 1e-9, "gap " + gliding.gap(i));
+        }
+        int last = gliding.points.size() - 1;
+        assertTrue(gliding.gap(last) >= CheckpointSampler.MAX_SPACING, "gap " + gliding.gap(last));
+    }
+
+    @Test
+    void sprintingStretchesTheSpacingButTeleportsDoNot() {
+        Walk walk = new Walk(new Vec3(0.0, 64.0, 0.0));
+        for (int t = 1; t <= 200; t++) walk.step(new Vec3(t * 0.56, 64.0, 0.0), false, false);
+        assertEquals(BASE_SPACING * 2.0, walk.sampler.spacing(), 0.05);
+
+        Walk jumps = new Walk(new Vec3(0.0, 64.0, 0.0));
+        for (int t = 1; t <= 20; t++) jumps.step(new Vec3(t * 100.0, 64.0, 0.0), false, false);
+        assertEquals(BASE_SPACING, jumps.sampler.spacing(), 1e-9);
+    }
+
+    @Test
+    void turnsTakeAPointEarly() {
+        Walk walk = new Walk(new Vec3(0.0, 64.0, 0.0));
+        int t = 1;
+        for (; t <= 100; t++) walk.step(new Vec3(t * 0.2, 64.0, 0.0), false, false);
+        int before = walk.points.size();
+        for (int k = 1; k <= 100; k++, t++) walk.step(new Vec3(20.0, 64.0, k * 0.2), false, false);
+
+        int turn = walk.reasons.indexOf(CheckpointSampler.Reason.TURN);
+        assertTrue(turn >= before, "no turn point after the corner");
+        assertTrue(walk.gap(turn) >= CheckpointSampler.MIN_SPACING);
+        assertTrue(walk.gap(turn) < BASE_SPACING, "gap " + walk.gap(turn));
+        // Heading north after that: no more turn points.
+        assertEquals(turn, walk.reasons.lastIndexOf(CheckpointSampler.Reason.TURN));
+    }
+
+    @Test
+    void climbsTakeAPointWithoutHorizontalMovement() {
+        Walk walk = new Walk(new Vec3(0.0, 10.0, 0.0));
+        for (int t = 1; t <= 300; t++) walk.step(new Vec3(0.0, 10.0 + t * 0.1, 0.0), false, false);
+        assertTrue(walk.points.size() >= 9);
+        for (int i = 1; i < walk.points.size(); i++) {
+            assertEquals(CheckpointSampler.Reason.CLIMB, walk.reasons.get(i));
+            assertEquals(CheckpointSampler.VERTICAL_STEP, walk.points.get(i).y - walk.points.get(i - 1).y, 0.1 + 1e-9);
+        }
+    }
+
+    @Test
+    void standingStillRecordsNothing() {
+        SplittableRandom rnd = new SplittableRandom(61L);
+        Walk walk = new Walk(new Vec3(0.0, 64.0, 0.0));
+        // Mining in place: the position wobbles, but never by a block.
+        for (int t = 1; t <= 2000; t++) {
+            walk.step(new Vec3(rnd.nextDouble(-0.4, 0.4), 64.0, rnd.nextDouble(-0.4, 0.4)), false, false);
+        }
+        assertEquals(1, walk.points.size());
+        assertTrue(walk.sampler.describe().contains("idleTicks=" + (2000 - MAX_INTERVAL + 1)), walk.sampler.describe());
+
+        // Creeping slower than the spacing per period: the periodic sample still fires.
+        Walk creep = new Walk(new Vec3(0.0, 64.0, 0.0));
+        for (int t = 1; t <= 400; t++) creep.step(new Vec3(t * 0.05, 64.0, 0.0), false, false);
+        assertTrue(creep.points.size() > 1);
+        for (int i = 1; i < creep.points.size(); i++) {
+            assertEquals(CheckpointSampler.Reason.TIME, creep.reasons.get(i));
+            assertEquals(MAX_INTERVAL, creep.ticks.get(i) - creep.ticks.get(i - 1));
+        }
+    }
+
+    /** Drives a sampler the way the client does: every non-NONE tick becomes the trail's last checkpoint. */
+    private static final class Walk {
+        final CheckpointSampler sampler = new CheckpointSampler(BASE_SPACING, MAX_INTERVAL);
+        final ArrayList<Vec3> points = new ArrayList<>();
+        final ArrayList<Long> ticks = new ArrayList<>();
+        final ArrayList<CheckpointSampler.Reason> reasons = new ArrayList<>();
+        private long tick = 0;
+
+        Walk(Vec3 start) {
+            commit(start, CheckpointSampler.Reason.NONE);
+        }
+
+        void step(Vec3 pos, boolean riding, boolean gliding) {
+            tick++;
+            Vec3 last = points.get(points.size() - 1);
+            CheckpointSampler.Reason reason = sampler.sample(last, ticks.get(ticks.size() - 1), pos, tick, riding, gliding);
+            if (reason != CheckpointSampler.Reason.NONE) commit(pos, reason);
+        }
+
+        /** Horizontal distance from checkpoint {@code i - 1} to checkpoint {@code i}. */
+        double gap(int i) {
+            Vec3 a = points.get(i - 1);
+            Vec3 b = points.get(i);
+            return Math.sqrt((b.x - a.x) * (b.x - a.x) + (b.z - a.z) * (b.z - a.z));
+        }
+
+        private void commit(Vec3 pos, CheckpointSampler.Reason reason) {
+            points.add(pos);
+            ticks.add(tick);
+            reasons.add(reason);
+            sampler.committed(pos);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.world.phys.Vec3;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GraphRouteTest {
+
+    private static final double EPS = 1e-6;
+
+    @Test
+    void graphIsWellFormed() {
+        // Doubling back over itself, so proximity edges join far-apart parts of the chain.
+        List<Vec3> pts = Trails.randomWalk(3000, 3L, 0.0, 0.0);
+        GraphRoute route = GraphRoute.build(pts);
+        assertNotNull(route);
+        int n = route.nodeCount();
+        assertEquals(pts.size(), n);
+
+        for (int i = 0; i < n; i++) {
+            HashSet<Integer> seen = new HashSet<>();
+            int extra = 0;
+            for (int e = route.edgeStart(i); e < route.edgeEnd(i); e++) {
+                int j = route.edgeTarget(e);
+                assertTrue(j >= 0 && j < n && j != i, "bad target " + j + " of " + i);
+                assertTrue(seen.add(j), "duplicate edge " + i + "->" + j);
+                if (Math.abs(j - i) != 1) {
+                    extra++;
+                    assertTrue(route.dist2To(j, pts.get(i).x, pts.get(i).y, pts.get(i).z)
+                            <= GraphRoute.CONNECT_DIST * GraphRoute.CONNECT_DIST + EPS);
+                }
+            }
+            // Sequential edges are always there.
+            if (i > 0) assertTrue(seen.contains(i - 1), "no edge " + i + "->" + (i - 1));
+            if (i < n - 1) assertTrue(seen.contains(i + 1), "no edge " + i + "->" + (i + 1));
+            assertTrue(extra <= GraphRoute.MAX_EXTRA_NEIGHBORS);
+        }
+        // A single chain reaches the death from everywhere.
+        for (int i = 0; i < n; i++) assertTrue(route.isReachable(i));
+        assertEquals(0.0, route.distToGoal(n - 1), 0.0);
+    }
+
+    @Test
+    void followingNextHopsAddsUpToDistToGoal() {
+        GraphRoute route = GraphRoute.build(Trails.randomWalk(2000, 4L, 0.0, 0.0));
+        int n = route.nodeCount();
+        for (int start = 0; start < n; start += 37) {
+            BreadcrumbPath path = route.pathFromNode(start, n);
+            assertEquals(start, path.startNodeIndex);
+            List<Vec3> crumbs = path.points;
+            assertEquals(route.node(n - 1), crumbs.get(crumbs.size() - 1));
+            assertEquals(route.distToGoal(start), length(crumbs), EPS, "path from " + start);
+        }
+    }
+
+    @Test
+    void pathCoordsMatchesPathFromNode() {
+        GraphRoute route = GraphRoute.build(Trails.randomWalk(800, 7L, 0.0, 0.0));
+        double[] coords = new double[64 * 3];
+        for (int start = 0; start < route.nodeCount(); start += 13) {
+            List<Vec3> crumbs = route.pathFromNode(start, 64).points;
+            int count = route.pathCoords(start, 64, Double.POSITIVE_INFINITY, coords);
+            assertEquals(crumbs.size(), count);
+            for (int i = 0; i < count; i++) {
+                assertEquals(crumbs.get(i).x, coords[i * 3], 0.0);
+                assertEquals(crumbs.get(i).y, coords[i * 3 + 1], 0.0);
+                assertEquals(crumbs.get(i).z, coords[i * 3 + 2], 0.0);
+            }
+
+            // A length limit only cuts the same path short, never past the limit.
+            int cut = route.pathCoords(start, 64, 20.0, coords);
+            assertTrue(cut >= 1 && cut <= count);
+            double length = 0.0;
+            for (int i = 1; i < cut; i++) length += crumbs.get(i - 1).distanceTo(crumbs.get(i));
+            assertTrue(length <= 20.0 + EPS, "length " + length);
+        }
+        assertEquals(0, route.pathCoords(-1, 64, 100.0, coords));
+    }
+
+    @Test
+    void pathLengthMatchesTreeTowardsTheGoal() {
+        GraphRoute route = GraphRoute.build(Trails.randomWalk(1500, 5L, 0.0, 0.0));
+        SplittableRandom rnd = new SplittableRandom(6L);
+        int n = route.nodeCount();
+        for (int q = 0; q < 20; q++) {
+            int goal = rnd.nextInt(n);
+            GraphRoute tree = route.towards(goal);
+            for (int k = 0; k < 20; k++) {
+                int i = rnd.nextInt(n);
+                // The tree holds distances from the goal along its edges, so A* is searched from the goal as well.
+                assertEquals(tree.distToGoal(i), route.pathLength(goal, i), EPS, "goal " + goal + ", node " + i);
+            }
+        }
+        assertEquals(Double.POSITIVE_INFINITY, route.pathLength(-1, 0), 0.0);
+    }
+
+    @Test
+    void pathBetweenIsAShortestPath() {
+        GraphRoute route = GraphRoute.build(Trails.randomWalk(1500, 9L, 0.0, 0.0));
+        SplittableRandom rnd = new SplittableRandom(10L);
+        int n = route.nodeCount();
+        for (int q = 0; q < 200; q++) {
+            int start = rnd.nextInt(n);
+            int goal = rnd.nextInt(n);
+            BreadcrumbPath path = route.pathBetween(start, goal);
+            assertNotNull(path);
+            assertEquals(start, path.startNodeIndex);
+            assertEquals(route.node(start), path.points.get(0));
+            assertEquals(route.node(goal), path.points.get(path.points.size() - 1));
+            // Edge weights are euclidean, so the polyline is exactly as long as the path.
+            assertEquals(route.pathLength(start, goal), length(path.points), EPS, start + " -> " + goal);
+        }
+        assertNull(route.pathBetween(0, n));
+    }
+
+    @Test
+    void graphRoundTripsThroughWriteAndRead() throws IOException {
+        List<Vec3> pts = Trails.randomWalk(1000, 8L, 50.0, -50.0);
+        GraphRoute route = GraphRoute.build(pts);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        route.writeTo(new DataOutputStream(bytes));
+
+        GraphRoute loaded = GraphRoute.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), pts);
+        assertGraphEquals(route, loaded);
+    }
+
+    @Test
+    void tooFewPointsBuildNothing() {
+        assertNull(GraphRoute.build(null));
+        assertNull(GraphRoute.build(List.of(new Vec3(0.0, 64.0, 0.0))));
+    }
+
+    /** Same nodes, edges, distances and next hops. */
+    static void assertGraphEquals(GraphRoute expected, GraphRoute actual) {
+        int n = expected.nodeCount();
+        assertEquals(n, actual.nodeCount());
+        for (int i = 0; i < n; i++) {
+            assertEquals(expected.node(i), actual.node(i));
+            assertEquals(expected.edgeStart(i), actual.edgeStart(i));
+            assertEquals(expected.edgeEnd(i), actual.edgeEnd(i));
+            for (int e = expected.edgeStart(i); e < expected.edgeEnd(i); e++) {
+                assertEquals(expected.edgeTarget(e), actual.edgeTarget(e));
+            }
+            assertEquals(expected.distToGoal(i), actual.distToGoal(i), 0.0);
+        }
+        for (int i = 0; i < n; i += 17) {
+            assertEquals(expected.pathFromNode(i, 32).points, actual.pathFromNode(i, 32).points);
+        }
+    }
+
+    private static double length(List<Vec3> points) {
+        double length = 0.0;
+        for (int i = 1; i < points.size(); i++) length += points.get(i - 1).distanceTo(points.get(i));
+        return length;
+    }
+}
@@ -0,0 +1,116 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.world.phys.Vec3;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParticleSchedulerTest {
+
+    private static final Vec3 EYE = new Vec3(0.5, 65.6, 0.5);
+    private static final Vec3 EAST = new Vec3(1.0, 0.0, 0.0);
+
+    @Test
+    void periodsFollowDistance() {
+        assertEquals(ParticleScheduler.NEAR_PERIOD, period(10.0));
+        assertEquals(ParticleScheduler.MID_PERIOD, period(30.0));
+        assertEquals(ParticleScheduler.FAR_PERIOD, period(60.0));
+    }
+
+    @Test
+    void budgetBacksOffWithTheFrameRate() {
+        ParticleScheduler s = new ParticleScheduler();
+        s.beginTick(0L, EYE, EAST, 0, false);
+        assertEquals(ParticleScheduler.BUDGET, emittedThisTick(s));
+
+        // Smoothed: a single slow frame barely moves the budget.
+        s.beginTick(1L, EYE, EAST, ParticleScheduler.TARGET_FPS, false);
+        s.beginTick(2L, EYE, EAST, ParticleScheduler.LOW_FPS, false);
+        int afterOne = emittedThisTick(s);
+        assertTrue(afterOne > ParticleScheduler.MIN_BUDGET && afterOne < ParticleScheduler.BUDGET, "budget " + afterOne);
+
+        for (long t = 3; t < 200; t++) s.beginTick(t, EYE, EAST, ParticleScheduler.LOW_FPS / 2, false);
+        assertEquals(ParticleScheduler.MIN_BUDGET, emittedThisTick(s));
+        s.beginTick(200L, EYE, EAST, ParticleScheduler.LOW_FPS / 2, true);
+        assertEquals(ParticleScheduler.MIN_BUDGET * ParticleScheduler.DEBUG_FACTOR, emittedThisTick(s));
+
+        for (long t = 201; t < 400; t++) s.beginTick(t, EYE, EAST, ParticleScheduler.TARGET_FPS * 2, false);
+        assertEquals(ParticleScheduler.BUDGET, emittedThisTick(s));
+        assertTrue(s.describe().contains("overBudget="), s.describe());
+    }
+
+    @Test
+    void goalMarkerUsesAtMostHalfTheBudget() {
+        ParticleScheduler s = new ParticleScheduler();
+        s.beginTick(0L, EYE, EAST, 0, false);
+        Vec3 goal = new Vec3(EYE.x + 10.0, EYE.y, EYE.z);
+        assertEquals(ParticleScheduler.BUDGET / 2, s.goalParticles(goal, 100));
+        assertEquals(0, s.goalParticles(goal, 100));
+        // Crumbs still get the rest.
+        assertEquals(ParticleScheduler.BUDGET - ParticleScheduler.BUDGET / 2, emittedThisTick(s));
+
+        // Fewer particles further away, but never none.
+        s.beginTick(1L, EYE, EAST, 0, false);
+        assertEquals(3, s.goalParticles(new Vec3(EYE.x + 30.0, EYE.y, EYE.z), 6));
+        s.beginTick(2L, EYE, EAST, 0, false);
+        assertEquals(1, s.goalParticles(new Vec3(EYE.x + 100.0, EYE.y, EYE.z), 2));
+    }
+
+    @Test
+    void positionsOutsideTheViewConeAreCulled() {
+        double inside = Math.toRadians(ParticleScheduler.VIEW_HALF_ANGLE_DEG - 5.0);
+        double outside = Math.toRadians(ParticleScheduler.VIEW_HALF_ANGLE_DEG + 5.0);
+        assertTrue(emitsWithin(EAST, Math.cos(inside) * 20.0, Math.sin(inside) * 20.0));
+        assertFalse(emitsWithin(EAST, Math.cos(outside) * 20.0, Math.sin(outside) * 20.0));
+        assertFalse(emitsWithin(EAST, -20.0, 0.0));
+        // Close by, or with no view direction, nothing is culled.
+        assertTrue(emitsWithin(EAST, -ParticleScheduler.CULL_MIN_DIST + 1.0, 0.0));
+        assertTrue(emitsWithin(null, -20.0, 0.0));
+
+        ParticleScheduler s = new ParticleScheduler();
+        s.beginTick(0L, EYE, EAST, 0, false);
+        assertEquals(0, s.goalParticles(new Vec3(EYE.x - 20.0, EYE.y, EYE.z), 10));
+        assertTrue(s.describe().contains("culled=10"), s.describe());
+    }
+
+    /** Ticks between consecutive emissions of one crumb {@code dist} blocks ahead (unlimited budget). */
+    private static int period(double dist) {
+        ParticleScheduler s = new ParticleScheduler();
+        double x = EYE.x + dist;
+        int first = -1;
+        int gap = -1;
+        for (int t = 0; t < 64; t++) {
+            s.beginTick(t, EYE, EAST, 0, true);
+            if (!s.crumb(x, EYE.y, EYE.z)) continue;
+            if (first >= 0) {
+                if (gap < 0) gap = t - first;
+                assertEquals(gap, t - first, "uneven spacing at " + dist + " blocks");
+            }
+            first = t;
+        }
+        return gap;
+    }
+
+    /** Offers many near crumbs ahead (more than any budget can take, whatever their phase); returns how many spawn. */
+    private static int emittedThisTick(ParticleScheduler s) {
+        int n = 0;
+        for (int i = 0; i < 40; i++) {
+            for (int k = 0; k < 20; k++) {
+                if (s.crumb(EYE.x + 5.0 + k * 0.5, EYE.y, EYE.z - 10.0 + i * 0.5)) n++;
+            }
+        }
+        return n;
+    }
+
+    /** True if a crumb at this horizontal offset from the eye spawns on any of a few consecutive ticks. */
+    private static boolean emitsWithin(Vec3 look, double dx, double dz) {
+        ParticleScheduler s = new ParticleScheduler();
+        for (int t = 0; t < ParticleScheduler.FAR_PERIOD; t++) {
+            s.beginTick(t, EYE, look, 0, false);
+            if (s.crumb(EYE.x + dx, EYE.y, EYE.z + dz)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,197 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.world.phys.Vec3;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoutePlannerTest {
+
+    private static final double EPS = 1e-9;
+
+    @Test
+    void exactOrderMatchesBruteForce() {
+        SplittableRandom rnd = new SplittableRandom(21L);
+        for (int k = 1; k <= 7; k++) {
+            for (int round = 0; round < 20; round++) {
+                double[][] cost = randomCost(k, rnd);
+                int[] tour = RoutePlanner.exactOrder(cost);
+                assertPermutation(k, tour);
+                assertEquals(bruteForce(cost), pathCost(cost, tour), EPS, "k=" + k + ", round " + round);
+            }
+        }
+    }
+
+    @Test
+    void twoOptNeverMakesTheTourWorse() {
+        SplittableRandom rnd = new SplittableRandom(22L);
+        for (int round = 0; round < 50; round++) {
+            int k = 3 + rnd.nextInt(20);
+            double[][] cost = randomCost(k, rnd);
+            int[] tour = shuffled(k, rnd);
+            double before = pathCost(cost, tour);
+            int[] improved = RoutePlanner.twoOpt(cost, tour.clone());
+            assertPermutation(k, improved);
+            assertTrue(pathCost(cost, improved) <= before + EPS);
+        }
+    }
+
+    @Test
+    void insertionKeepsTheSeedOrder() {
+        SplittableRandom rnd = new SplittableRandom(23L);
+        for (int round = 0; round < 50; round++) {
+            int k = 2 + rnd.nextInt(15);
+            double[][] cost = randomCost(k, rnd);
+            int[] seed = Arrays.copyOf(shuffled(k, rnd), rnd.nextInt(k + 1));
+            int[] tour = RoutePlanner.insertionOrder(cost, seed);
+            assertPermutation(k, tour);
+            // The seed is a subsequence of the tour.
+            int s = 0;
+            for (int t : tour) {
+                if (s < seed.length && t == seed[s]) s++;
+            }
+            assertEquals(seed.length, s, "seed " + Arrays.toString(seed) + " in " + Arrays.toString(tour));
+        }
+    }
+
+    @Test
+    void heuristicOrderIsAPermutation() {
+        SplittableRandom rnd = new SplittableRandom(24L);
+        for (int k = 1; k <= 30; k++) assertPermutation(k, RoutePlanner.heuristicOrder(randomCost(k, rnd)));
+    }
+
+    @Test
+    void planSolvesOnlyTheFirstLeg() {
+        List<RoutePlanner.Target> targets = targets(4, 31L);
+        RoutePlanner.Plan plan = RoutePlanner.plan(1L, targets, new Vec3(0.0, 64.0, 0.0), null, null);
+        assertNotNull(plan);
+        assertTrue(plan.exact);
+        assertEquals(4, plan.size());
+        assertTrue(Double.isFinite(plan.length) && plan.length > 0.0);
+
+        long[] ids = new long[plan.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = plan.idAt(i);
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(new long[] {100L, 101L, 102L, 103L}, sorted);
+
+        GraphRoute leg = plan.legFor(plan.idAt(0));
+        assertNotNull(leg);
+        for (int i = 1; i < plan.size(); i++) assertNull(plan.legFor(plan.idAt(i)));
+        // The leg ends at the first death.
+        RoutePlanner.Target first = targets.get((int) (plan.idAt(0) - 100L));
+        Vec3 death = first.points.get(first.points.size() - 1);
+        List<Vec3> crumbs = leg.pathFromNode(0, leg.nodeCount()).points;
+        assertEquals(death, crumbs.get(crumbs.size() - 1));
+    }
+
+    @Test
+    void replanningKeepsTheOrder() {
+        List<RoutePlanner.Target> targets = targets(12, 32L);
+        Vec3 start = new Vec3(0.0, 64.0, 0.0);
+        RoutePlanner.Plan first = RoutePlanner.plan(1L, targets, start, null, null);
+        assertNotNull(first);
+        assertFalse(first.exact);
+
+        RoutePlanner.Plan again = RoutePlanner.plan(2L, targets, start, null, first);
+        assertEquals(first.size(), again.size());
+        for (int i = 0; i < first.size(); i++) assertEquals(first.idAt(i), again.idAt(i));
+        assertTrue(again.length <= first.length + EPS);
+
+        // Reaching the first death drops it and re-plans the rest from the previous tour.
+        List<RoutePlanner.Target> rest = new ArrayList<>(targets);
+        rest.removeIf(t -> t.id == first.idAt(0));
+        RoutePlanner.Plan next = RoutePlanner.plan(3L, rest, start, null, first);
+        assertEquals(rest.size(), next.size());
+        assertNotNull(next.legFor(next.idAt(0)));
+    }
+
+    @Test
+    void fewerThanTwoTargetsPlanNothing() {
+        assertNull(RoutePlanner.plan(1L, targets(1, 33L), new Vec3(0.0, 64.0, 0.0), null, null));
+        assertNull(RoutePlanner.plan(1L, targets(3, 33L), null, null, null));
+    }
+
+    /** Routes that all leave from near the origin (ids from 100), like lives started at the same spawn. */
+    private static List<RoutePlanner.Target> targets(int k, long seed) {
+        ArrayList<RoutePlanner.Target> targets = new ArrayList<>(k);
+        for (int t = 0; t < k; t++) {
+            targets.add(new RoutePlanner.Target(100L + t, Trails.randomWalk(60 + 10 * t, seed + t, t * 0.5, 0.0)));
+        }
+        return targets;
+    }
+
+    /** Asymmetric costs from node 0 (the player) over nodes {@code 1..k}. */
+    private static double[][] randomCost(int k, SplittableRandom rnd) {
+        double[][] cost = new double[k + 1][k + 1];
+        for (int a = 0; a <= k; a++) {
+            for (int b = 1; b <= k; b++) {
+                if (a != b) cost[a][b] = rnd.nextDouble(1.0, 100.0);
+            }
+        }
+        return cost;
+    }
+
+    private static int[] shuffled(int k, SplittableRandom rnd) {
+        int[] tour = new int[k];
+        for (int i = 0; i < k; i++) tour[i] = i + 1;
+        for (int i = k - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            int t = tour[i];
+            tour[i] = tour[j];
+            tour[j] = t;
+        }
+        return tour;
+    }
+
+    private static double bruteForce(double[][] cost) {
+        int k = cost.length - 1;
+        int[] tour = new int[k];
+        for (int i = 0; i < k; i++) tour[i] = i + 1;
+        return bruteForce(cost, tour, 0);
+    }
+
+    private static double bruteForce(double[][] cost, int[] tour, int fixed) {
+        if (fixed == tour.length) return pathCost(cost, tour);
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = fixed; i < tour.length; i++) {
+            swap(tour, fixed, i);
+            best = Math.min(best, bruteForce(cost, tour, fixed + 1));
+            swap(tour, fixed, i);
+        }
+        return best;
+    }
+
+    private static double pathCost(double[][] cost, int[] tour) {
+        double total = 0.0;
+        int cur = 0;
+        for (int t : tour) {
+            total += cost[cur][t];
+            cur = t;
+        }
+        return total;
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    private static void assertPermutation(int k, int[] tour) {
+        assertEquals(k, tour.length);
+        int[] sorted = tour.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < k; i++) assertEquals(i + 1, sorted[i], "not a permutation: " + Arrays.toString(tour));
+    }
+}
@@ -0,0 +1,153 @@
+package com.deathbreadcrumbs;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SaveWriterTest {
+
+    @Test
+    void appendsAreConcatenatedInOrder() throws Exception {
+        Path dir = Files.createTempDirectory("savewriter");
+        try {
+            SaveWriter writer = new SaveWriter();
+            Path file = dir.resolve("trail.bin");
+            Runnable release = hold(writer, dir);
+            writer.submitAppend(file, bytes("a"));
+            writer.submitAppend(file, bytes("b"));
+            writer.submitAppend(file, bytes("c"));
+            release.run();
+            writer.awaitIdle(5000);
+
+            assertEquals("abc", read(file));
+            assertTrue(writer.describeStats().contains("coalesced=2"), writer.describeStats());
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    void replaceSupersedesEarlierWrites() throws Exception {
+        Path dir = Files.createTempDirectory("savewriter");
+        try {
+            SaveWriter writer = new SaveWriter();
+            Path file = dir.resolve("trail.bin");
+            Path other = dir.resolve("other.bin");
+            Runnable release = hold(writer, dir);
+            writer.submitAppend(file, bytes("old"));
+            writer.submitAppend(other, bytes("kept"));
+            writer.submitReplace(file, bytes("R"));
+            writer.submitAppend(file, bytes("y"));
+            release.run();
+            writer.awaitIdle(5000);
+
+            assertEquals("Ry", read(file));
+            assertEquals("kept", read(other));
+            // The dropped append and the one merged into the rewrite.
+            assertTrue(writer.describeStats().contains("coalesced=2"), writer.describeStats());
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    void taskRunsAfterTheWritesQueuedBeforeIt() throws Exception {
+        Path dir = Files.createTempDirectory("savewriter");
+        try {
+            SaveWriter writer = new SaveWriter();
+            Path file = dir.resolve("trail.bin");
+            AtomicReference<String> seen = new AtomicReference<>();
+            Runnable release = hold(writer, dir);
+            writer.submitReplace(file, bytes("first"));
+            writer.submitAfter(file, () -> seen.set(read(file)));
+            // Neither merged into nor superseding the write the task waits for.
+            writer.submitAppend(file, bytes("+"));
+            writer.submitReplace(file, bytes("second"));
+            release.run();
+            writer.awaitIdle(5000);
+
+            assertEquals("first", seen.get());
+            assertEquals("second", read(file));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    void failedWriteSkipsAppendsUntilARewrite() throws Exception {
+        Path dir = Files.createTempDirectory("savewriter");
+        try {
+            SaveWriter writer = new SaveWriter();
+            // The parent of the save is a plain file, so the first write fails.
+            Path blocker = dir.resolve("state");
+            Files.write(blocker, bytes("x"));
+            Path file = blocker.resolve("trail.bin");
+            AtomicReference<Boolean> ran = new AtomicReference<>(false);
+
+            writer.submitAppend(file, bytes("a"));
+            writer.awaitIdle(5000);
+            assertTrue(writer.consumeFailure());
+            assertFalse(writer.consumeFailure());
+
+            Files.delete(blocker);
+            writer.submitAppend(file, bytes("b"));
+            writer.submitAfter(file, () -> ran.set(true));
+            writer.awaitIdle(5000);
+            assertFalse(Files.exists(file), "append after a failed write");
+            assertFalse(ran.get(), "task after a failed write");
+
+            writer.submitReplace(file, bytes("R"));
+            writer.submitAppend(file, bytes("c"));
+            writer.awaitIdle(5000);
+            assertEquals("Rc", read(file));
+            assertFalse(writer.consumeFailure());
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /**
+     * Parks the writer thread on a task until the returned action runs, so the following submissions queue up
+     * (and coalesce) behind it.
+     */
+    private static Runnable hold(SaveWriter writer, Path dir) throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        writer.submitAfter(dir.resolve("gate"), () -> {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        return release::countDown;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) Files.deleteIfExists(p);
+        }
+    }
+}
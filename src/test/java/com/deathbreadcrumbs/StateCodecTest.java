@@ -0,0 +1,78 @@
+package com.deathbreadcrumbs;
+
+import com.deathbreadcrumbs.nav.PointDatabase;
+import com.deathbreadcrumbs.nav.PointId;
+import net.minecraft.world.phys.Vec3;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StateCodecTest {
+
+    private static final String OVERWORLD = "minecraft:overworld";
+
+    @Test
+    void indexRoundTrips() throws IOException {
+        StateCodec.Index index = new StateCodec.Index();
+        index.segmentId = 17L;
+        index.nextPointId = 123456789L;
+        index.nextRouteId = 42L;
+        index.queue.add(new StateCodec.QueuedRoute(40L, OVERWORLD, -120, 64, 3000));
+        index.queue.add(new StateCodec.QueuedRoute(41L, "minecraft:the_nether", 7, 31, -8));
+
+        StateCodec.Index read = StateCodec.decodeIndex(StateCodec.encodeIndex(index));
+        assertEquals(17L, read.segmentId);
+        assertEquals(123456789L, read.nextPointId);
+        assertEquals(42L, read.nextRouteId);
+        assertEquals(2, read.queue.size());
+        for (int i = 0; i < 2; i++) {
+            StateCodec.QueuedRoute a = index.queue.get(i);
+            StateCodec.QueuedRoute b = read.queue.get(i);
+            assertEquals(a.id, b.id);
+            assertEquals(a.dim, b.dim);
+            assertEquals(a.x, b.x);
+            assertEquals(a.y, b.y);
+            assertEquals(a.z, b.z);
+        }
+    }
+
+    @Test
+    void dimensionRoundTrips() throws IOException {
+        PointDatabase db = new PointDatabase(8, 1.0, 256);
+        List<Vec3> walk = Trails.randomWalk(400, 13L, 0.0, 0.0);
+        PointId prev = null;
+        for (int i = 0; i < walk.size(); i++) prev = db.addOrMerge(OVERWORLD, walk.get(i), prev, 1L, i);
+
+        List<Vec3> built = Trails.randomWalk(300, 14L, 10.0, 10.0);
+        List<Vec3> pending = Trails.randomWalk(50, 15L, -10.0, 10.0);
+        GraphRoute graph = GraphRoute.build(built);
+        byte[] bytes = StateCodec.encodeDimension(OVERWORLD, db, List.of(
+                new StateCodec.StoredRoute(5L, built, graph),
+                new StateCodec.StoredRoute(6L, pending, null)));
+
+        PointDatabase loaded = new PointDatabase(8, 1.0, 256);
+        List<StateCodec.StoredRoute> routes = StateCodec.decodeDimension(bytes, OVERWORLD, loaded);
+        assertEquals(db.size(), loaded.size());
+
+        assertEquals(2, routes.size());
+        assertEquals(5L, routes.get(0).id);
+        assertEquals(built, routes.get(0).points);
+        GraphRouteTest.assertGraphEquals(graph, routes.get(0).graph);
+        assertEquals(6L, routes.get(1).id);
+        assertEquals(pending, routes.get(1).points);
+        assertNull(routes.get(1).graph);
+    }
+
+    @Test
+    void rejectsAnotherDimensionsFile() throws IOException {
+        PointDatabase db = new PointDatabase(8, 1.0, 256);
+        byte[] bytes = StateCodec.encodeDimension(OVERWORLD, db, List.of());
+        assertThrows(IOException.class, () -> StateCodec.decodeDimension(bytes, "minecraft:the_end", db));
+        assertThrows(IOException.class, () -> StateCodec.decodeIndex(bytes));
+    }
+}
@@ -0,0 +1,128 @@
+package com.deathbreadcrumbs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The circular buffer and its XZ grid against a plain list of points under random appends, truncations and front
+ * drops.
+ */
+class TrailBufferTest {
+
+    @Test
+    void matchesAListUnderRandomMutations() {
+        SplittableRandom rnd = new SplittableRandom(41L);
+        TrailBuffer buf = new TrailBuffer(100);
+        ArrayList<double[]> model = new ArrayList<>();
+        int capacity = 128;
+
+        for (int step = 0; step < 20000; step++) {
+            int op = rnd.nextInt(100);
+            if (op < 70) {
+                if (model.size() == capacity) {
+                    buf.dropFront(1);
+                    model.remove(0);
+                }
+                double[] p = point(rnd);
+                buf.append(p[0], p[1], p[2]);
+                model.add(p);
+            } else if (op < 80) {
+                double[] p = point(rnd);
+                buf.replaceLast(p[0], p[1], p[2]);
+                if (!model.isEmpty()) model.set(model.size() - 1, p);
+            } else if (op < 89) {
+                int keep = rnd.nextInt(model.size() + 1);
+                buf.truncate(keep);
+                model.subList(keep, model.size()).clear();
+            } else if (op < 99) {
+                int count = rnd.nextInt(model.size() + 2);
+                buf.dropFront(count);
+                model.subList(0, Math.min(count, model.size())).clear();
+            } else {
+                buf.clear();
+                model.clear();
+            }
+            assertMatches(model, buf, step);
+            assertGridMatches(buf, step);
+            if (step % 10 == 0) assertNearMatchesScan(model, buf, rnd);
+        }
+    }
+
+    @Test
+    void appendingToAFullBufferFails() {
+        TrailBuffer buf = new TrailBuffer(16);
+        for (int i = 0; i < 16; i++) buf.append(i, 64.0, i);
+        assertTrue(buf.isFull());
+        assertThrows(IllegalStateException.class, () -> buf.append(0.0, 64.0, 0.0));
+    }
+
+    private static double[] point(SplittableRandom rnd) {
+        // A small area, so many points share grid cells.
+        return new double[] {rnd.nextDouble(-40.0, 40.0), rnd.nextDouble(60.0, 70.0), rnd.nextDouble(-40.0, 40.0)};
+    }
+
+    private static void assertMatches(ArrayList<double[]> model, TrailBuffer buf, int step) {
+        assertEquals(model.size(), buf.size(), "step " + step);
+        assertEquals(model.size(), (int) (buf.tailId() - buf.headId()));
+        double[] copy = buf.copyFrom(0);
+        for (int i = 0; i < model.size(); i++) {
+            double[] p = model.get(i);
+            assertEquals(p[0], buf.x(i), 0.0);
+            assertEquals(p[1], buf.y(i), 0.0);
+            assertEquals(p[2], buf.z(i), 0.0);
+            assertEquals(p[0], copy[i * 3], 0.0);
+            assertEquals(p[2], copy[i * 3 + 2], 0.0);
+            assertEquals(buf.headId() + i, buf.idOf(buf.slotAt(i)));
+        }
+    }
+
+    /** Every live slot is listed exactly once, in the cell of its current position, and nothing else is. */
+    private static void assertGridMatches(TrailBuffer buf, int step) {
+        HashSet<Long> cells = new HashSet<>();
+        for (int i = 0; i < buf.size(); i++) {
+            int cx = TrailBuffer.cellCoord(buf.x(i));
+            int cz = TrailBuffer.cellCoord(buf.z(i));
+            cells.add(((long) cx << 32) | (cz & 0xffffffffL));
+            boolean found = false;
+            for (int s = buf.cellFirst(cx, cz); s != TrailBuffer.NONE; s = buf.cellNext(s)) {
+                if (s == buf.slotAt(i)) found = true;
+            }
+            assertTrue(found, "step " + step + ": point " + i + " missing from its cell");
+        }
+        int listed = 0;
+        for (long key : cells) {
+            int cx = (int) (key >> 32);
+            int cz = (int) key;
+            for (int s = buf.cellFirst(cx, cz); s != TrailBuffer.NONE; s = buf.cellNext(s)) {
+                long id = buf.idOf(s);
+                assertTrue(id >= buf.headId() && id < buf.tailId(), "step " + step + ": dead slot " + s + " in a cell");
+                assertEquals(cx, TrailBuffer.cellCoord(buf.xs[s]), "step " + step + ": slot in the wrong cell");
+                assertEquals(cz, TrailBuffer.cellCoord(buf.zs[s]), "step " + step + ": slot in the wrong cell");
+                listed++;
+            }
+        }
+        assertEquals(buf.size(), listed, "step " + step);
+    }
+
+    private static void assertNearMatchesScan(ArrayList<double[]> model, TrailBuffer buf, SplittableRandom rnd) {
+        double x = rnd.nextDouble(-45.0, 45.0);
+        double z = rnd.nextDouble(-45.0, 45.0);
+        double radius = rnd.nextDouble(0.5, 12.0);
+        int from = rnd.nextInt(model.size() + 1);
+        int to = from + rnd.nextInt(model.size() - from + 1);
+        int expected = -1;
+        for (int i = from; i < to; i++) {
+            double dx = model.get(i)[0] - x;
+            double dz = model.get(i)[2] - z;
+            if (dx * dx + dz * dz <= radius * radius) expected = i;
+        }
+        assertEquals(expected, buf.findLatestNearXZ(x, z, radius, from, to));
+    }
+}
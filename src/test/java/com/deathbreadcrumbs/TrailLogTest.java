@@ -0,0 +1,175 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.world.phys.Vec3;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrailLogTest {
+
+    private static final String OVERWORLD = "minecraft:overworld";
+    private static final String NETHER = "minecraft:the_nether";
+    /** Positions are stored in 1/16 block steps. */
+    private static final double QUANT_EPS = 1.0 / 32.0;
+
+    @Test
+    void decodeAppliesEveryOperation() {
+        TrailLog log = new TrailLog();
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.writeBytes(log.encodeSnapshot(List.of()));
+
+        log.select(OVERWORLD);
+        for (int i = 0; i < 10; i++) log.logAppend(new Vec3(i * 2.5, 64.0 - i * 0.0625, -i * 3.125));
+        log.logReplaceLast(new Vec3(100.3, 70.0, -100.7));
+        log.logTruncate(8);      // 0..7 (the replaced last point goes)
+        log.logDropFront(2);     // 2..7
+        log.select(NETHER);
+        log.logAppend(new Vec3(-5.0, 40.0, 5.0));
+        log.logClear();
+        log.logAppend(new Vec3(-6.0, 41.0, 6.0));
+        log.logMeta(OVERWORLD, 3, 1234L, new Vec3(15.0, 63.5, -21.875));
+        file.writeBytes(log.drainAppend());
+
+        List<SaveData> data = new TrailLog().decode(file.toByteArray());
+        assertNotNull(data);
+        assertEquals(2, data.size());
+
+        SaveData ow = data.get(0);
+        assertEquals(OVERWORLD, ow.dimension);
+        assertEquals(6, ow.checkpoints.length);
+        for (int k = 0; k < 6; k++) {
+            int i = k + 2;
+            assertPoint(new Vec3(i * 2.5, 64.0 - i * 0.0625, -i * 3.125), ow.checkpoints[k]);
+        }
+        assertEquals(3, ow.checkpointSegmentStart);
+        assertEquals(1234L, ow.lastCheckpointTick);
+        assertPoint(new Vec3(15.0, 63.5, -21.875), ow.lastCheckpointPos);
+
+        SaveData nether = data.get(1);
+        assertEquals(NETHER, nether.dimension);
+        assertEquals(1, nether.checkpoints.length);
+        assertPoint(new Vec3(-6.0, 41.0, 6.0), nether.checkpoints[0]);
+    }
+
+    @Test
+    void positionsAreQuantizedToSixteenthBlocks() {
+        TrailLog log = new TrailLog();
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.writeBytes(log.encodeSnapshot(List.of()));
+        log.select(OVERWORLD);
+        List<Vec3> pts = Trails.randomWalk(500, 5L, 1.0e6, -2.0e6);
+        for (Vec3 p : pts) log.logAppend(p);
+        file.writeBytes(log.drainAppend());
+
+        double[][] cps = new TrailLog().decode(file.toByteArray()).get(0).checkpoints;
+        assertEquals(pts.size(), cps.length);
+        for (int i = 0; i < cps.length; i++) assertPoint(pts.get(i), cps[i]);
+        // Delta coding keeps a walk far from the origin at a few bytes per point.
+        assertTrue(file.size() < pts.size() * 8, "bytes per point: " + file.size() / (double) pts.size());
+    }
+
+    @Test
+    void appendsContinueAfterDecode() {
+        TrailLog writer = new TrailLog();
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.writeBytes(writer.encodeSnapshot(List.of()));
+        writer.select(OVERWORLD);
+        writer.logAppend(new Vec3(10.0, 64.0, 10.0));
+        writer.logAppend(new Vec3(12.0, 64.0, 11.0));
+        file.writeBytes(writer.drainAppend());
+
+        // A new session decodes the file and appends to it: deltas must continue from the last decoded position.
+        TrailLog reader = new TrailLog();
+        assertEquals(1, reader.decode(file.toByteArray()).size());
+        assertFalse(reader.needsCompaction(2));
+        reader.logAppend(new Vec3(15.0, 65.0, 9.0));
+        file.writeBytes(reader.drainAppend());
+
+        double[][] cps = new TrailLog().decode(file.toByteArray()).get(0).checkpoints;
+        assertEquals(3, cps.length);
+        assertPoint(new Vec3(15.0, 65.0, 9.0), cps[2]);
+    }
+
+    @Test
+    void tornTailKeepsEveryCompleteOperation() {
+        // Log one operation at a time, remembering where each ends and what the trail looks like after it.
+        TrailLog log = new TrailLog();
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.writeBytes(log.encodeSnapshot(List.of()));
+        ArrayList<Integer> ends = new ArrayList<>();
+        ArrayList<List<Vec3>> states = new ArrayList<>();
+        ArrayList<Vec3> trail = new ArrayList<>();
+        ends.add(file.size());
+        states.add(List.of());
+
+        Consumer<Runnable> op = logIt -> {
+            logIt.run();
+            file.writeBytes(log.drainAppend());
+            ends.add(file.size());
+            states.add(new ArrayList<>(trail));
+        };
+        op.accept(() -> log.select(OVERWORLD));
+        List<Vec3> pts = Trails.randomWalk(40, 9L, 0.0, 0.0);
+        for (int i = 0; i < pts.size(); i++) {
+            Vec3 p = pts.get(i);
+            if (i % 7 == 6) {
+                op.accept(() -> {
+                    trail.set(trail.size() - 1, p);
+                    log.logReplaceLast(p);
+                });
+            } else {
+                op.accept(() -> {
+                    trail.add(p);
+                    log.logAppend(p);
+                });
+            }
+            if (i == 30) {
+                op.accept(() -> {
+                    trail.subList(0, 5).clear();
+                    log.logDropFront(5);
+                });
+            }
+        }
+
+        byte[] bytes = file.toByteArray();
+        for (int cut = ends.get(0); cut <= bytes.length; cut++) {
+            int complete = 0;
+            while (complete < ends.size() && ends.get(complete) <= cut) complete++;
+            List<Vec3> expected = states.get(complete - 1);
+
+            TrailLog reader = new TrailLog();
+            List<SaveData> data = reader.decode(Arrays.copyOf(bytes, cut));
+            assertNotNull(data, "cut at " + cut);
+            int got = data.isEmpty() ? 0 : data.get(0).checkpoints.length;
+            assertEquals(expected.size(), got, "points after a cut at " + cut);
+            for (int i = 0; i < got; i++) assertPoint(expected.get(i), data.get(0).checkpoints[i]);
+            // A torn tail must be rewritten before anything is appended after it.
+            boolean torn = ends.get(complete - 1) != cut;
+            assertEquals(torn, reader.needsCompaction(expected.size()), "compaction after a cut at " + cut);
+        }
+    }
+
+    @Test
+    void rejectsForeignBytes() {
+        TrailLog log = new TrailLog();
+        assertNull(log.decode(null));
+        assertNull(log.decode(new byte[] {1, 2, 3}));
+        assertNull(log.decode("{\"checkpoints\": []}".getBytes(java.nio.charset.StandardCharsets.UTF_8)));
+    }
+
+    private static void assertPoint(Vec3 expected, double[] actual) {
+        assertEquals(expected.x, actual[0], QUANT_EPS);
+        assertEquals(expected.y, actual[1], QUANT_EPS);
+        assertEquals(expected.z, actual[2], QUANT_EPS);
+    }
+}
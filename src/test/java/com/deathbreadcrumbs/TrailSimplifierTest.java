@@ -0,0 +1,169 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.world.phys.Vec3;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrailSimplifierTest {
+
+    private static final String OVERWORLD = "minecraft:overworld";
+    private static final double EPS = 1e-9;
+
+    @Test
+    void straightRunCollapsesUpToMaxSpan() {
+        for (TrailSimplifier.Mode mode : new TrailSimplifier.Mode[] {TrailSimplifier.Mode.RDP, TrailSimplifier.Mode.VISVALINGAM}) {
+            ArrayList<Vec3> raw = new ArrayList<>();
+            for (int i = 0; i <= 60; i++) raw.add(new Vec3(i, 64.0, 0.0));
+            CheckpointTrail trail = record(mode, raw);
+
+            // 60 blocks in edges of at most MAX_SPAN: a handful of points, and never a longer edge.
+            assertTrue(trail.size() <= 8, mode + ": " + trail.size() + " points");
+            assertEdgesWithin(trail, TrailSimplifier.MAX_SPAN, mode);
+            assertEquals(raw.get(0), trail.get(0));
+            assertEquals(raw.get(raw.size() - 1), trail.get(trail.size() - 1));
+        }
+    }
+
+    @Test
+    void offKeepsEveryPoint() {
+        List<Vec3> raw = Trails.randomWalk(200, 51L, 0.0, 0.0);
+        TrailSimplifier simplifier = new TrailSimplifier();
+        simplifier.setMode(TrailSimplifier.Mode.OFF);
+        CheckpointTrail trail = record(simplifier, raw, null);
+        assertEquals(raw.size(), trail.size());
+        assertEquals(0, simplifier.dropped());
+        assertEquals(raw.size(), simplifier.offered());
+    }
+
+    @Test
+    void cornersAndStepsAreKept() {
+        for (TrailSimplifier.Mode mode : new TrailSimplifier.Mode[] {TrailSimplifier.Mode.RDP, TrailSimplifier.Mode.VISVALINGAM}) {
+            ArrayList<Vec3> raw = new ArrayList<>();
+            for (int i = 0; i <= 8; i++) raw.add(new Vec3(i, 64.0, 0.0));     // east
+            for (int i = 1; i <= 8; i++) raw.add(new Vec3(8.0, 64.0, i));     // then north: a corner at (8, 0)
+            for (int i = 9; i <= 16; i++) raw.add(new Vec3(i, 65.0, 8.0));    // one block up (a stair) at (9, 8)
+            CheckpointTrail trail = record(mode, raw);
+
+            assertTrue(contains(trail, new Vec3(8.0, 64.0, 0.0)), mode + ": corner dropped");
+            assertTrue(contains(trail, new Vec3(8.0, 64.0, 8.0)), mode + ": point before the stair dropped");
+        }
+    }
+
+    @Test
+    void rdpKeepsEveryDroppedPointWithinTolerance() {
+        List<Vec3> raw = Trails.randomWalk(3000, 52L, 0.0, 0.0);
+        TrailSimplifier simplifier = new TrailSimplifier();
+        simplifier.setMode(TrailSimplifier.Mode.RDP);
+        // Trail index each raw point ended up at (the last point it replaced or was appended as).
+        int[] at = new int[raw.size()];
+        CheckpointTrail trail = record(simplifier, raw, at);
+        assertTrue(simplifier.dropped() > 0);
+        assertEquals(raw.size() - trail.size(), simplifier.dropped());
+
+        for (int i = 0; i < raw.size(); i++) {
+            int k = at[i];
+            Vec3 p = raw.get(i);
+            if (trail.get(k).equals(p)) continue; // kept
+            // Dropped: it was folded into the edge that ends at the point that replaced it.
+            Vec3 a = trail.get(k - 1);
+            Vec3 b = trail.get(k);
+            assertTrue(distanceToSegment(p, a, b) <= TrailSimplifier.TOLERANCE + EPS, "raw point " + i);
+        }
+    }
+
+    @Test
+    void visvalingamFoldsLessOfAZigzagThanRdp() {
+        // Every point is within tolerance of the line, but the triangle areas add up.
+        ArrayList<Vec3> raw = new ArrayList<>();
+        for (int i = 0; i <= 200; i++) raw.add(new Vec3(i, 64.0, (i % 2 == 0) ? 0.3 : -0.3));
+        int rdp = record(TrailSimplifier.Mode.RDP, raw).size();
+        int vis = record(TrailSimplifier.Mode.VISVALINGAM, raw).size();
+        assertTrue(rdp < vis, "rdp " + rdp + ", visvalingam " + vis);
+        assertTrue(vis < raw.size(), "visvalingam " + vis);
+    }
+
+    @Test
+    void junctionsAreKept() {
+        // A straight run west, alone and alongside an older run east (within the connect radius of its points).
+        ArrayList<Vec3> west = new ArrayList<>();
+        for (int i = 60; i >= 0; i--) west.add(new Vec3(i, 64.0, 4.0));
+        int alone = record(TrailSimplifier.Mode.RDP, west).size();
+
+        ArrayList<Vec3> raw = new ArrayList<>();
+        for (int i = 0; i <= 60; i++) raw.add(new Vec3(i, 64.0, 0.0));
+        raw.addAll(west);
+        TrailSimplifier simplifier = new TrailSimplifier();
+        CheckpointTrail trail = record(simplifier, raw, null);
+        int east = record(TrailSimplifier.Mode.RDP, raw.subList(0, 61)).size();
+        int crossing = trail.size() - east;
+        assertTrue(crossing > alone, "alone " + alone + ", alongside the older run " + crossing);
+    }
+
+    @Test
+    void trailChangesOutsideTheSimplifierRestartTheWindow() {
+        TrailSimplifier simplifier = new TrailSimplifier();
+        CheckpointTrail trail = new CheckpointTrail(OVERWORLD, 1000, new TrailLog());
+        feed(simplifier, trail, new Vec3(0.0, 64.0, 0.0));
+        feed(simplifier, trail, new Vec3(1.0, 64.0, 0.0));
+        assertTrue(simplifier.offer(trail, new Vec3(2.0, 64.0, 0.0)));
+        trail.replaceLast(new Vec3(2.0, 64.0, 0.0));
+
+        // A loop collapse (or any other caller mutation) moves the last point: the window no longer applies.
+        trail.replaceLast(new Vec3(2.5, 64.0, 0.0));
+        assertFalse(simplifier.offer(trail, new Vec3(3.0, 64.0, 0.0)));
+    }
+
+    private static CheckpointTrail record(TrailSimplifier.Mode mode, List<Vec3> raw) {
+        TrailSimplifier simplifier = new TrailSimplifier();
+        simplifier.setMode(mode);
+        return record(simplifier, raw, null);
+    }
+
+    /** Feeds {@code raw} the way the client records checkpoints; {@code at} receives each point's trail index. */
+    private static CheckpointTrail record(TrailSimplifier simplifier, List<Vec3> raw, int[] at) {
+        CheckpointTrail trail = new CheckpointTrail(OVERWORLD, raw.size() + 1, new TrailLog());
+        for (int i = 0; i < raw.size(); i++) {
+            feed(simplifier, trail, raw.get(i));
+            if (at != null) at[i] = trail.size() - 1;
+        }
+        return trail;
+    }
+
+    private static void feed(TrailSimplifier simplifier, CheckpointTrail trail, Vec3 p) {
+        if (simplifier.offer(trail, p)) trail.replaceLast(p);
+        else trail.append(p);
+    }
+
+    private static void assertEdgesWithin(CheckpointTrail trail, double max, TrailSimplifier.Mode mode) {
+        for (int i = 1; i < trail.size(); i++) {
+            double d = trail.get(i - 1).distanceTo(trail.get(i));
+            assertTrue(d <= max + EPS, mode + ": edge " + i + " is " + d + " blocks");
+        }
+    }
+
+    private static boolean contains(CheckpointTrail trail, Vec3 p) {
+        for (int i = 0; i < trail.size(); i++) {
+            if (trail.get(i).equals(p)) return true;
+        }
+        return false;
+    }
+
+    private static double distanceToSegment(Vec3 p, Vec3 a, Vec3 b) {
+        double dx = b.x - a.x;
+        double dy = b.y - a.y;
+        double dz = b.z - a.z;
+        double len2 = dx * dx + dy * dy + dz * dz;
+        double t = (len2 == 0.0) ? 0.0 : ((p.x - a.x) * dx + (p.y - a.y) * dy + (p.z - a.z) * dz) / len2;
+        t = Math.max(0.0, Math.min(1.0, t));
+        double ex = p.x - (a.x + t * dx);
+        double ey = p.y - (a.y + t * dy);
+        double ez = p.z - (a.z + t * dz);
+        return Math.sqrt(ex * ex + ey * ey + ez * ez);
+    }
+}
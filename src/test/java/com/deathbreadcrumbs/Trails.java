@@ -0,0 +1,33 @@
+package com.deathbreadcrumbs;
+
+import net.minecraft.world.phys.Vec3;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/** Deterministic synthetic trails for the tests. */
+final class Trails {
+
+    private Trails() {
+    }
+
+    /** Random walk of {@code n} points with steps of 1.5 to 4 blocks around {@code (x0, 64, z0)}. */
+    static List<Vec3> randomWalk(int n, long seed, double x0, double z0) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        ArrayList<Vec3> pts = new ArrayList<>(n);
+        double x = x0;
+        double y = 64.0;
+        double z = z0;
+        double heading = rnd.nextDouble(0.0, 2.0 * Math.PI);
+        for (int i = 0; i < n; i++) {
+            pts.add(new Vec3(x, y, z));
+            heading += rnd.nextDouble(-0.6, 0.6);
+            double step = rnd.nextDouble(1.5, 4.0);
+            x += Math.cos(heading) * step;
+            z += Math.sin(heading) * step;
+            y = Math.max(0.0, y + rnd.nextDouble(-0.5, 0.5));
+        }
+        return pts;
+    }
+}
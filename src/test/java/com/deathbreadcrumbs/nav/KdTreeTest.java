@@ -0,0 +1,80 @@
+package com.deathbreadcrumbs.nav;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KdTreeTest {
+
+    @Test
+    void nearestMatchesLinearScan() {
+        SplittableRandom rnd = new SplittableRandom(11L);
+        for (int n : new int[] {1, 2, 7, 100, 5000}) {
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+            double[] zs = new double[n];
+            for (int i = 0; i < n; i++) {
+                // Clustered and on a grid, so there are ties and degenerate axes as on real trails.
+                xs[i] = (i % 3 == 0) ? Math.floor(rnd.nextDouble(-100.0, 100.0)) : rnd.nextGaussian() * 20.0;
+                ys[i] = (i % 5 == 0) ? 64.0 : 64.0 + rnd.nextDouble(-4.0, 4.0);
+                zs[i] = (i % 3 == 0) ? Math.floor(rnd.nextDouble(-100.0, 100.0)) : rnd.nextGaussian() * 20.0;
+            }
+            KdTree tree = KdTree.ofAll(xs, ys, zs, n);
+            assertEquals(n, tree.size());
+
+            for (int q = 0; q < 2000; q++) {
+                double x = rnd.nextDouble(-150.0, 150.0);
+                double y = rnd.nextDouble(40.0, 90.0);
+                double z = rnd.nextDouble(-150.0, 150.0);
+                int got = tree.nearest(x, y, z);
+                double best = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < n; i++) best = Math.min(best, d2(xs, ys, zs, i, x, y, z));
+                assertEquals(best, d2(xs, ys, zs, got, x, y, z), 0.0, "n=" + n + ", query " + q);
+            }
+        }
+    }
+
+    @Test
+    void subsetOnlyReturnsIncludedPoints() {
+        SplittableRandom rnd = new SplittableRandom(12L);
+        int n = 1000;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        double[] zs = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = rnd.nextDouble(-50.0, 50.0);
+            ys[i] = rnd.nextDouble(60.0, 70.0);
+            zs[i] = rnd.nextDouble(-50.0, 50.0);
+        }
+        int[] ids = new int[n];
+        int count = 0;
+        for (int i = 0; i < n; i += 3) ids[count++] = i;
+        KdTree tree = new KdTree(xs, ys, zs, ids, count);
+
+        for (int q = 0; q < 500; q++) {
+            double x = rnd.nextDouble(-60.0, 60.0);
+            double z = rnd.nextDouble(-60.0, 60.0);
+            int got = tree.nearest(x, 65.0, z);
+            assertTrue(got % 3 == 0, "returned excluded point " + got);
+            double best = Double.POSITIVE_INFINITY;
+            for (int k = 0; k < count; k++) best = Math.min(best, d2(xs, ys, zs, ids[k], x, 65.0, z));
+            assertEquals(best, d2(xs, ys, zs, got, x, 65.0, z), 0.0);
+        }
+    }
+
+    @Test
+    void emptyTreeHasNoNearest() {
+        KdTree tree = KdTree.ofAll(new double[0], new double[0], new double[0], 0);
+        assertEquals(-1, tree.nearest(0.0, 0.0, 0.0));
+    }
+
+    private static double d2(double[] xs, double[] ys, double[] zs, int i, double x, double y, double z) {
+        double dx = xs[i] - x;
+        double dy = ys[i] - y;
+        double dz = zs[i] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
@@ -0,0 +1,154 @@
+package com.deathbreadcrumbs.nav;
+
+import net.minecraft.world.phys.Vec3;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PointDatabaseTest {
+
+    private static final String OVERWORLD = "minecraft:overworld";
+    private static final String NETHER = "minecraft:the_nether";
+
+    @Test
+    void evictionKeepsCapacityAndClearsLinks() {
+        PointDatabase db = new PointDatabase(8, 1.0, 256, 200, EvictionPolicy.LRU);
+        List<PointId> ids = record(db, OVERWORLD, 1000, 1L, 0L);
+
+        assertTrue(db.size() <= 200, "size " + db.size());
+        assertEquals(new HashSet<>(ids).size() - db.size(), db.evictions());
+        // LRU: the oldest records went first, the latest one is still there.
+        assertNull(db.get(ids.get(0)));
+        assertNotNull(db.get(ids.get(ids.size() - 1)));
+
+        for (PointId id : ids) {
+            PointRecord r = db.get(id);
+            if (r == null) continue;
+            assertTrue(r.prevId() == null || db.get(r.prevId()) != null, "prev link to an evicted record");
+            assertTrue(r.nextId() == null || db.get(r.nextId()) != null, "next link to an evicted record");
+        }
+        assertWellFormed(db.navGraph(OVERWORLD));
+    }
+
+    @Test
+    void navGraphLinksAreSymmetric() {
+        PointDatabase db = new PointDatabase(8, 1.0, 256);
+        // Several lives over the same area, so proximity links cross segments.
+        for (int life = 0; life < 5; life++) record(db, OVERWORLD, 600, 20L + life, life * 1000L);
+        NavGraph g = db.navGraph(OVERWORLD);
+        assertEquals(db.size(), g.size());
+        assertWellFormed(g);
+        // Unchanged database: the cached export is returned.
+        assertTrue(g == db.navGraph(OVERWORLD));
+    }
+
+    @Test
+    void dimensionRoundTripsThroughWriteAndRead() throws IOException {
+        PointDatabase db = new PointDatabase(8, 1.0, 256);
+        List<PointId> ow = new ArrayList<>();
+        for (int life = 0; life < 3; life++) ow.addAll(record(db, OVERWORLD, 800, 40L + life, life * 1000L));
+        List<PointId> nether = record(db, NETHER, 200, 50L, 5000L);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        db.writeDimension(OVERWORLD, new DataOutputStream(bytes));
+
+        PointDatabase loaded = new PointDatabase(8, 1.0, 256);
+        int added = loaded.readDimension(OVERWORLD, new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(db.navGraph(OVERWORLD).size(), added);
+        assertEquals(added, loaded.size());
+        assertTrue(loaded.nextId() > maxId(ow), "ids must not be handed out twice");
+
+        for (PointId id : new HashSet<>(ow)) {
+            PointRecord a = db.get(id);
+            PointRecord b = loaded.get(id);
+            assertNotNull(b, "record " + id);
+            assertEquals(a.pos().x, b.pos().x, 0.0);
+            assertEquals(a.pos().y, b.pos().y, 0.0);
+            assertEquals(a.pos().z, b.pos().z, 0.0);
+            assertEquals(a.prevId(), b.prevId());
+            assertEquals(a.nextId(), b.nextId());
+            assertEquals(a.segmentId(), b.segmentId());
+            assertEquals(a.lastSeenTick(), b.lastSeenTick());
+            assertEquals(a.visits(), b.visits());
+        }
+        for (PointId id : nether) assertNull(loaded.get(id));
+        assertWellFormed(loaded.navGraph(OVERWORLD));
+
+        // Reading the same records again adds nothing.
+        assertEquals(0, loaded.readDimension(OVERWORLD, new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+        assertWellFormed(loaded.navGraph(OVERWORLD));
+    }
+
+    @Test
+    void readingOverCapacityEvicts() throws IOException {
+        PointDatabase db = new PointDatabase(8, 1.0, 256);
+        record(db, OVERWORLD, 500, 60L, 0L);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        db.writeDimension(OVERWORLD, new DataOutputStream(bytes));
+
+        PointDatabase small = new PointDatabase(8, 1.0, 256, 100, EvictionPolicy.LRU);
+        small.readDimension(OVERWORLD, new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertTrue(small.size() <= 100);
+        assertEquals(db.size() - small.size(), small.evictions());
+        assertWellFormed(small.navGraph(OVERWORLD));
+    }
+
+    /** Records one life as a random walk (one segment); returns the id of every checkpoint in order. */
+    private static List<PointId> record(PointDatabase db, String dim, int n, long seed, long tick0) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        ArrayList<PointId> ids = new ArrayList<>(n);
+        double x = rnd.nextDouble(-20.0, 20.0);
+        double z = rnd.nextDouble(-20.0, 20.0);
+        double heading = rnd.nextDouble(0.0, 2.0 * Math.PI);
+        PointId prev = null;
+        for (int i = 0; i < n; i++) {
+            heading += rnd.nextDouble(-0.7, 0.7);
+            x += Math.cos(heading) * 2.5;
+            z += Math.sin(heading) * 2.5;
+            prev = db.addOrMerge(dim, new Vec3(x, 64.0, z), prev, seed, tick0 + i);
+            ids.add(prev);
+        }
+        return ids;
+    }
+
+    /** CSR bounds, no self loops or duplicate edges, and every edge has its reverse. */
+    private static void assertWellFormed(NavGraph g) {
+        int n = g.size();
+        int[] off = g.offsets();
+        int[] tgt = g.targets();
+        assertEquals(0, off[0]);
+        HashSet<Long> edges = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            assertTrue(off[i] <= off[i + 1]);
+            for (int k = off[i]; k < off[i + 1]; k++) {
+                int j = tgt[k];
+                assertTrue(j >= 0 && j < n && j != i, "bad target " + j + " of " + i);
+                assertTrue(edges.add(((long) i << 32) | j), "duplicate edge " + i + "->" + j);
+            }
+        }
+        for (long e : edges) {
+            long i = e >>> 32;
+            long j = e & 0xffffffffL;
+            assertTrue(edges.contains((j << 32) | i), "one-sided edge " + i + "->" + j);
+        }
+    }
+
+    private static long maxId(List<PointId> ids) {
+        long max = 0;
+        for (PointId id : ids) max = Math.max(max, id.value());
+        return max;
+    }
+}
@@ -0,0 +1,175 @@
+package com.deathbreadcrumbs.nav;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** The 4-ary heap Dijkstra and the A* queries against a plain O(n^2) Dijkstra. */
+class ShortestPathEngineTest {
+
+    private static final double EPS = 1e-9;
+
+    /** Random geometric graph in CSR form; edge weights are at least the euclidean distance (as on route graphs). */
+    private static final class Graph {
+        final int n;
+        final double[] xs;
+        final double[] ys;
+        final double[] zs;
+        final int[] offsets;
+        final int[] targets;
+        final double[] weights;
+
+        Graph(int n, double radius, long seed) {
+            SplittableRandom rnd = new SplittableRandom(seed);
+            this.n = n;
+            xs = new double[n];
+            ys = new double[n];
+            zs = new double[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = rnd.nextDouble(0.0, 100.0);
+                ys[i] = rnd.nextDouble(60.0, 70.0);
+                zs[i] = rnd.nextDouble(0.0, 100.0);
+            }
+            ArrayList<ArrayList<double[]>> adj = new ArrayList<>();
+            for (int i = 0; i < n; i++) adj.add(new ArrayList<>());
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    double d = Math.sqrt(d2(i, j));
+                    if (d > radius) continue;
+                    double w = d * (1.0 + rnd.nextDouble(0.0, 0.5));
+                    adj.get(i).add(new double[] {j, w});
+                    adj.get(j).add(new double[] {i, w});
+                }
+            }
+            offsets = new int[n + 1];
+            for (int i = 0; i < n; i++) offsets[i + 1] = offsets[i] + adj.get(i).size();
+            targets = new int[offsets[n]];
+            weights = new double[offsets[n]];
+            for (int i = 0; i < n; i++) {
+                int k = offsets[i];
+                for (double[] e : adj.get(i)) {
+                    targets[k] = (int) e[0];
+                    weights[k++] = e[1];
+                }
+            }
+        }
+
+        double d2(int a, int b) {
+            double dx = xs[a] - xs[b];
+            double dy = ys[a] - ys[b];
+            double dz = zs[a] - zs[b];
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+        double weight(int from, int to) {
+            for (int k = offsets[from]; k < offsets[from + 1]; k++) {
+                if (targets[k] == to) return weights[k];
+            }
+            return Double.NaN;
+        }
+
+        /** Textbook Dijkstra with a linear scan for the minimum. */
+        double[] baseline(int source) {
+            double[] dist = new double[n];
+            boolean[] done = new boolean[n];
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            dist[source] = 0.0;
+            for (int round = 0; round < n; round++) {
+                int u = -1;
+                for (int i = 0; i < n; i++) {
+                    if (!done[i] && (u < 0 || dist[i] < dist[u])) u = i;
+                }
+                if (u < 0 || dist[u] == Double.POSITIVE_INFINITY) break;
+                done[u] = true;
+                for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                    dist[targets[k]] = Math.min(dist[targets[k]], dist[u] + weights[k]);
+                }
+            }
+            return dist;
+        }
+    }
+
+    @Test
+    void solveMatchesBaselineDijkstra() {
+        ShortestPathEngine engine = new ShortestPathEngine();
+        // Sparse graphs leave some nodes unreachable; the engine is reused across sizes as in production.
+        for (int n : new int[] {1, 2, 50, 400, 1500}) {
+            Graph g = new Graph(n, (n > 100) ? 6.0 : 25.0, n);
+            int[] next = new int[n];
+            double[] dist = new double[n];
+            for (int source : new int[] {0, n / 2, n - 1}) {
+                engine.solve(n, source, g.offsets, g.targets, g.weights, next, dist);
+                double[] expected = g.baseline(source);
+                for (int v = 0; v < n; v++) {
+                    assertEquals(expected[v], dist[v], EPS, "n=" + n + ", source=" + source + ", node " + v);
+                    if (v == source || dist[v] == Double.POSITIVE_INFINITY) {
+                        assertEquals(-1, next[v]);
+                    } else {
+                        // The next hop lies on a shortest path: one edge closer to the source.
+                        int u = next[v];
+                        assertEquals(dist[v], dist[u] + g.weight(u, v), EPS, "next hop of " + v);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void findPathMatchesTreeDistances() {
+        ShortestPathEngine engine = new ShortestPathEngine();
+        SplittableRandom rnd = new SplittableRandom(5L);
+        Graph g = new Graph(1200, 6.0, 77L);
+        int[] next = new int[g.n];
+        double[] dist = new double[g.n];
+
+        for (int q = 0; q < 300; q++) {
+            int source = rnd.nextInt(g.n);
+            int target = rnd.nextInt(g.n);
+            engine.solve(g.n, source, g.offsets, g.targets, g.weights, next, dist);
+            int len = engine.findPath(g.n, source, target, g.offsets, g.targets, g.weights, g.xs, g.ys, g.zs);
+
+            if (dist[target] == Double.POSITIVE_INFINITY) {
+                assertEquals(0, len);
+                assertEquals(Double.POSITIVE_INFINITY, engine.pathCost(), 0.0);
+                continue;
+            }
+            assertEquals(dist[target], engine.pathCost(), EPS, "query " + q);
+            assertTrue(len >= 1);
+            assertEquals(source, engine.pathNode(0));
+            assertEquals(target, engine.pathNode(len - 1));
+            double sum = 0.0;
+            for (int i = 1; i < len; i++) {
+                double w = g.weight(engine.pathNode(i - 1), engine.pathNode(i));
+                assertFalse(Double.isNaN(w), "path uses a missing edge");
+                sum += w;
+            }
+            assertEquals(engine.pathCost(), sum, EPS);
+        }
+    }
+
+    @Test
+    void findCostMatchesFindPath() {
+        ShortestPathEngine engine = new ShortestPathEngine();
+        SplittableRandom rnd = new SplittableRandom(6L);
+        Graph g = new Graph(1200, 6.0, 78L);
+
+        for (int q = 0; q < 300; q++) {
+            int source = rnd.nextInt(g.n);
+            int target = rnd.nextInt(g.n);
+            int len = engine.findPath(g.n, source, target, g.offsets, g.targets, g.weights, g.xs, g.ys, g.zs);
+            double cost = engine.pathCost();
+            int last = (len > 0) ? engine.pathNode(len - 1) : -1;
+            assertEquals(cost, engine.findCost(g.n, source, target, g.offsets, g.targets, g.weights, g.xs, g.ys, g.zs),
+                    EPS, "query " + q);
+            // A cost-only query leaves the last path alone.
+            assertEquals(cost, engine.pathCost(), 0.0);
+            if (len > 0) assertEquals(last, engine.pathNode(len - 1));
+        }
+    }
+}